@@ -0,0 +1,319 @@
+package com.flipkart.databuilderframework.processor;
+
+import com.flipkart.databuilderframework.annotations.DataBuilderClassInfo;
+import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
+import com.google.common.base.CaseFormat;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Annotation processor that generates a {@link com.flipkart.databuilderframework.engine.DataBuilderRegistry} for all
+ * builders annotated with {@link DataBuilderInfo} or {@link DataBuilderClassInfo} in a compilation. The registry has
+ * the meta of every builder, with data names derived from classes worked out at compile time, and a constructor
+ * reference to create instances, so that builders can be registered without reflection.
+ * <br>
+ * The processor is registered as a service, so the compiler runs it when this artifact is on the class path or the
+ * processor path of a build. The name of the generated class is set using the <code>databuilder.registry</code>
+ * option, and defaults to {@value #DEFAULT_REGISTRY}.
+ * Annotated builders must be public, non abstract classes with a public no-args constructor.
+ */
+@SupportedAnnotationTypes({
+        "com.flipkart.databuilderframework.annotations.DataBuilderInfo",
+        "com.flipkart.databuilderframework.annotations.DataBuilderClassInfo"
+})
+@SupportedOptions(DataBuilderRegistryProcessor.REGISTRY_OPTION)
+public class DataBuilderRegistryProcessor extends AbstractProcessor {
+    public static final String REGISTRY_OPTION = "databuilder.registry";
+    public static final String DEFAULT_REGISTRY = "com.flipkart.databuilderframework.generated.GeneratedDataBuilderRegistry";
+
+    private static final String DATA_BUILDER = "com.flipkart.databuilderframework.engine.DataBuilder";
+
+    /**
+     * Meta of an annotated builder, as it would be read by reflection.
+     */
+    private static final class BuilderEntry {
+        private final TypeElement type;
+        private final String name;
+        private final String produces;
+        private final Set<String> consumes;
+        private final Set<String> optionals;
+        private final Set<String> access;
+        private final String lifecycle;
+        private final long timeoutMs;
+        private final String bulkhead;
+        private final boolean idempotent;
+        private final long cacheTtlMs;
+
+        private BuilderEntry(TypeElement type, String name, String produces, Set<String> consumes,
+                             Set<String> optionals, Set<String> access, Map<String, Object> values) {
+            this.type = type;
+            this.name = name;
+            this.produces = produces;
+            this.consumes = consumes;
+            this.optionals = optionals;
+            this.access = access;
+            this.lifecycle = values.get("lifecycle").toString();
+            this.timeoutMs = (Long) values.get("timeoutMs");
+            this.bulkhead = Strings.emptyToNull((String) values.get("bulkhead"));
+            this.idempotent = (Boolean) values.get("idempotent");
+            this.cacheTtlMs = (Long) values.get("cacheTtlMs");
+        }
+    }
+
+    private final Map<String, BuilderEntry> entries = Maps.newTreeMap();
+    private final List<TypeElement> originatingElements = Lists.newArrayList();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!entries.isEmpty()) {
+                generate();
+            }
+            return false;
+        }
+        Set<Element> annotated = Sets.newLinkedHashSet();
+        annotated.addAll(roundEnv.getElementsAnnotatedWith(DataBuilderInfo.class));
+        annotated.addAll(roundEnv.getElementsAnnotatedWith(DataBuilderClassInfo.class));
+        for (Element element : annotated) {
+            if (!isUsable(element)) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            BuilderEntry entry = entry(type);
+            if (entries.containsKey(entry.name)) {
+                error(type, "A builder with name " + entry.name + " already exists");
+                continue;
+            }
+            entries.put(entry.name, entry);
+            originatingElements.add(type);
+        }
+        return false;
+    }
+
+    private boolean isUsable(Element element) {
+        if (element.getKind() != ElementKind.CLASS) {
+            error(element, "Builder annotations can only be used on classes");
+            return false;
+        }
+        TypeElement type = (TypeElement) element;
+        TypeMirror dataBuilder = processingEnv.getElementUtils().getTypeElement(DATA_BUILDER).asType();
+        if (!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()), dataBuilder)) {
+            error(element, "Annotated class does not extend DataBuilder");
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(element, "Annotated builder can not be abstract");
+            return false;
+        }
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            if (!current.getModifiers().contains(Modifier.PUBLIC)
+                    || (current.getEnclosingElement() instanceof TypeElement
+                        && !current.getModifiers().contains(Modifier.STATIC))) {
+                error(element, "Annotated builder must be a public top level or public static nested class");
+                return false;
+            }
+        }
+        boolean hasConstructor = ElementFilter.constructorsIn(type.getEnclosedElements())
+                .stream()
+                .anyMatch(constructor -> constructor.getParameters().isEmpty()
+                        && constructor.getModifiers().contains(Modifier.PUBLIC));
+        if (!hasConstructor) {
+            error(element, "Annotated builder must have a public no-args constructor");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Same as <code>Utils.meta()</code> and <code>Utils.lifecycle()</code>, on the annotation mirrors.
+     */
+    private BuilderEntry entry(TypeElement type) {
+        AnnotationMirror info = mirror(type, DataBuilderInfo.class.getName());
+        if (null != info) {
+            Map<String, Object> values = values(info);
+            return new BuilderEntry(type,
+                    (String) values.get("name"),
+                    (String) values.get("produces"),
+                    strings(values.get("consumes")),
+                    strings(values.get("optionals")),
+                    strings(values.get("accesses")),
+                    values);
+        }
+        Map<String, Object> values = values(mirror(type, DataBuilderClassInfo.class.getName()));
+        String name = (String) values.get("name");
+        return new BuilderEntry(type,
+                Strings.isNullOrEmpty(name) ? dataName(type) : name,
+                dataName((TypeMirror) values.get("produces")),
+                dataNames(values.get("consumes")),
+                dataNames(values.get("optionals")),
+                dataNames(values.get("accesses")),
+                values);
+    }
+
+    private static AnnotationMirror mirror(TypeElement type, String annotation) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> values(AnnotationMirror mirror) {
+        Map<String, Object> values = Maps.newHashMap();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> strings(Object value) {
+        return ((List<? extends AnnotationValue>) value).stream()
+                .map(annotationValue -> (String) annotationValue.getValue())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> dataNames(Object value) {
+        return ((List<? extends AnnotationValue>) value).stream()
+                .map(annotationValue -> dataName((TypeMirror) annotationValue.getValue()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static String dataName(TypeMirror type) {
+        return dataName(((DeclaredType) type).asElement());
+    }
+
+    /**
+     * Same as <code>Utils.name()</code>.
+     */
+    private static String dataName(Element type) {
+        return CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, type.getSimpleName().toString());
+    }
+
+    private void generate() {
+        String registry = processingEnv.getOptions().getOrDefault(REGISTRY_OPTION, DEFAULT_REGISTRY);
+        int lastDot = registry.lastIndexOf('.');
+        String packageName = lastDot < 0 ? "" : registry.substring(0, lastDot);
+        String className = registry.substring(lastDot + 1);
+        try {
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(registry, originatingElements.toArray(new Element[originatingElements.size()]));
+            try (Writer writer = file.openWriter(); PrintWriter out = new PrintWriter(writer)) {
+                if (!packageName.isEmpty()) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("import com.flipkart.databuilderframework.engine.DataBuilderRegistry;");
+                out.println("import com.flipkart.databuilderframework.engine.RegisteredDataBuilder;");
+                out.println("import com.flipkart.databuilderframework.model.BuilderLifecycle;");
+                out.println("import com.flipkart.databuilderframework.model.DataBuilderMeta;");
+                out.println("import com.google.common.collect.ImmutableSet;");
+                out.println();
+                out.println("import java.util.ArrayList;");
+                out.println("import java.util.List;");
+                out.println();
+                out.println("/**");
+                out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+                out.println(" */");
+                out.println("public final class " + className + " implements DataBuilderRegistry {");
+                out.println("    @Override");
+                out.println("    public List<RegisteredDataBuilder> builders() {");
+                out.println("        List<RegisteredDataBuilder> builders = new ArrayList<>(" + entries.size() + ");");
+                for (BuilderEntry entry : entries.values()) {
+                    String type = entry.type.getQualifiedName().toString();
+                    out.println("        builders.add(new RegisteredDataBuilder(");
+                    out.println("                meta(" + array(entry.consumes) + ", " + literal(entry.produces) + ", "
+                            + literal(entry.name) + ",");
+                    out.println("                        " + array(entry.optionals) + ", " + array(entry.access) + ", "
+                            + entry.timeoutMs + "L, " + literal(entry.bulkhead) + ", " + entry.idempotent + ", "
+                            + entry.cacheTtlMs + "L),");
+                    out.println("                " + type + ".class,");
+                    out.println("                BuilderLifecycle." + entry.lifecycle + ",");
+                    out.println("                " + type + "::new));");
+                }
+                out.println("        return builders;");
+                out.println("    }");
+                out.println();
+                out.println("    private static DataBuilderMeta meta(String[] consumes, String produces, String name,");
+                out.println("                                        String[] optionals, String[] access, long timeoutMs,");
+                out.println("                                        String bulkhead, boolean idempotent, long cacheTtlMs) {");
+                out.println("        DataBuilderMeta dataBuilderMeta = new DataBuilderMeta(ImmutableSet.copyOf(consumes), produces, name,");
+                out.println("                ImmutableSet.copyOf(optionals), ImmutableSet.copyOf(access));");
+                out.println("        dataBuilderMeta.setTimeoutMs(timeoutMs);");
+                out.println("        dataBuilderMeta.setBulkhead(bulkhead);");
+                out.println("        dataBuilderMeta.setIdempotent(idempotent);");
+                out.println("        dataBuilderMeta.setCacheTtlMs(cacheTtlMs);");
+                out.println("        return dataBuilderMeta;");
+                out.println("    }");
+                out.println("}");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not generate builder registry " + registry + ": " + e.getMessage());
+        }
+    }
+
+    private static String array(Collection<String> values) {
+        return values.stream()
+                .map(DataBuilderRegistryProcessor::literal)
+                .collect(Collectors.joining(", ", "new String[] {", "}"));
+    }
+
+    private static String literal(String value) {
+        if (null == value) {
+            return "null";
+        }
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
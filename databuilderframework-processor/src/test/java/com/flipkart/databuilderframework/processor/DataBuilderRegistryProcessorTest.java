@@ -0,0 +1,240 @@
+package com.flipkart.databuilderframework.processor;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.engine.impl.InstantiatingDataBuilderFactory;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DataBuilderRegistryProcessorTest {
+    private static final Pattern CLASS_NAME = Pattern.compile("public (?:abstract )?class (\\w+)");
+
+    private static final String QUOTE =
+            "package test.builders;\n" +
+            "public class Quote extends com.flipkart.databuilderframework.model.Data {\n" +
+            "    public Quote() { super(\"QUOTE\"); }\n" +
+            "}\n";
+
+    private static final String PRICED_QUOTE =
+            "package test.builders;\n" +
+            "public class PricedQuote extends com.flipkart.databuilderframework.model.Data {\n" +
+            "    public PricedQuote() { super(\"PRICED_QUOTE\"); }\n" +
+            "}\n";
+
+    private static final String QUOTER =
+            "package test.builders;\n" +
+            "import com.flipkart.databuilderframework.annotations.DataBuilderInfo;\n" +
+            "import com.flipkart.databuilderframework.engine.*;\n" +
+            "import com.flipkart.databuilderframework.model.*;\n" +
+            "@DataBuilderInfo(name = \"Quoter\", consumes = {\"REQ\"}, optionals = {\"USER\"}, produces = \"QUOTE\",\n" +
+            "        lifecycle = BuilderLifecycle.SINGLETON, timeoutMs = 100, bulkhead = \"io\", idempotent = true)\n" +
+            "public class Quoter extends DataBuilder {\n" +
+            "    @Override\n" +
+            "    public Data process(DataBuilderContext context) { return new Quote(); }\n" +
+            "}\n";
+
+    private static final String PRICERS =
+            "package test.builders;\n" +
+            "import com.flipkart.databuilderframework.annotations.DataBuilderClassInfo;\n" +
+            "import com.flipkart.databuilderframework.engine.*;\n" +
+            "import com.flipkart.databuilderframework.model.*;\n" +
+            "public class Pricers {\n" +
+            "    @DataBuilderClassInfo(consumes = {Quote.class}, accesses = {PricedQuote.class}," +
+            " produces = PricedQuote.class, cacheTtlMs = 50)\n" +
+            "    public static class QuotePricer extends DataBuilder {\n" +
+            "        @Override\n" +
+            "        public Data process(DataBuilderContext context) { return new PricedQuote(); }\n" +
+            "    }\n" +
+            "}\n";
+
+    private Path workDir;
+
+    @Before
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("registry-processor");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testGeneratedRegistry() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(null, QUOTE, PRICED_QUOTE, QUOTER, PRICERS);
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), errors(diagnostics).isEmpty());
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {workDir.resolve("classes").toUri().toURL()},
+                getClass().getClassLoader())) {
+            DataBuilderRegistry registry = (DataBuilderRegistry) classLoader
+                    .loadClass(DataBuilderRegistryProcessor.DEFAULT_REGISTRY)
+                    .newInstance();
+            Assert.assertEquals(2, registry.builders().size());
+            DataBuilderMetadataManager generated = new DataBuilderMetadataManager().register(registry);
+
+            //Meta must be the same as the one read by reflection
+            for (String[] builder : new String[][] {
+                    {"test.builders.Quoter", "Quoter"},
+                    {"test.builders.Pricers$QuotePricer", "QUOTE_PRICER"}}) {
+                Class<? extends DataBuilder> type = classLoader.loadClass(builder[0]).asSubclass(DataBuilder.class);
+                DataBuilderMetadataManager reflected = new DataBuilderMetadataManager().register(type);
+                String name = builder[1];
+                Assert.assertEquals(reflected.get(name), generated.get(name));
+                Assert.assertEquals(reflected.getLifecycle(name), generated.getLifecycle(name));
+                Assert.assertSame(type, generated.getDataBuilderClass(name));
+                Assert.assertNotNull(generated.getDataBuilderSupplier(name));
+                Assert.assertNull(reflected.getDataBuilderSupplier(name));
+            }
+            DataBuilderMeta quoter = generated.get("Quoter");
+            Assert.assertEquals(ImmutableSet.of("REQ"), quoter.getConsumes());
+            Assert.assertEquals(ImmutableSet.of("USER"), quoter.getOptionals());
+            Assert.assertEquals("io", quoter.getBulkhead());
+            Assert.assertEquals(100, quoter.getTimeoutMs());
+            Assert.assertTrue(quoter.isIdempotent());
+            Assert.assertEquals(BuilderLifecycle.SINGLETON, generated.getLifecycle("Quoter"));
+            DataBuilderMeta pricer = generated.get("QUOTE_PRICER");
+            Assert.assertEquals("PRICED_QUOTE", pricer.getProduces());
+            Assert.assertEquals(ImmutableSet.of("QUOTE"), pricer.getConsumes());
+            Assert.assertEquals(ImmutableSet.of("PRICED_QUOTE"), pricer.getAccess());
+            Assert.assertNull(pricer.getBulkhead());
+            Assert.assertEquals(50, pricer.getCacheTtlMs());
+
+            //Run a flow with builders created by the suppliers
+            DataFlow dataFlow = new DataFlowBuilder()
+                    .withMetaDataManager(generated)
+                    .withTargetData("PRICED_QUOTE")
+                    .build();
+            dataFlow.setDataBuilderFactory(new InstantiatingDataBuilderFactory(generated));
+            DataExecutionResponse response = new SimpleDataFlowExecutor()
+                    .run(new DataFlowInstance("test", dataFlow), new RequestData());
+            Assert.assertEquals("Quoter", response.getResponses().get("QUOTE").getGeneratedBy());
+            Assert.assertEquals("QUOTE_PRICER", response.getResponses().get("PRICED_QUOTE").getGeneratedBy());
+        }
+    }
+
+    @Test
+    public void testRegistryName() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = compile("test.registry.Builders", QUOTE, QUOTER);
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), errors(diagnostics).isEmpty());
+        Assert.assertTrue(Files.exists(workDir.resolve("classes/test/registry/Builders.class")));
+    }
+
+    @Test
+    public void testDiscoveredAsService() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(false, null, QUOTE, QUOTER);
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), errors(diagnostics).isEmpty());
+        Assert.assertTrue(Files.exists(workDir.resolve("classes/"
+                + DataBuilderRegistryProcessor.DEFAULT_REGISTRY.replace('.', '/') + ".class")));
+    }
+
+    @Test
+    public void testInvalidBuilders() throws Exception {
+        String abstractBuilder =
+                "package test.builders;\n" +
+                "import com.flipkart.databuilderframework.annotations.DataBuilderInfo;\n" +
+                "@DataBuilderInfo(name = \"Abstract\", consumes = {\"REQ\"}, produces = \"A\")\n" +
+                "public abstract class AbstractBuilder extends com.flipkart.databuilderframework.engine.DataBuilder {\n" +
+                "}\n";
+        String noConstructor =
+                "package test.builders;\n" +
+                "import com.flipkart.databuilderframework.annotations.DataBuilderInfo;\n" +
+                "import com.flipkart.databuilderframework.engine.*;\n" +
+                "import com.flipkart.databuilderframework.model.*;\n" +
+                "@DataBuilderInfo(name = \"NoConstructor\", consumes = {\"REQ\"}, produces = \"B\")\n" +
+                "public class NoConstructorBuilder extends DataBuilder {\n" +
+                "    public NoConstructorBuilder(String value) {}\n" +
+                "    @Override\n" +
+                "    public Data process(DataBuilderContext context) { return null; }\n" +
+                "}\n";
+        String duplicate = QUOTER.replace("class Quoter", "class OtherQuoter");
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(null, QUOTE, QUOTER, abstractBuilder, noConstructor,
+                duplicate);
+        List<String> errors = errors(diagnostics);
+        Assert.assertEquals(errors.toString(), 3, errors.size());
+        Assert.assertTrue(errors.stream().anyMatch(error -> error.contains("can not be abstract")));
+        Assert.assertTrue(errors.stream().anyMatch(error -> error.contains("public no-args constructor")));
+        Assert.assertTrue(errors.stream().anyMatch(error -> error.contains("Quoter already exists")));
+    }
+
+    private static class RequestData extends Data {
+        RequestData() {
+            super("REQ");
+        }
+    }
+
+    private DiagnosticCollector<JavaFileObject> compile(String registry, String... sources) throws IOException {
+        return compile(true, registry, sources);
+    }
+
+    /**
+     * @param explicit Name the processor on the command line instead of having the compiler find it on the class path
+     */
+    private DiagnosticCollector<JavaFileObject> compile(boolean explicit, String registry, String... sources)
+            throws IOException {
+        Path sourceDir = Files.createDirectories(workDir.resolve("src"));
+        Path classesDir = Files.createDirectories(workDir.resolve("classes"));
+        List<File> sourceFiles = Lists.newArrayList();
+        for (String source : sources) {
+            Matcher className = CLASS_NAME.matcher(source);
+            Assert.assertTrue(className.find());
+            Path sourceFile = Files.createDirectories(sourceDir.resolve("test/builders"))
+                    .resolve(className.group(1) + ".java");
+            Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+            sourceFiles.add(sourceFile.toFile());
+        }
+        String classpath = Stream.of(DataBuilder.class, ImmutableSet.class, JsonTypeInfo.class,
+                javax.validation.constraints.NotNull.class, org.hibernate.validator.constraints.NotEmpty.class,
+                DataBuilderRegistryProcessor.class)
+                .map(type -> new File(type.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath())
+                .distinct()
+                .collect(Collectors.joining(File.pathSeparator));
+        List<String> options = Lists.newArrayList("-classpath", classpath,
+                "-d", classesDir.toString(),
+                "-s", classesDir.toString());
+        if (explicit) {
+            options.add("-processor");
+            options.add(DataBuilderRegistryProcessor.class.getName());
+        }
+        if (null != registry) {
+            options.add("-A" + DataBuilderRegistryProcessor.REGISTRY_OPTION + "=" + registry);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT,
+                StandardCharsets.UTF_8)) {
+            compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sourceFiles)).call();
+        }
+        return diagnostics;
+    }
+
+    private static List<String> errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        return diagnostics.getDiagnostics()
+                .stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(Locale.ROOT))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,5 +1,6 @@
 package com.flipkart.databuilderframework.annotations;
 
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
 import com.flipkart.databuilderframework.model.Data;
 
 import java.lang.annotation.ElementType;
@@ -15,4 +16,9 @@ public @interface DataBuilderClassInfo {
     Class<? extends Data>[] consumes();
     Class<? extends Data>[] accesses() default {};  //enable builder to access these data - plays no role in triggering builder flow
     Class<? extends Data>[] optionals() default {}; //enable builder to trigger on this data but unlike consumers these are not mandatory for builder to run
+    BuilderLifecycle lifecycle() default BuilderLifecycle.PROTOTYPE; //how instances of the builder are created and reused
+    long timeoutMs() default 0; //maximum time the builder is allowed to run for, 0 means no limit
+    String bulkhead() default ""; //name of the bulkhead the builder is run in, empty to use the pool of the executor
+    boolean idempotent() default false; //concurrent invocations with the same input fingerprints share one result
+    long cacheTtlMs() default 0; //time for which generated data can be reused for the same input fingerprints, 0 disables caching
 }
@@ -1,5 +1,7 @@
 package com.flipkart.databuilderframework.annotations;
 
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -16,4 +18,9 @@ public @interface DataBuilderInfo {
     public String[] optionals() default {}; //enable builder to trigger on this data but unlike consumers these are not mandatory for builder to run
     public String[] accesses() default {};//enable builder to access these data - plays no role in triggering builder flow
     public String produces();
+    public BuilderLifecycle lifecycle() default BuilderLifecycle.PROTOTYPE; //how instances of the builder are created and reused
+    public long timeoutMs() default 0; //maximum time the builder is allowed to run for, 0 means no limit
+    public String bulkhead() default ""; //name of the bulkhead the builder is run in, empty to use the pool of the executor
+    public boolean idempotent() default false; //concurrent invocations with the same input fingerprints share one result
+    public long cacheTtlMs() default 0; //time for which generated data can be reused for the same input fingerprints, 0 disables caching
 }
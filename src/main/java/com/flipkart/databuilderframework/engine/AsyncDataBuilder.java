@@ -0,0 +1,51 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A {@link DataBuilder} that generates data without blocking the calling thread. Use this for builders that spend
+ * most of their time waiting on remote calls.
+ * <br>
+ * The {@link AsyncDataFlowExecutor} chains on the returned {@link CompletionStage} and releases the pool thread
+ * immediately. All other executors call {@link #process(DataBuilderContext)}, which waits for the stage to complete,
+ * so flows can freely mix synchronous and asynchronous builders.
+ */
+public abstract class AsyncDataBuilder extends DataBuilder {
+
+    /**
+     * Start generating data using the {@link com.flipkart.databuilderframework.model.Data} present in the
+     * {@link com.flipkart.databuilderframework.model.DataSet} contained in the context. This should not block.
+     * The returned stage should be completed with null if data could not be generated or exceptionally with a
+     * {@link DataBuilderException} or {@link DataValidationException} in case of errors.
+     *
+     * @param context The context object that contains the {@link com.flipkart.databuilderframework.model.DataSet} available for this operation.
+     * @return A stage that completes with the generated {@link com.flipkart.databuilderframework.model.Data}.
+     */
+    abstract public CompletionStage<Data> processAsync(final DataBuilderContext context);
+
+    @Override
+    public Data process(DataBuilderContext context) throws DataBuilderException, DataValidationException {
+        try {
+            return processAsync(context).toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataBuilderException(DataBuilderException.ErrorCode.HANDLER_FAILURE,
+                    "Interrupted while waiting for data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataBuilderException) {
+                throw (DataBuilderException) cause;
+            }
+            if (cause instanceof DataValidationException) {
+                throw (DataValidationException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new DataBuilderException(DataBuilderException.ErrorCode.HANDLER_FAILURE, cause.getMessage(), cause);
+        }
+    }
+}
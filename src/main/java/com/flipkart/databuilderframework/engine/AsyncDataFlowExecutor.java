@@ -0,0 +1,587 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The executor for a {@link com.flipkart.databuilderframework.model.DataFlow}.
+ * Unlike {@link MultiThreadedDataFlowExecutor}, this executor does not wait for a level of the
+ * {@link com.flipkart.databuilderframework.model.ExecutionGraph} to finish before moving on to the next one.
+ * A builder is submitted to the {@link ExecutorService} as soon as all the data it consumes is available, so that the
+ * flow finishes in the time taken by it's slowest path rather than the sum of the slowest builders of every level.
+ * {@link AsyncDataBuilder} implementations are chained on and do not hold a pool thread while generating data.
+ * <br>
+ * Data generated by a builder triggers builders of higher levels right away. Once nothing is running, builders of
+ * the same or lower levels that consume non-transient data generated so far are considered if looping is enabled on
+ * the flow and the target data has not been generated. This is the same as a new pass over the execution graph in the
+ * other executors.
+ * <br>
+ * Deadlines of the run and timeouts of builders are enforced using a shared timer, so nothing is blocked while waiting
+ * for them. Builders assigned to a registered {@link Bulkhead} are run in it.
+ */
+public class AsyncDataFlowExecutor extends DataFlowExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDataFlowExecutor.class.getSimpleName());
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("dbf-async-timer-%d")
+                    .setDaemon(true)
+                    .build());
+    private final ExecutorService executorService;
+
+    public AsyncDataFlowExecutor(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public AsyncDataFlowExecutor(DataBuilderFactory dataBuilderFactory, ExecutorService executorService) {
+        super(dataBuilderFactory);
+        this.executorService = executorService;
+    }
+
+    /**
+     * Asynchronous version of {@link #run(DataFlowInstance, Data...)}.
+     * @param dataFlowInstance An instance of the {@link com.flipkart.databuilderframework.model.DataFlow} to run.
+     * @param data             The additional set of data to be considered for execution.
+     * @return A future that completes with the response once no more builders can be run for this request.
+     */
+    public CompletableFuture<DataExecutionResponse> runAsync(DataFlowInstance dataFlowInstance, Data... data) {
+        return runAsync(dataFlowInstance, new DataDelta(data));
+    }
+
+    /**
+     * Asynchronous version of {@link #run(DataFlowInstance, DataDelta)}.
+     * @param dataFlowInstance An instance of the {@link com.flipkart.databuilderframework.model.DataFlow} to run.
+     * @param dataDelta        The additional set of data to be considered for execution.
+     * @return A future that completes with the response once no more builders can be run for this request.
+     */
+    public CompletableFuture<DataExecutionResponse> runAsync(DataFlowInstance dataFlowInstance, DataDelta dataDelta) {
+        DataBuilderContext dataBuilderContext = DataBuilderContext.builder()
+                .dataSet(dataFlowInstance.getDataSet())
+                .contextData(Maps.newHashMap())
+                .build();
+        return runAsync(dataBuilderContext, dataFlowInstance, dataDelta);
+    }
+
+    /**
+     * Asynchronous version of {@link #run(DataBuilderContext, DataFlowInstance, DataDelta)}.
+     * The returned future is completed exceptionally with a {@link DataBuilderFrameworkException} or a
+     * {@link DataValidationException} in case of errors.
+     * @param dataBuilderContext An instance of the {@link com.flipkart.databuilderframework.engine.DataBuilderContext} object.
+     * @param dataFlowInstance   An instance of the {@link com.flipkart.databuilderframework.model.DataFlow} to run.
+     * @param dataDelta          The set of data to be considered for analysis.
+     * @return A future that completes with the response once no more builders can be run for this request.
+     */
+    public CompletableFuture<DataExecutionResponse> runAsync(DataBuilderContext dataBuilderContext,
+                                                             DataFlowInstance dataFlowInstance,
+                                                             DataDelta dataDelta) {
+        CompletableFuture<DataExecutionResponse> result = new CompletableFuture<>();
+        DataFlow dataFlow = dataFlowInstance.getDataFlow();
+        try {
+            DataBuilderFactory builderFactory = builderFactoryFor(dataFlow);
+            preProcessing(dataFlowInstance, dataDelta);
+            execute(dataBuilderContext, dataFlowInstance, dataDelta, dataFlow, builderFactory)
+                    .whenComplete((response, error) -> {
+                        Throwable cause = unwrap(error);
+                        try {
+                            postProcessing(dataFlowInstance, dataDelta, response,
+                                    cause instanceof DataBuilderFrameworkException ? cause : null);
+                        } catch (DataBuilderFrameworkException e) {
+                            result.completeExceptionally(e);
+                            return;
+                        }
+                        if (null != cause) {
+                            result.completeExceptionally(cause);
+                        } else {
+                            result.complete(response);
+                        }
+                    });
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataExecutionResponse run(DataBuilderContext dataBuilderContext,
+                                        DataFlowInstance dataFlowInstance,
+                                        DataDelta dataDelta,
+                                        DataFlow dataFlow,
+                                        DataBuilderFactory builderFactory) throws DataBuilderFrameworkException, DataValidationException {
+        try {
+            return execute(dataBuilderContext, dataFlowInstance, dataDelta, dataFlow, builderFactory).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                    "Error while waiting for error ", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataBuilderFrameworkException) {
+                throw (DataBuilderFrameworkException) cause;
+            }
+            if (cause instanceof DataValidationException) {
+                throw (DataValidationException) cause;
+            }
+            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                    "Error while waiting for error ", cause);
+        }
+    }
+
+    private CompletableFuture<DataExecutionResponse> execute(DataBuilderContext dataBuilderContext,
+                                                             DataFlowInstance dataFlowInstance,
+                                                             DataDelta dataDelta,
+                                                             DataFlow dataFlow,
+                                                             DataBuilderFactory builderFactory) {
+        FlowRun flowRun = new FlowRun(dataBuilderContext, dataFlowInstance, dataDelta, dataFlow, builderFactory);
+        flowRun.start();
+        return flowRun.result;
+    }
+
+    private static AsyncDataBuilder asAsync(DataBuilder builder) {
+        if (builder instanceof ProxyDataBuilder) {
+            builder = ((ProxyDataBuilder) builder).getImpl();
+        }
+        return builder instanceof AsyncDataBuilder
+                ? (AsyncDataBuilder) builder
+                : null;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && null != error.getCause()) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * State for one execution of a flow. All state changes happen while holding the monitor of this object.
+     */
+    private final class FlowRun {
+        private final DataBuilderContext dataBuilderContext;
+        private final DataFlowInstance dataFlowInstance;
+        private final DataDelta dataDelta;
+        private final DataFlow dataFlow;
+        private final DataBuilderFactory builderFactory;
+        private final ExecutionPlan executionPlan;
+        private final IndexedDataMap workingData;
+        private final DataSetAccessor dataSetAccessor;
+        private final SortedMap<String, Data> responseData = new ConcurrentSkipListMap<>();
+        private final BitSet availableData;
+        private final BitSet scheduledBuilders;
+        private final BitSet newlyGeneratedData;
+        //Targets of a flow that completes on all of them can be generated in different passes
+        private final BitSet generatedData;
+        private final CompletableFuture<DataExecutionResponse> result = new CompletableFuture<>();
+        private final Future<?>[] running;
+        private final ScheduledFuture<?>[] timers;
+        private final BitSet timedOut;
+        private final Set<String> timedOutBuilders = Sets.newTreeSet();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private ScheduledFuture<?> deadlineTimer;
+        private int inFlight = 0;
+
+        private FlowRun(DataBuilderContext dataBuilderContext,
+                        DataFlowInstance dataFlowInstance,
+                        DataDelta dataDelta,
+                        DataFlow dataFlow,
+                        DataBuilderFactory builderFactory) {
+            this.dataBuilderContext = dataBuilderContext;
+            this.dataFlowInstance = dataFlowInstance;
+            this.dataDelta = dataDelta;
+            this.dataFlow = dataFlow;
+            this.builderFactory = builderFactory;
+            this.executionPlan = ExecutionPlan.of(dataFlow);
+            this.workingData = IndexedDataMap.copyOf(executionPlan, dataFlowInstance.getDataSet().getAvailableData());
+            this.dataSetAccessor = DataSet.accessor(new DataSet(workingData)); //Create own copy to work with
+            this.availableData = new BitSet(executionPlan.dataCount());
+            this.scheduledBuilders = new BitSet(executionPlan.builderCount());
+            this.newlyGeneratedData = new BitSet(executionPlan.dataCount());
+            this.generatedData = new BitSet(executionPlan.dataCount());
+            this.running = new Future<?>[executionPlan.builderCount()];
+            this.timers = new ScheduledFuture<?>[executionPlan.builderCount()];
+            this.timedOut = new BitSet(executionPlan.builderCount());
+        }
+
+        private synchronized void start() {
+            try {
+                if (dataBuilderContext.hasDeadline()) {
+                    deadlineTimer = TIMER.schedule(this::onDeadline,
+                            dataBuilderContext.getRemainingTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                }
+                dataSetAccessor.merge(dataDelta);
+                availableData.or(workingData.dataIds());
+                if (dataFlow.isDemandDriven()) {
+                    scheduledBuilders.or(executionPlan.unneededBuilders(availableData));
+                }
+                for (Data data : dataDelta.getDelta()) {
+                    int dataId = executionPlan.dataId(data.getData());
+                    if (dataId >= 0) {
+                        for (int builderId : executionPlan.consumers(dataId)) {
+                            schedule(builderId);
+                        }
+                    }
+                }
+                completeIfDone();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        private void schedule(int builderId) throws DataBuilderFrameworkException {
+            if (result.isDone()
+                    || scheduledBuilders.get(builderId)
+                    || !executionPlan.isSatisfied(builderId, availableData)) {
+                return;
+            }
+            if (dataBuilderContext.isStopRequested()) {
+                //The caller does not need the outcome any more
+                cancelRunning();
+                finish();
+                return;
+            }
+            DataBuilderMeta builderMeta = executionPlan.builder(builderId);
+            if (dataBuilderContext.isDeadlineExceeded()) {
+                timedOutBuilders.add(builderMeta.getName());
+                onDeadline();
+                return;
+            }
+            DataBuilder builder = builderFactory.create(builderMeta);
+            //Builders run concurrently with merges into the working set, so they get a snapshot of what they can access
+            DataSet accessibleDataSet = new DataSet(workingData.copy().scopedTo(builderId));
+            scheduledBuilders.set(builderId);
+            inFlight++;
+            Runnable task = () -> runBuilder(builderId, builderMeta, builder, accessibleDataSet);
+            Bulkhead bulkhead = null == builderMeta.getBulkhead() ? null : bulkheads.get(builderMeta.getBulkhead());
+            if (null == bulkhead) {
+                running[builderId] = executorService.submit(task);
+            } else {
+                FutureTask<?> futureTask = new FutureTask<>(task, null);
+                running[builderId] = futureTask;
+                try {
+                    bulkhead.executor(executorService).execute(futureTask);
+                } catch (RejectedExecutionException e) {
+                    inFlight--;
+                    running[builderId] = null;
+                    builderFactory.release(builder);
+                    throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_REJECTED,
+                            "Builder rejected: " + builderMeta.getName() + ": " + e.getMessage(), e);
+                }
+            }
+            if (builderMeta.getTimeoutMs() > 0) {
+                timers[builderId] = TIMER.schedule(() -> onTimeout(builderId),
+                        builderMeta.getTimeoutMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void runBuilder(int builderId, DataBuilderMeta builderMeta, DataBuilder builder, DataSet accessibleDataSet) {
+            Data cachedResponse = builderInvoker.cached(builderMeta, accessibleDataSet);
+            if (null != cachedResponse) {
+                builderFactory.release(builder);
+                for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                    try {
+                        listener.afterCacheHit(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, cachedResponse);
+                    } catch (Throwable t) {
+                        logger.error("Error running post-execution listener: ", t);
+                    }
+                }
+                onSuccess(builderId, builderMeta, cachedResponse);
+                return;
+            }
+            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                try {
+                    listener.beforeExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData);
+                } catch (Throwable t) {
+                    logger.error("Error running pre-execution execution listener: ", t);
+                }
+            }
+            DataBuilderContext context = dataBuilderContext.immutableCopy(accessibleDataSet, cancelled);
+            AsyncDataBuilder asyncBuilder = asAsync(builder);
+            if (null != asyncBuilder) {
+                //Chain on completion, the pool thread is released right away
+                try {
+                    CompletionStage<Data> stage = builderInvoker.invokeAsync(builderMeta, accessibleDataSet,
+                                                            () -> asyncBuilder.processAsync(context));
+                    if (stage instanceof Future) {
+                        track(builderId, (Future<?>) stage);
+                    }
+                    stage.whenComplete((response, error) -> {
+                        builderFactory.release(builder);
+                        if (null != error) {
+                            onError(builderId, builderMeta, unwrap(error));
+                        } else {
+                            onProcessed(builderId, builderMeta, response);
+                        }
+                    });
+                } catch (Throwable t) {
+                    builderFactory.release(builder);
+                    onError(builderId, builderMeta, t);
+                }
+                return;
+            }
+            Data response;
+            try {
+                response = builderInvoker.invoke(builderMeta, accessibleDataSet, () -> builder.process(context));
+            } catch (Throwable t) {
+                onError(builderId, builderMeta, t);
+                return;
+            } finally {
+                builderFactory.release(builder);
+            }
+            onProcessed(builderId, builderMeta, response);
+        }
+
+        private void onProcessed(int builderId, DataBuilderMeta builderMeta, Data response) {
+            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                try {
+                    listener.afterExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, response);
+                } catch (Throwable t) {
+                    logger.error("Error running post-execution listener: ", t);
+                }
+            }
+            onSuccess(builderId, builderMeta, response);
+        }
+
+        private synchronized void onSuccess(int builderId, DataBuilderMeta builderMeta, Data response) {
+            if (!finished(builderId) || result.isDone()) {
+                return;
+            }
+            try {
+                if (null != response) {
+                    Preconditions.checkArgument(response.getData().equalsIgnoreCase(builderMeta.getProduces()),
+                            String.format("Builder is supposed to produce %s but produces %s",
+                                    builderMeta.getProduces(), response.getData()));
+                    response.setGeneratedBy(builderMeta.getName());
+                    dataSetAccessor.merge(response);
+                    responseData.put(response.getData(), response);
+                    dataBuilderContext.emit(response);
+                    int dataId = executionPlan.dataId(response.getData());
+                    if (dataId >= 0) {
+                        availableData.set(dataId);
+                        if (executionPlan.isTracked(dataId)) {
+                            newlyGeneratedData.set(dataId);
+                            generatedData.set(dataId);
+                        }
+                        if (executionPlan.endsExecution(dataId)) {
+                            //One of the targets is enough for this flow, the rest of the builders are of no use
+                            cancelRunning();
+                            finish();
+                            return;
+                        }
+                        final int level = executionPlan.level(builderId);
+                        for (int consumerId : executionPlan.consumers(dataId)) {
+                            if (executionPlan.level(consumerId) > level) {
+                                schedule(consumerId);
+                            }
+                        }
+                    }
+                }
+                completeIfDone();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        private void onError(int builderId, DataBuilderMeta builderMeta, Throwable error) {
+            if (error instanceof DataValidationException) {
+                logger.error("Validation error in data produced by builder" + builderMeta.getName());
+            } else {
+                logger.error("Error running builder: " + builderMeta.getName());
+            }
+            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                try {
+                    listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, error);
+
+                } catch (Throwable t) {
+                    logger.error("Error running post-execution listener: ", t);
+                }
+            }
+            synchronized (this) {
+                if (!finished(builderId)) {
+                    return;
+                }
+                if (error instanceof DataBuilderException) {
+                    DataBuilderException e = (DataBuilderException) error;
+                    fail(new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                            "Error running builder: " + builderMeta.getName(), e.getDetails(), e, response()));
+                } else if (error instanceof DataValidationException) {
+                    DataValidationException e = (DataValidationException) error;
+                    fail(new DataValidationException(DataValidationException.ErrorCode.DATA_VALIDATION_EXCEPTION,
+                            e.getMessage(), response(), e.getDetails(), e));
+                } else {
+                    Map<String, Object> objectMap = new HashMap<String, Object>();
+                    objectMap.put("MESSAGE", error.getMessage());
+                    fail(new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                            "Error running builder: " + builderMeta.getName()
+                                    + ": " + error.getMessage(), objectMap, error, response()));
+                }
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (!(error instanceof DataBuilderFrameworkException) && !(error instanceof DataValidationException)) {
+                error = new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                        "Error running flow: " + error.getMessage(), error);
+            }
+            if (result.isDone()) {
+                return;
+            }
+            //Cancel before completing, so that listeners have been notified by the time the caller sees the error
+            cancelRunning();
+            stopTimers();
+            result.completeExceptionally(error);
+        }
+
+        /**
+         * Mark a builder as no longer running.
+         * @return false if the builder had timed out already and it's outcome is to be ignored
+         */
+        private boolean finished(int builderId) {
+            if (timedOut.get(builderId)) {
+                return false;
+            }
+            inFlight--;
+            running[builderId] = null;
+            if (null != timers[builderId]) {
+                timers[builderId].cancel(false);
+                timers[builderId] = null;
+            }
+            return true;
+        }
+
+        /**
+         * A builder has been running for longer than it's timeout. If no builder needs it's data, the run goes on
+         * without it. Otherwise the run is stopped and whatever has been generated so far is returned.
+         */
+        private synchronized void onTimeout(int builderId) {
+            timers[builderId] = null;
+            Future<?> future = running[builderId];
+            if (result.isDone() || null == future) {
+                return;
+            }
+            DataBuilderMeta builderMeta = executionPlan.builder(builderId);
+            logger.warn("Builder timed out: {}", builderMeta.getName());
+            running[builderId] = null;
+            timedOut.set(builderId);
+            inFlight--;
+            timedOutBuilders.add(builderMeta.getName());
+            if (future.cancel(true)) {
+                notifyCancelled(builderMeta);
+            }
+            if (!executionPlan.isOptionalOnly(builderId)) {
+                onDeadline();
+                return;
+            }
+            try {
+                completeIfDone();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        /**
+         * Out of time, cancel whatever is still running and return the data generated so far.
+         */
+        private synchronized void onDeadline() {
+            if (result.isDone()) {
+                return;
+            }
+            for (int builderId = 0; builderId < running.length; builderId++) {
+                if (null != running[builderId]) {
+                    timedOutBuilders.add(executionPlan.builder(builderId).getName());
+                }
+            }
+            cancelRunning();
+            finish();
+        }
+
+        /**
+         * Keep the future of an {@link AsyncDataBuilder} instead of the pool task, so that it can be cancelled.
+         */
+        private synchronized void track(int builderId, Future<?> future) {
+            if (result.isDone()) {
+                future.cancel(true);
+                return;
+            }
+            if (null != running[builderId]) {
+                running[builderId] = future;
+            }
+        }
+
+        /**
+         * The run has failed, builders that are still running or waiting for a thread are of no use any more.
+         */
+        private void cancelRunning() {
+            cancelled.set(true);
+            for (int builderId = 0; builderId < running.length; builderId++) {
+                Future<?> future = running[builderId];
+                if (null == future || !future.cancel(true)) {
+                    continue;
+                }
+                running[builderId] = null;
+                notifyCancelled(executionPlan.builder(builderId));
+            }
+        }
+
+        private void notifyCancelled(DataBuilderMeta builderMeta) {
+            logger.debug("Cancelled builder: {}", builderMeta.getName());
+            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                try {
+                    listener.afterCancel(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData);
+                } catch (Throwable t) {
+                    logger.error("Error running cancellation listener: ", t);
+                }
+            }
+        }
+
+        private void stopTimers() {
+            if (null != deadlineTimer) {
+                deadlineTimer.cancel(false);
+            }
+            for (int builderId = 0; builderId < timers.length; builderId++) {
+                if (null != timers[builderId]) {
+                    timers[builderId].cancel(false);
+                    timers[builderId] = null;
+                }
+            }
+        }
+
+        private void completeIfDone() throws DataBuilderFrameworkException {
+            while (0 == inFlight && !result.isDone()) {
+                if (newlyGeneratedData.isEmpty()
+                        || executionPlan.containsTarget(generatedData)
+                        || !dataFlow.isLoopingEnabled()) {
+                    finish();
+                    return;
+                }
+                //Loop: re-evaluate builders that consume data generated since the last time nothing was running
+                BitSet generated = (BitSet) newlyGeneratedData.clone();
+                newlyGeneratedData.clear();
+                for (int dataId = generated.nextSetBit(0); dataId >= 0; dataId = generated.nextSetBit(dataId + 1)) {
+                    for (int builderId : executionPlan.consumers(dataId)) {
+                        schedule(builderId);
+                    }
+                }
+            }
+        }
+
+        private void finish() {
+            stopTimers();
+            dataFlowInstance.setDataSet(dataSetAccessor.copy(dataFlow.getTransients()));
+            result.complete(response());
+        }
+
+        private DataExecutionResponse response() {
+            return new DataExecutionResponse(Maps.newTreeMap(responseData), Sets.newTreeSet(timedOutBuilders));
+        }
+    }
+}
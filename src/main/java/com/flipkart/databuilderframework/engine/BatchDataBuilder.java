@@ -0,0 +1,34 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * A {@link DataBuilder} that generates data for many flow instances in one call. Use this for builders that can
+ * fetch data for all items of a bulk request with a single multi-get to the downstream system.
+ * <br>
+ * {@link DataFlowExecutor#runBatch(com.flipkart.databuilderframework.model.DataFlow, List, List)} calls
+ * {@link #processBatch(List)} once with the contexts of all instances in the batch that are ready for this builder.
+ * All other paths call {@link #process(DataBuilderContext)}, which makes a batch of one.
+ */
+public abstract class BatchDataBuilder extends DataBuilder {
+
+    /**
+     * Generate data for a batch of flow instances.
+     *
+     * @param contexts Contexts for the instances, each scoped the same way as for {@link #process(DataBuilderContext)}.
+     * @return The generated {@link com.flipkart.databuilderframework.model.Data} in the same order as the contexts.
+     *         Entries can be null for instances for which data could not be generated.
+     * @throws DataBuilderException in case any downstream system or itself errors out. This fails every instance
+     * in the batch.
+     */
+    abstract public List<Data> processBatch(final List<DataBuilderContext> contexts) throws DataBuilderException, DataValidationException;
+
+    @Override
+    public Data process(DataBuilderContext context) throws DataBuilderException, DataValidationException {
+        List<Data> response = processBatch(ImmutableList.of(context));
+        return null == response || response.isEmpty() ? null : response.get(0);
+    }
+}
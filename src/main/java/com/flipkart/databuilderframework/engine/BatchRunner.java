@@ -0,0 +1,339 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a batch of instances of the same flow in one walk over the {@link ExecutionPlan}.
+ * Each pass goes over the builders triggered in any of the instances in plan order. A builder is created once per
+ * pass and invoked for all instances that are ready for it and have no data in the {@link BuilderResultCache}, in a
+ * single call if it is a {@link BatchDataBuilder}.
+ * Apart from that, every instance goes through the same steps as in {@link SimpleDataFlowExecutor}.
+ * Builders run on the calling thread.
+ */
+final class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class.getSimpleName());
+
+    /**
+     * State of one instance of the batch.
+     */
+    private static final class Item {
+        private final int index;
+        private final DataBuilderContext dataBuilderContext;
+        private final DataFlowInstance dataFlowInstance;
+        private final DataDelta dataDelta;
+        private final IndexedDataMap workingData;
+        private final DataSetAccessor dataSetAccessor;
+        private final Map<String, Data> responseData = Maps.newTreeMap();
+        private final BitSet availableData;
+        private final BitSet activeDataSet;
+        private final BitSet newlyGeneratedData;
+        //Targets of a flow that completes on all of them can be generated in different passes
+        private final BitSet generatedData;
+        private final BitSet processedBuilders;
+        private BitSet triggeredBuilders;
+
+        private Item(int index, ExecutionPlan executionPlan, DataFlowInstance dataFlowInstance, DataDelta dataDelta) {
+            this.index = index;
+            this.dataBuilderContext = DataBuilderContext.builder()
+                    .dataSet(dataFlowInstance.getDataSet())
+                    .contextData(Maps.newHashMap())
+                    .build();
+            this.dataFlowInstance = dataFlowInstance;
+            this.dataDelta = dataDelta;
+            this.workingData = IndexedDataMap.copyOf(executionPlan, dataFlowInstance.getDataSet().getAvailableData());
+            this.dataSetAccessor = DataSet.accessor(new DataSet(workingData));
+            dataSetAccessor.merge(dataDelta);
+            this.availableData = workingData.dataIds();
+            this.activeDataSet = executionPlan.dataSet(dataDelta.getDelta()
+                    .stream()
+                    .map(Data::getData)
+                    .collect(Collectors.toList()));
+            this.newlyGeneratedData = new BitSet(executionPlan.dataCount());
+            this.generatedData = new BitSet(executionPlan.dataCount());
+            this.processedBuilders = new BitSet(executionPlan.builderCount());
+        }
+    }
+
+    private final DataFlowExecutor executor;
+    private final DataFlow dataFlow;
+    private final ExecutionPlan executionPlan;
+    private final DataBuilderFactory builderFactory;
+    private final List<DataExecutionResponse> responses;
+    private final Map<Integer, Exception> failures = Maps.newTreeMap();
+
+    BatchRunner(DataFlowExecutor executor, DataFlow dataFlow, DataBuilderFactory builderFactory, int size) {
+        this.executor = executor;
+        this.dataFlow = dataFlow;
+        this.executionPlan = ExecutionPlan.of(dataFlow);
+        this.builderFactory = builderFactory;
+        this.responses = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            responses.add(null);
+        }
+    }
+
+    BatchExecutionResponse run(List<DataFlowInstance> dataFlowInstances, List<DataDelta> dataDeltas) {
+        List<Item> items = Lists.newArrayListWithCapacity(dataFlowInstances.size());
+        for (int index = 0; index < dataFlowInstances.size(); index++) {
+            DataFlowInstance dataFlowInstance = dataFlowInstances.get(index);
+            DataDelta dataDelta = dataDeltas.get(index);
+            try {
+                executor.preProcessing(dataFlowInstance, dataDelta);
+                Item item = new Item(index, executionPlan, dataFlowInstance, dataDelta);
+                if (dataFlow.isDemandDriven()) {
+                    item.processedBuilders.or(executionPlan.unneededBuilders(item.availableData));
+                }
+                items.add(item);
+            } catch (DataBuilderFrameworkException e) {
+                failures.put(index, e);
+                postProcessing(dataFlowInstance, dataDelta, null, e);
+            }
+        }
+        while (!items.isEmpty()) {
+            BitSet triggeredBuilders = new BitSet(executionPlan.builderCount());
+            for (Item item : items) {
+                item.triggeredBuilders = executionPlan.triggeredBy(item.activeDataSet);
+                item.triggeredBuilders.andNot(item.processedBuilders);
+                triggeredBuilders.or(item.triggeredBuilders);
+            }
+            for (int builderId = triggeredBuilders.nextSetBit(0);
+                 builderId >= 0;
+                 builderId = triggeredBuilders.nextSetBit(builderId + 1)) {
+                List<Item> ready = Lists.newArrayList();
+                for (Item item : items) {
+                    if (item.triggeredBuilders.get(builderId)
+                            && !item.processedBuilders.get(builderId)
+                            && executionPlan.isSatisfied(builderId, item.availableData)) {
+                        ready.add(item);
+                    }
+                }
+                if (ready.isEmpty()) {
+                    continue;
+                }
+                for (Item item : execute(builderId, ready)) {
+                    items.remove(item);
+                }
+                //Consumers of data generated in this pass are reached in the same pass, as in the simple executor
+                for (Item item : ready) {
+                    triggeredBuilders.or(item.triggeredBuilders);
+                }
+            }
+            List<Item> finished = Lists.newArrayList();
+            for (Item item : items) {
+                if (executionPlan.containsTarget(item.generatedData)
+                        || item.newlyGeneratedData.isEmpty()
+                        || !dataFlow.isLoopingEnabled()) {
+                    finished.add(item);
+                    continue;
+                }
+                item.activeDataSet.clear();
+                item.activeDataSet.or(item.newlyGeneratedData);
+                item.newlyGeneratedData.clear();
+            }
+            for (Item item : finished) {
+                items.remove(item);
+                item.dataFlowInstance.setDataSet(item.dataSetAccessor.copy(dataFlow.getTransients()));
+                DataExecutionResponse response = new DataExecutionResponse(item.responseData);
+                try {
+                    executor.postProcessing(item.dataFlowInstance, item.dataDelta, response, null);
+                    responses.set(item.index, response);
+                } catch (DataBuilderFrameworkException e) {
+                    failures.put(item.index, e);
+                }
+            }
+        }
+        return new BatchExecutionResponse(responses, failures);
+    }
+
+    /**
+     * Run a builder for all instances that are ready for it.
+     * @return Instances that failed
+     */
+    private List<Item> execute(int builderId, List<Item> candidates) {
+        DataBuilderMeta builderMeta = executionPlan.builder(builderId);
+        List<Item> failed = Lists.newArrayList();
+        List<Item> ready = Lists.newArrayListWithCapacity(candidates.size());
+        List<DataSet> accessibleDataSets = Lists.newArrayListWithCapacity(candidates.size());
+        for (Item item : candidates) {
+            DataSet accessibleDataSet = new DataSet(item.workingData.scopedTo(builderId));
+            Data cachedResponse = executor.builderInvoker.cached(builderMeta, accessibleDataSet);
+            if (null == cachedResponse) {
+                ready.add(item);
+                accessibleDataSets.add(accessibleDataSet);
+            } else if (!accept(builderId, builderMeta, item, cachedResponse, true)) {
+                failed.add(item);
+            }
+        }
+        if (ready.isEmpty()) {
+            return failed;
+        }
+        final int cacheFailures = failed.size();
+        DataBuilder builder = null;
+        try {
+            builder = builderFactory.create(builderMeta);
+            List<DataBuilderContext> contexts = Lists.newArrayListWithCapacity(ready.size());
+            for (int i = 0; i < ready.size(); i++) {
+                Item item = ready.get(i);
+                for (DataBuilderExecutionListener listener : executor.dataBuilderExecutionListener) {
+                    try {
+                        listener.beforeExecute(item.dataBuilderContext, item.dataFlowInstance, builderMeta,
+                                               item.dataDelta, item.responseData);
+                    } catch (Throwable t) {
+                        logger.error("Error running pre-execution execution listener: ", t);
+                    }
+                }
+                contexts.add(item.dataBuilderContext.immutableCopy(accessibleDataSets.get(i)));
+            }
+            BatchDataBuilder batchBuilder = asBatch(builder);
+            if (null != batchBuilder) {
+                List<Data> batchResponse = batchBuilder.processBatch(contexts);
+                Preconditions.checkArgument(null != batchResponse && batchResponse.size() == ready.size(),
+                        String.format("Builder %s returned %d responses for a batch of %d",
+                                builderMeta.getName(), null == batchResponse ? 0 : batchResponse.size(), ready.size()));
+                for (int i = 0; i < ready.size(); i++) {
+                    executor.builderInvoker.store(builderMeta, accessibleDataSets.get(i), batchResponse.get(i));
+                    if (!accept(builderId, builderMeta, ready.get(i), batchResponse.get(i), false)) {
+                        failed.add(ready.get(i));
+                    }
+                }
+            } else {
+                for (int i = 0; i < ready.size(); i++) {
+                    Item item = ready.get(i);
+                    final DataBuilder itemBuilder = builder;
+                    final DataBuilderContext context = contexts.get(i);
+                    Data response;
+                    try {
+                        response = executor.builderInvoker.invoke(builderMeta, accessibleDataSets.get(i),
+                                                                  () -> itemBuilder.process(context));
+                    } catch (Throwable t) {
+                        fail(builderMeta, item, t);
+                        failed.add(item);
+                        continue;
+                    }
+                    if (!accept(builderId, builderMeta, item, response, false)) {
+                        failed.add(item);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            failed.subList(cacheFailures, failed.size()).clear();
+            for (Item item : ready) {
+                fail(builderMeta, item, t);
+                failed.add(item);
+            }
+        } finally {
+            if (null != builder) {
+                builderFactory.release(builder);
+            }
+        }
+        return failed;
+    }
+
+    private static BatchDataBuilder asBatch(DataBuilder builder) {
+        if (builder instanceof ProxyDataBuilder) {
+            builder = ((ProxyDataBuilder) builder).getImpl();
+        }
+        return builder instanceof BatchDataBuilder
+                ? (BatchDataBuilder) builder
+                : null;
+    }
+
+    /**
+     * Merge the response of a builder into an instance.
+     * @return false if the response was not valid and the instance failed
+     */
+    private boolean accept(int builderId, DataBuilderMeta builderMeta, Item item, Data response, boolean cached) {
+        try {
+            if (null != response) {
+                Preconditions.checkArgument(response.getData().equalsIgnoreCase(builderMeta.getProduces()),
+                        String.format("Builder is supposed to produce %s but produces %s",
+                                builderMeta.getProduces(), response.getData()));
+                item.dataSetAccessor.merge(response);
+                item.responseData.put(response.getData(), response);
+                response.setGeneratedBy(builderMeta.getName());
+                int dataId = executionPlan.dataId(response.getData());
+                if (dataId >= 0) {
+                    item.availableData.set(dataId);
+                    executionPlan.addConsumers(dataId, item.triggeredBuilders);
+                    if (executionPlan.isTracked(dataId)) {
+                        item.newlyGeneratedData.set(dataId);
+                        item.generatedData.set(dataId);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            fail(builderMeta, item, t);
+            return false;
+        }
+        item.processedBuilders.set(builderId);
+        for (DataBuilderExecutionListener listener : executor.dataBuilderExecutionListener) {
+            try {
+                if (cached) {
+                    listener.afterCacheHit(item.dataBuilderContext, item.dataFlowInstance, builderMeta,
+                                           item.dataDelta, item.responseData, response);
+                } else {
+                    listener.afterExecute(item.dataBuilderContext, item.dataFlowInstance, builderMeta,
+                                          item.dataDelta, item.responseData, response);
+                }
+            } catch (Throwable t) {
+                logger.error("Error running post-execution listener: ", t);
+            }
+        }
+        return true;
+    }
+
+    private void fail(DataBuilderMeta builderMeta, Item item, Throwable t) {
+        logger.error("Error running builder: " + builderMeta.getName());
+        for (DataBuilderExecutionListener listener : executor.dataBuilderExecutionListener) {
+            try {
+                listener.afterException(item.dataBuilderContext, item.dataFlowInstance, builderMeta,
+                                        item.dataDelta, item.responseData, t);
+            } catch (Throwable error) {
+                logger.error("Error running post-execution listener: ", error);
+            }
+        }
+        DataExecutionResponse partialResponse = new DataExecutionResponse(item.responseData);
+        Exception exception;
+        if (t instanceof DataBuilderException) {
+            exception = new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                    "Error running builder: " + builderMeta.getName(), ((DataBuilderException) t).getDetails(), t, partialResponse);
+        } else if (t instanceof DataValidationException) {
+            exception = new DataValidationException(DataValidationException.ErrorCode.DATA_VALIDATION_EXCEPTION,
+                    t.getMessage(), partialResponse, ((DataValidationException) t).getDetails(), t);
+        } else {
+            Map<String, Object> objectMap = new HashMap<String, Object>();
+            objectMap.put("MESSAGE", t.getMessage());
+            exception = new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                    "Error running builder: " + builderMeta.getName() + ": " + t.getMessage(), objectMap, t, partialResponse);
+        }
+        failures.put(item.index, exception);
+        postProcessing(item.dataFlowInstance, item.dataDelta, null,
+                       exception instanceof DataBuilderFrameworkException ? exception : null);
+    }
+
+    /**
+     * Post processing for instances that have already failed. Errors from listeners are only logged, the instance
+     * keeps the original error.
+     */
+    private void postProcessing(DataFlowInstance dataFlowInstance,
+                                DataDelta dataDelta,
+                                DataExecutionResponse response,
+                                Throwable frameworkException) {
+        try {
+            executor.postProcessing(dataFlowInstance, dataDelta, response, frameworkException);
+        } catch (DataBuilderFrameworkException e) {
+            logger.error("Error running post-processing listener: ", e);
+        }
+    }
+}
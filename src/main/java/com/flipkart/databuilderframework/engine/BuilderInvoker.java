@@ -0,0 +1,96 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.flipkart.databuilderframework.model.DataSet;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Invokes builders for the executors, going through the {@link BuilderResultCache} and {@link SingleFlight} of the
+ * executor. Executors look for cached data using {@link #cached(DataBuilderMeta, DataSet)} before they notify
+ * listeners about an execution, and run the builder using one of the invoke methods otherwise.
+ */
+final class BuilderInvoker {
+    private final SingleFlight singleFlight;
+    private volatile BuilderResultCache resultCache;
+
+    BuilderInvoker(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    void setResultCache(BuilderResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    BuilderResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Get data cached for invoking a builder with the given data.
+     * @return The data or null if the builder has to be run
+     */
+    Data cached(DataBuilderMeta builderMeta, DataSet accessibleDataSet) {
+        final BuilderResultCache cache = resultCache;
+        if (null == cache || builderMeta.getCacheTtlMs() <= 0) {
+            return null;
+        }
+        InvocationKey key = InvocationKey.of(builderMeta, accessibleDataSet);
+        return null == key ? null : cache.get(key);
+    }
+
+    /**
+     * Run a builder, sharing the invocation with concurrent ones if it is idempotent, and cache the generated data.
+     */
+    Data invoke(DataBuilderMeta builderMeta,
+                DataSet accessibleDataSet,
+                SingleFlight.Invocation invocation) throws DataBuilderException, DataValidationException {
+        Data response = singleFlight.execute(builderMeta, accessibleDataSet, invocation);
+        store(builderMeta, accessibleDataSet, response);
+        return response;
+    }
+
+    /**
+     * Run a builder without sharing the invocation and cache the generated data.
+     */
+    Data invokeAlone(DataBuilderMeta builderMeta,
+                     DataSet accessibleDataSet,
+                     SingleFlight.Invocation invocation) throws DataBuilderException, DataValidationException {
+        Data response = invocation.process();
+        store(builderMeta, accessibleDataSet, response);
+        return response;
+    }
+
+    /**
+     * Same as {@link #invoke(DataBuilderMeta, DataSet, SingleFlight.Invocation)} for asynchronous builders.
+     * The returned stage is the one that generates the data, so that it can be cancelled.
+     */
+    CompletionStage<Data> invokeAsync(DataBuilderMeta builderMeta,
+                                      DataSet accessibleDataSet,
+                                      Supplier<CompletionStage<Data>> invocation) {
+        CompletionStage<Data> stage = singleFlight.executeAsync(builderMeta, accessibleDataSet, invocation);
+        stage.whenComplete((response, error) -> {
+            if (null == error) {
+                store(builderMeta, accessibleDataSet, response);
+            }
+        });
+        return stage;
+    }
+
+    /**
+     * Cache data generated by a builder, for executors that run the builder on their own.
+     */
+    void store(DataBuilderMeta builderMeta, DataSet accessibleDataSet, Data response) {
+        final BuilderResultCache cache = resultCache;
+        if (null == cache || null == response || builderMeta.getCacheTtlMs() <= 0) {
+            return;
+        }
+        InvocationKey key = InvocationKey.of(builderMeta, accessibleDataSet);
+        if (null != key) {
+            cache.put(key, response, builderMeta.getCacheTtlMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
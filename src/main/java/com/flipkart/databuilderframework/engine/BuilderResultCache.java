@@ -0,0 +1,29 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for data generated by builders, consulted by the executors before a builder is run.
+ * Only builders with a cache TTL, set using {@link com.flipkart.databuilderframework.annotations.DataBuilderInfo#cacheTtlMs()}
+ * or {@link com.flipkart.databuilderframework.annotations.DataBuilderClassInfo#cacheTtlMs()}, are cached. Data is
+ * cached by {@link InvocationKey}, so builders that can access data without a {@link Data#fingerprint()} are never
+ * cached. Cached data is shared between flows and must not be modified by them.
+ * <br>
+ * Set the cache on the executor using {@link DataFlowExecutor#setBuilderResultCache(BuilderResultCache)}.
+ * Implementations must be thread safe. {@link LruBuilderResultCache} is a bounded in-heap implementation.
+ */
+public interface BuilderResultCache {
+    /**
+     * Get data cached for an invocation.
+     * @return The data or null if it is not in the cache or has expired
+     */
+    Data get(InvocationKey key);
+
+    /**
+     * Cache data generated by an invocation.
+     * @param ttl Time for which the data can be used
+     */
+    void put(InvocationKey key, Data data, long ttl, TimeUnit unit);
+}
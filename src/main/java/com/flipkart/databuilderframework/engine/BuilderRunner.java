@@ -0,0 +1,271 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a builder on a pool thread for the {@link MultiThreadedDataFlowExecutor} and
+ * {@link OptimizedMultiThreadedDataFlowExecutor}. Errors are returned in the {@link DataContainer} so that they can be
+ * handled on the thread running the flow.
+ * Builders that are no longer needed are cancelled by {@link RunningBuilders}, which also starts hedges using
+ * {@link #hedge()}.
+ * <br>
+ * Attempts of a hedged builder are muted: they do not notify listeners about their outcome, and
+ * {@link RunningBuilders} reports the outcome of the attempt that wins using {@link #notifyOutcome(DataContainer)}.
+ * Listeners so see one execution per builder whether or not it was hedged.
+ */
+final class BuilderRunner implements Callable<DataContainer> {
+    private static final Logger logger = LoggerFactory.getLogger(BuilderRunner.class.getSimpleName());
+
+    private List<DataBuilderExecutionListener> dataBuilderExecutionListener;
+    private DataFlowInstance dataFlowInstance;
+    private DataBuilderMeta builderMeta;
+    private DataDelta dataDelta;
+    private Map<String,Data> responseData;
+    private DataBuilder builder;
+    private DataBuilderFactory builderFactory;
+    private DataBuilderContext dataBuilderContext;
+    private DataSet accessibleDataSet;
+    private AtomicBoolean cancelled;
+    private BuilderInvoker builderInvoker;
+    private boolean coalesced;
+    private final AtomicBoolean outcomeReported;
+    private volatile boolean muted;
+    private boolean reporting;
+    private Throwable failure;
+
+    BuilderRunner(List<DataBuilderExecutionListener> dataBuilderExecutionListener,
+                  DataFlowInstance dataFlowInstance,
+                  DataBuilderMeta builderMeta,
+                  DataDelta dataDelta,
+                  Map<String, Data> responseData,
+                  DataBuilder builder,
+                  DataBuilderFactory builderFactory,
+                  DataBuilderContext dataBuilderContext,
+                  DataSet accessibleDataSet,
+                  AtomicBoolean cancelled,
+                  BuilderInvoker builderInvoker,
+                  boolean coalesced) {
+        this(dataBuilderExecutionListener, dataFlowInstance, builderMeta, dataDelta, responseData, builder,
+                builderFactory, dataBuilderContext, accessibleDataSet, cancelled, builderInvoker, coalesced,
+                new AtomicBoolean(), false);
+    }
+
+    private BuilderRunner(List<DataBuilderExecutionListener> dataBuilderExecutionListener,
+                          DataFlowInstance dataFlowInstance,
+                          DataBuilderMeta builderMeta,
+                          DataDelta dataDelta,
+                          Map<String, Data> responseData,
+                          DataBuilder builder,
+                          DataBuilderFactory builderFactory,
+                          DataBuilderContext dataBuilderContext,
+                          DataSet accessibleDataSet,
+                          AtomicBoolean cancelled,
+                          BuilderInvoker builderInvoker,
+                          boolean coalesced,
+                          AtomicBoolean outcomeReported,
+                          boolean muted) {
+        this.dataBuilderExecutionListener = dataBuilderExecutionListener;
+        this.dataFlowInstance = dataFlowInstance;
+        this.builderMeta = builderMeta;
+        this.dataDelta = dataDelta;
+        this.responseData = responseData;
+        this.builder = builder;
+        this.builderFactory = builderFactory;
+        this.dataBuilderContext = dataBuilderContext;
+        this.accessibleDataSet = accessibleDataSet;
+        this.cancelled = cancelled;
+        this.builderInvoker = builderInvoker;
+        this.coalesced = coalesced;
+        this.outcomeReported = outcomeReported;
+        this.muted = muted;
+    }
+
+    @Override
+    public DataContainer call() throws Exception {
+        Data cachedResponse = builderInvoker.cached(builderMeta, accessibleDataSet);
+        if (null != cachedResponse) {
+            builderFactory.release(builder);
+            if (claimOutcome()) {
+                notifyCacheHit(cachedResponse);
+            }
+            cachedResponse.setGeneratedBy(builderMeta.getName());
+            DataContainer dataContainer = new DataContainer(builderMeta, cachedResponse);
+            dataContainer.setCached(true);
+            return dataContainer;
+        }
+        if (!muted) {
+            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                try {
+                    listener.beforeExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData);
+                } catch (Throwable t) {
+                    logger.error("Error running pre-execution execution listener: ", t);
+                }
+            }
+        }
+        final long startTime = System.nanoTime();
+        try {
+            DataBuilderContext context = dataBuilderContext.immutableCopy(accessibleDataSet, cancelled);
+            Data response = coalesced
+                    ? builderInvoker.invoke(builderMeta, accessibleDataSet, () -> builder.process(context))
+                    : builderInvoker.invokeAlone(builderMeta, accessibleDataSet, () -> builder.process(context));
+            //logger.debug("Ran " + builderMeta.getName());
+            if (claimOutcome()) {
+                notifyExecuted(response);
+            }
+            if(null != response) {
+                Preconditions.checkArgument(response.getData().equalsIgnoreCase(builderMeta.getProduces()),
+                        String.format("Builder is supposed to produce %s but produces %s",
+                                builderMeta.getProduces(), response.getData()));
+                response.setGeneratedBy(builderMeta.getName());
+            }
+            DataContainer dataContainer = new DataContainer(builderMeta, response);
+            dataContainer.setElapsedTime(System.nanoTime() - startTime);
+            return dataContainer;
+        } catch (DataBuilderException e) {
+            logger.error("Error running builder: " + builderMeta.getName());
+            failure = e;
+            if (claimOutcome()) {
+                notifyFailed(e);
+            }
+            return new DataContainer(builderMeta, new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                    "Error running builder: " + builderMeta.getName(), e.getDetails(), e));
+
+        } catch (DataValidationException e) {
+            logger.error("Validation error in data produced by builder" +builderMeta.getName());
+            failure = e;
+            if (claimOutcome()) {
+                notifyFailed(e);
+            }
+            return new DataContainer(builderMeta, new DataValidationException(DataValidationException.ErrorCode.DATA_VALIDATION_EXCEPTION,
+                    "Error running builder: " + builderMeta.getName(), new DataExecutionResponse(responseData), e.getDetails(), e));
+
+
+        }
+        catch (Throwable t) {
+            logger.error("Error running builder: " + builderMeta.getName());
+            failure = t;
+            if (claimOutcome()) {
+                notifyFailed(t);
+            }
+            Map<String, Object> objectMap = new HashMap<String, Object>();
+            objectMap.put("MESSAGE", t.getMessage());
+            return new DataContainer(builderMeta, new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                    "Error running builder: " + builderMeta.getName() + t.getMessage(), objectMap, t));
+        } finally {
+            builderFactory.release(builder);
+        }
+    }
+
+    /**
+     * Create a runner for a second invocation of the same builder, with a new builder from the factory.
+     * Hedges are never coalesced, as they would only wait for the invocation they are meant to race.
+     */
+    BuilderRunner hedge() throws DataBuilderFrameworkException {
+        return new BuilderRunner(dataBuilderExecutionListener, dataFlowInstance, builderMeta, dataDelta, responseData,
+                                    builderFactory.create(builderMeta), builderFactory, dataBuilderContext,
+                                    accessibleDataSet, cancelled, builderInvoker, false, outcomeReported, true);
+    }
+
+    /**
+     * Stop notifying listeners about the outcome of this attempt, as it is about to be raced by a hedge.
+     */
+    void mute() {
+        muted = true;
+    }
+
+    /**
+     * Notify listeners about the outcome of the attempt that won, unless an attempt has notified them already.
+     */
+    void notifyOutcome(DataContainer dataContainer) {
+        if (!outcomeReported.compareAndSet(false, true)) {
+            return;
+        }
+        if (dataContainer.isHasError()) {
+            notifyFailed(failure);
+        } else if (dataContainer.isCached()) {
+            notifyCacheHit(dataContainer.getGeneratedData());
+        } else {
+            notifyExecuted(dataContainer.getGeneratedData());
+        }
+    }
+
+    /**
+     * Check if this attempt is the one to notify listeners about the outcome of the builder.
+     */
+    private boolean claimOutcome() {
+        if (muted) {
+            return false;
+        }
+        if (!reporting) {
+            reporting = outcomeReported.compareAndSet(false, true);
+        }
+        return reporting;
+    }
+
+    private void notifyCacheHit(Data cachedResponse) {
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.afterCacheHit(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, cachedResponse);
+            } catch (Throwable t) {
+                logger.error("Error running post-execution listener: ", t);
+            }
+        }
+    }
+
+    private void notifyExecuted(Data response) {
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.afterExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, response);
+            } catch (Throwable t) {
+                logger.error("Error running post-execution listener: ", t);
+            }
+        }
+    }
+
+    private void notifyFailed(Throwable error) {
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, error);
+            } catch (Throwable t) {
+                logger.error("Error running post-execution listener: ", t);
+            }
+        }
+    }
+
+    /**
+     * Notify listeners that a hedge has been started for the builder.
+     */
+    void notifyHedged(long hedgeCount) {
+        logger.debug("Hedging builder: {}", builderMeta.getName());
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.afterHedge(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, hedgeCount);
+            } catch (Throwable t) {
+                logger.error("Error running hedge listener: ", t);
+            }
+        }
+    }
+
+    /**
+     * Notify listeners that the builder has been cancelled before it could finish.
+     */
+    void notifyCancelled() {
+        logger.debug("Cancelled builder: {}", builderMeta.getName());
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.afterCancel(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData);
+            } catch (Throwable t) {
+                logger.error("Error running cancellation listener: ", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isolates builders that call the same slow or unreliable dependency from the rest of the flows in the JVM.
+ * A bulkhead can have it's own pool and/or a limit on the number of builders assigned to it that run at the same time.
+ * What happens to a builder once the limit is reached is decided by the {@link Mode}.
+ * <br>
+ * Builders are assigned to a bulkhead by name using {@link com.flipkart.databuilderframework.annotations.DataBuilderInfo#bulkhead()},
+ * {@link com.flipkart.databuilderframework.annotations.DataBuilderClassInfo#bulkhead()} or
+ * {@link DataBuilderMetadataManager#assignBulkhead(String, String)}. The bulkhead is registered on the executor using
+ * {@link DataFlowExecutor#registerBulkhead(Bulkhead)} and can be shared between executors.
+ * This class is thread safe.
+ */
+public class Bulkhead {
+    /**
+     * Behaviour once the concurrency limit of the bulkhead is reached.
+     */
+    public enum Mode {
+        /**
+         * Wait for a running builder to finish without holding a thread.
+         */
+        QUEUE,
+        /**
+         * Fail the run with {@link DataBuilderFrameworkException.ErrorCode#BUILDER_REJECTED}.
+         */
+        FAIL_FAST,
+        /**
+         * Run the builder on the thread running the flow, outside of the limit.
+         */
+        RUN_INLINE
+    }
+
+    private final String name;
+    private final ExecutorService executorService;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final Mode mode;
+    //Waiting builders with the pool they are to run on, which differs between executors sharing the bulkhead
+    private final Queue<Map.Entry<Runnable, Executor>> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong inlined = new AtomicLong();
+
+    /**
+     * @param name            Name used to assign builders to the bulkhead
+     * @param executorService Pool to run the builders on, null to use the pool of the executor
+     * @param maxConcurrency  Maximum number of builders that can run at the same time, 0 for no limit
+     * @param mode            Behaviour once the limit is reached
+     */
+    public Bulkhead(String name, ExecutorService executorService, int maxConcurrency, Mode mode) {
+        Preconditions.checkArgument(null != name && !name.isEmpty(), "Bulkhead must have a name");
+        Preconditions.checkArgument(maxConcurrency >= 0, "Concurrency limit can not be negative");
+        this.name = name;
+        this.executorService = executorService;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = 0 == maxConcurrency ? null : new Semaphore(maxConcurrency);
+        this.mode = mode;
+    }
+
+    /**
+     * A bulkhead with it's own pool and no limit other than the size of the pool.
+     */
+    public static Bulkhead pool(String name, ExecutorService executorService) {
+        return new Bulkhead(name, executorService, 0, Mode.QUEUE);
+    }
+
+    /**
+     * A bulkhead that uses the pool of the executor, but limits the number of builders in it running at a time.
+     */
+    public static Bulkhead limit(String name, int maxConcurrency, Mode mode) {
+        Preconditions.checkArgument(maxConcurrency > 0, "Concurrency limit must be positive");
+        return new Bulkhead(name, null, maxConcurrency, mode);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Number of builders waiting for a running builder to finish.
+     */
+    public int getQueueDepth() {
+        return waiting.size();
+    }
+
+    /**
+     * Number of builders running within the limit.
+     */
+    public int getActiveCount() {
+        return null == permits ? 0 : maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Number of builders rejected as the limit had been reached, in {@link Mode#FAIL_FAST}.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Number of builders run on the calling thread as the limit had been reached, in {@link Mode#RUN_INLINE}.
+     */
+    public long getInlineCount() {
+        return inlined.get();
+    }
+
+    /**
+     * Executor that runs tasks in this bulkhead.
+     * @param defaultExecutor Pool of the executor, used if the bulkhead does not have it's own
+     */
+    Executor executor(Executor defaultExecutor) {
+        final Executor target = null == executorService ? defaultExecutor : executorService;
+        return task -> execute(task, target);
+    }
+
+    private void execute(Runnable task, Executor target) {
+        if (null == permits) {
+            target.execute(task);
+            return;
+        }
+        if (permits.tryAcquire()) {
+            submit(task, target);
+            return;
+        }
+        switch (mode) {
+            case FAIL_FAST:
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Bulkhead " + name + " is full");
+            case RUN_INLINE:
+                inlined.incrementAndGet();
+                task.run();
+                return;
+            case QUEUE:
+            default:
+                waiting.add(Maps.immutableEntry(task, target));
+                //A builder might have finished between the failed acquire and queueing
+                drain();
+        }
+    }
+
+    private void submit(Runnable task, Executor target) {
+        try {
+            target.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    drain();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            Map.Entry<Runnable, Executor> next = waiting.poll();
+            if (null == next) {
+                permits.release();
+                return;
+            }
+            submit(next.getKey(), next.getValue());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.flipkart.databuilderframework.engine;
 
+import com.flipkart.databuilderframework.model.Data;
 import com.flipkart.databuilderframework.model.DataSet;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
@@ -8,6 +9,9 @@ import com.google.common.collect.Maps;
 import lombok.Builder;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Context object passed to the builder
@@ -21,6 +25,27 @@ public class DataBuilderContext {
 
     private Map<String, Object> contextData;
 
+    /**
+     * Set by the executor when the run is abandoned. Shared between all copies made for a run.
+     */
+    private AtomicBoolean cancelled;
+
+    /**
+     * Deadline for the run as per {@link System#nanoTime()}, null if there is none.
+     */
+    private Long deadline;
+
+    /**
+     * Receives data as it is merged into the working set, when the run is streamed. Not passed on to builders.
+     */
+    private Consumer<Data> dataSink;
+
+    /**
+     * Set when the caller no longer needs the outcome of the run, for example when a streamed run is cancelled by
+     * the subscriber. Not passed on to builders.
+     */
+    private AtomicBoolean stopRequest;
+
     public DataBuilderContext() {
         contextData = Maps.newHashMap();
     }
@@ -38,6 +63,11 @@ public class DataBuilderContext {
      */
     public DataSet getDataSet(DataBuilder builder) {
         Preconditions.checkNotNull(builder.getDataBuilderMeta(), "No metadata present in this builder");
+        if (dataSet.getAvailableData() instanceof ScopedDataMap
+                && ((ScopedDataMap) dataSet.getAvailableData()).isScopedTo(builder.getDataBuilderMeta())) {
+            //Executors already pass in only the data accessible to the builder
+            return dataSet;
+        }
         return new DataSet(
                 Maps.filterKeys(Utils.sanitize(dataSet.getAvailableData()),
                 Predicates.in(Utils.sanitize(builder.getDataBuilderMeta().getAccessibleDataSet()))));
@@ -85,7 +115,78 @@ public class DataBuilderContext {
         return tClass.cast(value);
     }
 
+    /**
+     * Check if the run this context belongs to has been cancelled, for example because another builder has failed.
+     * Long running builders can poll this and return early, as the data they generate will be discarded.
+     * @return <i>true</i> if the run has been cancelled
+     */
+    public boolean isCancelled() {
+        return null != cancelled && cancelled.get();
+    }
+
+    /**
+     * Set a time budget for the run this context is used for, starting now. Once it expires, the executors stop waiting
+     * for builders and return the data generated so far.
+     * @param timeout Time allowed for the run
+     * @param unit    Unit for the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.deadline = System.nanoTime() + unit.toNanos(timeout);
+    }
+
+    /**
+     * Time left before the deadline for the run expires.
+     * @param unit Unit for the returned value
+     * @return Remaining time, 0 if the deadline has passed, {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long getRemainingTime(TimeUnit unit) {
+        if (null == deadline) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean hasDeadline() {
+        return null != deadline;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return null != deadline && deadline - System.nanoTime() <= 0;
+    }
+
+    void setDataSink(Consumer<Data> dataSink) {
+        this.dataSink = dataSink;
+    }
+
+    void setStopRequest(AtomicBoolean stopRequest) {
+        this.stopRequest = stopRequest;
+    }
+
+    /**
+     * Check if the caller has asked for the run to be stopped. Executors stop starting builders and cancel the ones
+     * running once they see this.
+     */
+    boolean isStopRequested() {
+        return null != stopRequest && stopRequest.get();
+    }
+
+    /**
+     * Send data merged by the executor to the sink, if the run is being streamed.
+     */
+    void emit(Data data) {
+        if (null != dataSink) {
+            dataSink.accept(data);
+        }
+    }
+
     public DataBuilderContext immutableCopy(DataSet dataSet) {
-        return new DataBuilderContext(dataSet, ImmutableMap.copyOf(contextData));
+        return immutableCopy(dataSet, cancelled);
+    }
+
+    DataBuilderContext immutableCopy(DataSet dataSet, AtomicBoolean cancelled) {
+        DataBuilderContext copy = new DataBuilderContext(dataSet, ImmutableMap.copyOf(contextData));
+        copy.cancelled = cancelled;
+        copy.deadline = deadline;
+        return copy;
     }
 }
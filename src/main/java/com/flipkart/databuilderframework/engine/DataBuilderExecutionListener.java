@@ -31,6 +31,45 @@ public interface DataBuilderExecutionListener {
             Map<String, Data> prevResponses,
             Throwable frameworkException) throws Exception;
 
+    /**
+     * Called when a builder that was started, or was waiting to be started, is cancelled because the run can not
+     * succeed any more, for example because another builder failed.
+     */
+    default void afterCancel(DataBuilderContext builderContext,
+                             DataFlowInstance dataFlowInstance,
+                             DataBuilderMeta builderToBeApplied,
+                             DataDelta dataDelta,
+                             Map<String, Data> prevResponses) throws Exception {
+
+    }
+
+    /**
+     * Called when a second invocation of a builder is started as per it's {@link HedgingPolicy}.
+     * @param hedgeCount Number of hedges started for the builder so far
+     */
+    default void afterHedge(DataBuilderContext builderContext,
+                            DataFlowInstance dataFlowInstance,
+                            DataBuilderMeta builderToBeApplied,
+                            DataDelta dataDelta,
+                            Map<String, Data> prevResponses,
+                            long hedgeCount) throws Exception {
+
+    }
+
+    /**
+     * Called instead of {@link #beforeExecute(DataBuilderContext, DataFlowInstance, DataBuilderMeta, DataDelta, Map)}
+     * and {@link #afterExecute(DataBuilderContext, DataFlowInstance, DataBuilderMeta, DataDelta, Map, Data)} when the
+     * data of a builder is taken from the {@link BuilderResultCache} without running it.
+     */
+    default void afterCacheHit(DataBuilderContext builderContext,
+                               DataFlowInstance dataFlowInstance,
+                               DataBuilderMeta builderToBeApplied,
+                               DataDelta dataDelta,
+                               Map<String, Data> allResponses,
+                               Data currentResponse) throws Exception {
+
+    }
+
     default void postProcessing(DataFlowInstance dataFlowInstance,
                                 DataDelta dataDelta,
                                 DataExecutionResponse response,
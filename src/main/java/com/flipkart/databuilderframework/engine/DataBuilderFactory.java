@@ -15,6 +15,14 @@ public interface DataBuilderFactory {
      */
     DataBuilder create(DataBuilderMeta dataBuilderMeta) throws DataBuilderFrameworkException;
 
+    /**
+     * Called by the {@link DataFlowExecutor} once a builder returned by {@link #create(DataBuilderMeta)} has run and
+     * will not be used any more. Factories that reuse builder instances can take it back here.
+     * @param dataBuilder Builder that has finished running
+     */
+    default void release(DataBuilder dataBuilder) {
+    }
+
     /**
      * Create and return an immutable copy of the factory to be used during execution.
      * NOTE: If you are unable to return an immutable copy, at least ensure that the returned version is thread safe,
@@ -1,5 +1,6 @@
 package com.flipkart.databuilderframework.engine;
 
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
 import com.flipkart.databuilderframework.model.DataBuilderMeta;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
@@ -9,6 +10,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Metadata manager class for {@link DataBuilder} implementations.
@@ -23,20 +26,29 @@ public class DataBuilderMetadataManager {
     private Map<String, TreeSet<DataBuilderMeta>> consumesMeta = Maps.newHashMap();
     private Map<String, TreeSet<DataBuilderMeta>> optionalsMeta = Maps.newHashMap();
     private Map<String, TreeSet<DataBuilderMeta>> accessesMeta = Maps.newHashMap();
+    private Map<String, BuilderLifecycle> lifecycles = Maps.newHashMap();
+    private Map<String, Supplier<? extends DataBuilder>> suppliers = Maps.newHashMap();
+    private final AtomicLong version = new AtomicLong();
     
     
-    private DataBuilderMetadataManager(Map<String, Class<? extends DataBuilder>> dataBuilders,
+    private DataBuilderMetadataManager(long version,
+                                       Map<String, Class<? extends DataBuilder>> dataBuilders,
                                        Map<String, DataBuilderMeta> meta,
                                        Map<String, List<DataBuilderMeta>> producedToProducerMap,
                                        Map<String, TreeSet<DataBuilderMeta>> consumesMeta,
                                        Map<String, TreeSet<DataBuilderMeta>> optionalsMeta,
-                                       Map<String, TreeSet<DataBuilderMeta>> accessesMeta) {
+                                       Map<String, TreeSet<DataBuilderMeta>> accessesMeta,
+                                       Map<String, BuilderLifecycle> lifecycles,
+                                       Map<String, Supplier<? extends DataBuilder>> suppliers) {
         this.dataBuilders = dataBuilders;
         this.meta = meta;
         this.producedToProducerMap = producedToProducerMap;
         this.consumesMeta = consumesMeta;
         this.optionalsMeta = optionalsMeta;
         this.accessesMeta = accessesMeta;
+        this.lifecycles = lifecycles;
+        this.suppliers = suppliers;
+        this.version.set(version);
     }
 
     public DataBuilderMetadataManager() {
@@ -48,7 +60,25 @@ public class DataBuilderMetadataManager {
                     "No useful annotations found on class. Use DataBuilderInfo or DataBuilderClassInfo to annotate");
             register(
                     dataBuilderMeta,
-                    annotatedDataBuilder);
+                    annotatedDataBuilder,
+                    Utils.lifecycle(annotatedDataBuilder));
+        return this;
+    }
+
+    /**
+     * Register all builders in a registry, typically one generated at compile time. No reflection is done on the
+     * builder classes, and instances are created using the suppliers in the registry.
+     *
+     * @param registry Registry with the builders
+     * @return this
+     * @throws DataBuilderFrameworkException In case of name conflict
+     */
+    public DataBuilderMetadataManager register(DataBuilderRegistry registry) throws DataBuilderFrameworkException {
+        for (RegisteredDataBuilder registeredDataBuilder : registry.builders()) {
+            DataBuilderMeta dataBuilderMeta = registeredDataBuilder.getMeta();
+            register(dataBuilderMeta, registeredDataBuilder.getDataBuilderClass(), registeredDataBuilder.getLifecycle());
+            suppliers.put(dataBuilderMeta.getName(), registeredDataBuilder.getSupplier());
+        }
         return this;
     }
 
@@ -61,7 +91,67 @@ public class DataBuilderMetadataManager {
      * @throws DataBuilderFrameworkException
      */
     public DataBuilderMetadataManager register(DataBuilderMeta dataBuilderMeta, Class<? extends DataBuilder> dataBuilder) throws DataBuilderFrameworkException {
-        return register(dataBuilderMeta.getConsumes(), dataBuilderMeta.getOptionals(), dataBuilderMeta.getAccess(), dataBuilderMeta.getProduces(), dataBuilderMeta.getName(), dataBuilder);
+        register(dataBuilderMeta.getConsumes(), dataBuilderMeta.getOptionals(), dataBuilderMeta.getAccess(), dataBuilderMeta.getProduces(), dataBuilderMeta.getName(), dataBuilder);
+        meta.get(dataBuilderMeta.getName()).setTimeoutMs(dataBuilderMeta.getTimeoutMs());
+        meta.get(dataBuilderMeta.getName()).setBulkhead(dataBuilderMeta.getBulkhead());
+        meta.get(dataBuilderMeta.getName()).setIdempotent(dataBuilderMeta.isIdempotent());
+        meta.get(dataBuilderMeta.getName()).setCacheTtlMs(dataBuilderMeta.getCacheTtlMs());
+        return this;
+    }
+
+    /**
+     * Run a registered builder in the given {@link Bulkhead}. The bulkhead itself is registered on the executor using
+     * {@link DataFlowExecutor#registerBulkhead(Bulkhead)}.
+     *
+     * @param builderName Name of the builder
+     * @param bulkhead Name of the bulkhead, null to use the pool of the executor
+     * @return this
+     * @throws DataBuilderFrameworkException if no builder has been registered with the name
+     */
+    public DataBuilderMetadataManager assignBulkhead(String builderName, String bulkhead) throws DataBuilderFrameworkException {
+        DataBuilderMeta builderMeta = meta.get(builderName);
+        if(null == builderMeta) {
+            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_BUILDER_FOUND_FOR_NAME,
+                    "No builder found with name: " + builderName);
+        }
+        builderMeta.setBulkhead(bulkhead);
+        //Graphs carry copies of the meta
+        version.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Let concurrent invocations of a registered builder with the same inputs share one result. See {@link SingleFlight}.
+     *
+     * @param builderName Name of the builder
+     * @return this
+     * @throws DataBuilderFrameworkException if no builder has been registered with the name
+     */
+    public DataBuilderMetadataManager markIdempotent(String builderName) throws DataBuilderFrameworkException {
+        DataBuilderMeta builderMeta = meta.get(builderName);
+        if(null == builderMeta) {
+            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_BUILDER_FOUND_FOR_NAME,
+                    "No builder found with name: " + builderName);
+        }
+        builderMeta.setIdempotent(true);
+        version.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Register builder by using meta directly, with the given lifecycle for it's instances.
+     *
+     * @param dataBuilderMeta Meta about the builder
+     * @param dataBuilder The actual databuilder class
+     * @param lifecycle How instances of the builder are to be created and reused
+     * @return this
+     * @throws DataBuilderFrameworkException
+     */
+    public DataBuilderMetadataManager register(DataBuilderMeta dataBuilderMeta, Class<? extends DataBuilder> dataBuilder,
+                                               BuilderLifecycle lifecycle) throws DataBuilderFrameworkException {
+        register(dataBuilderMeta, dataBuilder);
+        lifecycles.put(dataBuilderMeta.getName(), lifecycle);
+        return this;
     }
 
     /**
@@ -124,6 +214,7 @@ public class DataBuilderMetadataManager {
             }
         }
         dataBuilders.put(builder, dataBuilder);
+        version.incrementAndGet();
         return this;
     }
     
@@ -178,13 +269,44 @@ public class DataBuilderMetadataManager {
         return dataBuilders.get(builderName);
     }
 
+    /**
+     * Get the supplier for instances of a builder registered from a {@link DataBuilderRegistry}.
+     * @param builderName Name of the builder
+     * @return Supplier if the builder came from a registry, null otherwise
+     */
+    public Supplier<? extends DataBuilder> getDataBuilderSupplier(String builderName) {
+        return suppliers.get(builderName);
+    }
+
+    /**
+     * Get the {@link BuilderLifecycle} for a builder.
+     * @param builderName Name of the builder
+     * @return Lifecycle set at registration, {@link BuilderLifecycle#PROTOTYPE} if none was set
+     */
+    public BuilderLifecycle getLifecycle(String builderName) {
+        BuilderLifecycle lifecycle = lifecycles.get(builderName);
+        return null == lifecycle ? BuilderLifecycle.PROTOTYPE : lifecycle;
+    }
+
+    /**
+     * Version of the registered metadata. This changes every time a builder is registered, so it can be used to
+     * find out if anything derived from this metadata, like an {@link com.flipkart.databuilderframework.model.ExecutionGraph}, is stale.
+     * @return Current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
     public DataBuilderMetadataManager immutableCopy() {
-        return new DataBuilderMetadataManager(ImmutableMap.copyOf(dataBuilders),
+        return new DataBuilderMetadataManager(version.get(),
+                ImmutableMap.copyOf(dataBuilders),
                 
                 ImmutableMap.copyOf(meta),
                 ImmutableMap.copyOf(producedToProducerMap),
                 ImmutableMap.copyOf(consumesMeta),
                 ImmutableMap.copyOf(optionalsMeta),
-                ImmutableMap.copyOf(accessesMeta));
+                ImmutableMap.copyOf(accessesMeta),
+                ImmutableMap.copyOf(lifecycles),
+                ImmutableMap.copyOf(suppliers));
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.flipkart.databuilderframework.engine;
+
+import java.util.List;
+
+/**
+ * Metadata for a set of builders, known without looking at the builder classes at run time.
+ * Implementations are generated at compile time by the <code>DataBuilderRegistryProcessor</code> annotation processor
+ * in the <code>databuilderframework-processor</code> artifact, for all builders annotated with
+ * {@link com.flipkart.databuilderframework.annotations.DataBuilderInfo} or
+ * {@link com.flipkart.databuilderframework.annotations.DataBuilderClassInfo}.
+ * <br>
+ * Load all the builders into a {@link DataBuilderMetadataManager} using
+ * {@link DataBuilderMetadataManager#register(DataBuilderRegistry)}. Builders loaded this way are created by the
+ * factories using the registered supplier instead of reflection.
+ */
+public interface DataBuilderRegistry {
+    /**
+     * @return All builders in this registry
+     */
+    List<RegisteredDataBuilder> builders();
+}
@@ -0,0 +1,84 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+
+/**
+ * Outcome of a builder run by a {@link BuilderRunner}.
+ */
+final class DataContainer {
+    private final DataBuilderMeta builderMeta;
+    private final Data generatedData;
+    private boolean hasError = false;
+    private final DataBuilderFrameworkException exception;
+    private final DataValidationException validationException;
+    private long elapsedTime;
+    private boolean cached;
+
+    DataContainer(DataBuilderMeta builderMeta, Data generatedData) {
+        this.builderMeta = builderMeta;
+        this.generatedData = generatedData;
+        this.exception = null;
+        this.validationException = null;
+    }
+
+    DataContainer(DataBuilderMeta builderMeta, DataBuilderFrameworkException exception) {
+        this.builderMeta = builderMeta;
+        this.generatedData = null;
+        this.hasError = true;
+        this.exception = exception;
+        this.validationException = null;
+    }
+
+    DataContainer(DataBuilderMeta builderMeta, DataValidationException validationException) {
+        this.builderMeta = builderMeta;
+        this.generatedData = null;
+        this.hasError = true;
+        this.exception = null;
+        this.validationException = validationException;
+    }
+
+
+
+    public DataBuilderMeta getBuilderMeta() {
+        return builderMeta;
+    }
+
+    public Data getGeneratedData() {
+        return generatedData;
+    }
+
+    public DataBuilderFrameworkException getException() {
+        return exception;
+    }
+
+    public DataValidationException getValidationException() {
+        return validationException;
+    }
+
+    public boolean isHasError() {
+        return hasError;
+    }
+
+    /**
+     * Time taken by the builder in nanoseconds, excluding the time spent waiting for a thread.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    void setElapsedTime(long elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Whether the data was taken from the {@link BuilderResultCache} without running the builder.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    void setCached(boolean cached) {
+        this.cached = cached;
+    }
+}
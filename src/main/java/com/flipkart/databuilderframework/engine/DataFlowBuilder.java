@@ -5,12 +5,19 @@ import com.flipkart.databuilderframework.model.Data;
 import com.flipkart.databuilderframework.model.DataAdapter;
 import com.flipkart.databuilderframework.model.DataBuilderMeta;
 import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.TargetCompletion;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +36,7 @@ public class DataFlowBuilder {
     private DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
     private DataFlow dataFlow = new DataFlow();
     private MixedDataBuilderFactory dataBuilderFactory = new MixedDataBuilderFactory();
+    private List<DataBuilderMeta> subFlowBuilders = Lists.newArrayList();
 
     public DataFlowBuilder() {
         dataFlow.setTransients(Sets.newHashSet());
@@ -53,6 +61,17 @@ public class DataFlowBuilder {
         return this;
     }
 
+    /**
+     * Maximum number of idle instances the flow keeps for every
+     * {@link com.flipkart.databuilderframework.model.BuilderLifecycle#POOLED} builder.
+     * @param poolSize Pool size
+     * @return
+     */
+    public DataFlowBuilder withBuilderPoolSize(int poolSize) {
+        this.dataBuilderFactory.setPoolSize(poolSize);
+        return this;
+    }
+
     /**
      * Register an unnamed,  unannotated builder class.
      * @param produces Name of the data that this builder produces.
@@ -183,6 +202,63 @@ public class DataFlowBuilder {
         return this;
     }
 
+    /**
+     * Inline the builders of a flow that has already been built into this flow, so that they are scheduled by the
+     * executor of this flow along with it's own builders, instead of running the sub-flow from a builder.
+     * Builders of the sub-flow are registered as <code>name.builder</code>. Data the sub-flow consumes but does not
+     * generate, and the targets of the sub-flow, are shared with this flow under the same name or the one given in
+     * the mapping. All other data generated by the sub-flow, including it's transients, is private to it and is
+     * renamed to <code>name.data</code>, so that a sub-flow can be used more than once in a flow. Transients of the
+     * sub-flow remain transient. The builders are registered in the metadata manager of this flow when it is built.
+     * @param name Name for this use of the sub-flow, must be unique in this flow
+     * @param subFlow A flow created by a {@link DataFlowBuilder}
+     * @param dataMapping Name in this flow for data of the sub-flow, keyed on the name in the sub-flow
+     * @return
+     * @throws DataBuilderFrameworkException
+     */
+    public DataFlowBuilder withSubFlow(String name,
+                                       DataFlow subFlow,
+                                       Map<String, String> dataMapping) throws DataBuilderFrameworkException {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "Specify name for sub-flow");
+        Preconditions.checkNotNull(subFlow.getExecutionGraph(), "Sub-flow has not been built");
+        Preconditions.checkNotNull(subFlow.getDataBuilderFactory(), "Sub-flow has no builder factory");
+        List<DataBuilderMeta> innerBuilders = Lists.newArrayList();
+        for (List<DataBuilderMeta> level : subFlow.getExecutionGraph().getDependencyHierarchy()) {
+            innerBuilders.addAll(level);
+        }
+        Set<String> privateData = innerBuilders.stream()
+                .map(DataBuilderMeta::getProduces)
+                .collect(Collectors.toSet());
+        privateData.removeAll(subFlow.getAllTargetData());
+        Function<String, String> rename = data -> {
+            if (dataMapping.containsKey(data)) {
+                return dataMapping.get(data);
+            }
+            return privateData.contains(data) ? name + "." + data : data;
+        };
+        for (DataBuilderMeta innerMeta : innerBuilders) {
+            DataBuilderMeta dataBuilderMeta = innerMeta.deepCopy();
+            dataBuilderMeta.setName(name + "." + innerMeta.getName());
+            dataBuilderMeta.setProduces(rename.apply(innerMeta.getProduces()));
+            dataBuilderMeta.setConsumes(renamed(innerMeta.getConsumes(), rename));
+            dataBuilderMeta.setOptionals(renamed(innerMeta.getOptionals(), rename));
+            dataBuilderMeta.setAccess(renamed(innerMeta.getAccess(), rename));
+            Map<String, String> innerNames = Maps.newHashMap();
+            for (String data : innerMeta.getAccessibleDataSet()) {
+                innerNames.put(rename.apply(data), data);
+            }
+            subFlowBuilders.add(dataBuilderMeta);
+            dataBuilderFactory.register(new SubFlowDataBuilder(dataBuilderMeta, innerMeta,
+                                                                subFlow.getDataBuilderFactory(), innerNames));
+        }
+        if (null != subFlow.getTransients()) {
+            for (String transientData : subFlow.getTransients()) {
+                dataFlow.getTransients().add(rename.apply(transientData));
+            }
+        }
+        return this;
+    }
+
     /**
      * The data to be generated. The build method will use this to create the execution graph.
      * @param targetDataClass Class name for the data to be generated.
@@ -203,6 +279,54 @@ public class DataFlowBuilder {
         return this;
     }
 
+    /**
+     * More data to be generated along with the target data. The build method creates one execution graph for all the
+     * targets. Can be called once for every target.
+     * @param data Logical name for the data to be generated.
+     * @return
+     */
+    public DataFlowBuilder withAdditionalTargetData(String data) {
+        if (null == dataFlow.getAdditionalTargetData()) {
+            dataFlow.setAdditionalTargetData(Sets.newLinkedHashSet());
+        }
+        dataFlow.getAdditionalTargetData().add(data);
+        return this;
+    }
+
+    /**
+     * When an execution of a flow with more than one target is complete. See {@link TargetCompletion}.
+     * @param targetCompletion All or any of the targets
+     * @return
+     */
+    public DataFlowBuilder withTargetCompletion(TargetCompletion targetCompletion) {
+        this.dataFlow.setTargetCompletion(targetCompletion);
+        return this;
+    }
+
+    /**
+     * Run only the builders that are still needed to generate the target data. See {@link DataFlow#isDemandDriven()}.
+     * @param demandDriven Whether executions of the flow should be demand driven
+     * @return
+     */
+    public DataFlowBuilder withDemandDriven(boolean demandDriven) {
+        this.dataFlow.setDemandDriven(demandDriven);
+        return this;
+    }
+
+    /**
+     * Declare the data a stage of the flow is run with. The plan for the flow is specialised for this set of data, and
+     * is used when the delta for an execution has exactly this data. Can be called once for every stage.
+     * @param data Names of data in the delta for the stage
+     * @return
+     */
+    public DataFlowBuilder withAssumedInputs(final Set<String> data) {
+        if (null == dataFlow.getAssumedInputs()) {
+            dataFlow.setAssumedInputs(Sets.newHashSet());
+        }
+        dataFlow.getAssumedInputs().add(ImmutableSet.copyOf(data));
+        return this;
+    }
+
     /**
      * Register a resolution spec to resolve conflicts in scenarios when multiple builders known to the system can generate the same required data.
      * @param data Data to be generated
@@ -277,9 +401,20 @@ public class DataFlowBuilder {
      */
      public DataFlow build() throws DataBuilderFrameworkException {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(dataFlow.getTargetData()), "Specify target data");
+        //Done here so that sub-flows go into the manager set last using withMetaDataManager()
+        for (DataBuilderMeta subFlowBuilder : subFlowBuilders) {
+            dataBuilderMetadataManager.register(subFlowBuilder, SubFlowDataBuilder.class);
+        }
         dataBuilderFactory.setDataBuilderMetadataManager(dataBuilderMetadataManager);
         dataFlow.setExecutionGraph(new ExecutionGraphGenerator(dataBuilderMetadataManager).generateGraph(dataFlow));
+        ExecutionPlan.of(dataFlow);
         dataFlow.setDataBuilderFactory(dataBuilderFactory);
         return dataFlow;
     }
+
+    private static Set<String> renamed(Set<String> data, Function<String, String> rename) {
+        return null == data
+                ? null
+                : data.stream().map(rename).collect(Collectors.toCollection(Sets::newHashSet));
+    }
 }
@@ -8,6 +8,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The executor for a {@link com.flipkart.databuilderframework.model.DataFlow}.
@@ -15,6 +18,11 @@ import java.util.List;
 public abstract class DataFlowExecutor {
     private static final Logger logger = LoggerFactory.getLogger(DataFlowExecutor.class.getSimpleName());
     protected List<DataBuilderExecutionListener> dataBuilderExecutionListener;
+    protected final Map<String, HedgingPolicy> hedgingPolicies = Maps.newConcurrentMap();
+    protected final Map<String, Bulkhead> bulkheads = Maps.newConcurrentMap();
+    final LatencyEstimates latencyEstimates = new LatencyEstimates();
+    protected final SingleFlight singleFlight = new SingleFlight();
+    final BuilderInvoker builderInvoker = new BuilderInvoker(singleFlight);
     private final DataBuilderFactory dataBuilderFactory;
 
     public DataFlowExecutor(DataBuilderFactory dataBuilderFactory) {
@@ -95,6 +103,30 @@ public abstract class DataFlowExecutor {
         return run(dataBuilderContext, dataFlowInstance, dataDelta);
     }
 
+    /**
+     * Same as {@link #run(DataFlowInstance, DataDelta)}, but stops waiting for builders once the given time has passed.
+     * Builders still running at that point are cancelled and whatever has been generated so far is returned. The
+     * builders that did not finish in time are listed in {@link DataExecutionResponse#getTimedOutBuilders()}.
+     *
+     * @param dataFlowInstance An instance of the {@link com.flipkart.databuilderframework.model.DataFlow} to run.
+     * @param dataDelta        The additional set of data to be considered for execution.
+     * @param timeout          Maximum time to run the flow for
+     * @param unit             Unit for the timeout
+     * @return A response containing responses from every {@link DataBuilder} that finished in time.
+     * @throws DataBuilderFrameworkException
+     */
+    public DataExecutionResponse run(DataFlowInstance dataFlowInstance,
+                                     DataDelta dataDelta,
+                                     long timeout,
+                                     TimeUnit unit) throws DataBuilderFrameworkException,DataValidationException {
+        DataBuilderContext dataBuilderContext = DataBuilderContext.builder()
+                .dataSet(dataFlowInstance.getDataSet())
+                .contextData(Maps.newHashMap())
+                .build();
+        dataBuilderContext.setTimeout(timeout, unit);
+        return run(dataBuilderContext, dataFlowInstance, dataDelta);
+    }
+
     /**
      * It uses {@link com.flipkart.databuilderframework.model.Data} present in the existing
      * {@link com.flipkart.databuilderframework.model.DataSet} and those provided by
@@ -113,6 +145,74 @@ public abstract class DataFlowExecutor {
                                               DataFlowInstance dataFlowInstance,
                                               DataDelta dataDelta) throws DataBuilderFrameworkException, DataValidationException {
         DataFlow dataFlow = dataFlowInstance.getDataFlow();
+        return process(dataBuilderContext, dataFlowInstance, dataDelta, dataFlow, builderFactoryFor(dataFlow));
+    }
+
+    /**
+     * Run a flow instance, publishing data generated by the builders as soon as it is merged into the working set,
+     * instead of waiting for the run to finish. The run is started on the given executor once a
+     * {@link DataSubscriber} subscribes to the returned publisher. The data set of the instance is updated same as in
+     * {@link #run(DataFlowInstance, DataDelta)}, and is sent to the subscriber on completion.
+     *
+     * @param dataFlowInstance An instance of the {@link com.flipkart.databuilderframework.model.DataFlow} to run.
+     * @param dataDelta        The additional set of data to be considered for execution.
+     * @param executor         Executor to run the flow on, the builders are run as per this flow executor
+     * @return A publisher for the data generated in the run
+     */
+    public DataPublisher stream(DataFlowInstance dataFlowInstance, DataDelta dataDelta, Executor executor) {
+        DataBuilderContext dataBuilderContext = DataBuilderContext.builder()
+                .dataSet(dataFlowInstance.getDataSet())
+                .contextData(Maps.newHashMap())
+                .build();
+        return stream(dataBuilderContext, dataFlowInstance, dataDelta, executor);
+    }
+
+    /**
+     * Same as {@link #stream(DataFlowInstance, DataDelta, Executor)}, with a context provided by the caller, for
+     * example to set a deadline for the run.
+     */
+    public DataPublisher stream(DataBuilderContext dataBuilderContext,
+                                DataFlowInstance dataFlowInstance,
+                                DataDelta dataDelta,
+                                Executor executor) {
+        return new DataPublisher(executor, dataFlowInstance, (sink, stopRequest) -> {
+            dataBuilderContext.setDataSink(sink);
+            dataBuilderContext.setStopRequest(stopRequest);
+            return run(dataBuilderContext, dataFlowInstance, dataDelta);
+        });
+    }
+
+    /**
+     * Run many instances of the same flow in one walk over it's execution plan. Each builder is created once per pass
+     * and invoked for all instances that are ready for it. A {@link BatchDataBuilder} gets the contexts of all these
+     * instances in a single call. Builders run on the calling thread, hedging policies, bulkheads and deadlines are
+     * not used. Use this for bulk requests, instead of calling {@link #run(DataFlowInstance, DataDelta)} in a loop.
+     * Listeners are called for every instance, same as in a run.
+     *
+     * @param dataFlow          The flow to be run. The flow set on the instances is not used.
+     * @param dataFlowInstances Instances to run, their data sets are updated same as in a run
+     * @param dataDeltas        The additional set of data for each instance, in the same order as the instances
+     * @return Responses and failures for every instance
+     * @throws DataBuilderFrameworkException if no factory is available for the flow
+     */
+    public BatchExecutionResponse runBatch(DataFlow dataFlow,
+                                           List<DataFlowInstance> dataFlowInstances,
+                                           List<DataDelta> dataDeltas) throws DataBuilderFrameworkException {
+        Preconditions.checkNotNull(dataFlow);
+        Preconditions.checkArgument(dataFlowInstances.size() == dataDeltas.size(),
+                "Batch has %s instances but %s deltas", dataFlowInstances.size(), dataDeltas.size());
+        return new BatchRunner(this, dataFlow, builderFactoryFor(dataFlow), dataFlowInstances.size())
+                .run(dataFlowInstances, dataDeltas);
+    }
+
+    /**
+     * Find the factory to be used to create builders for the given flow. The factory set on the flow gets
+     * preference over the one provided to the executor.
+     * @param dataFlow The flow being executed
+     * @return The factory to be used
+     * @throws DataBuilderFrameworkException if no factory is available
+     */
+    protected DataBuilderFactory builderFactoryFor(DataFlow dataFlow) throws DataBuilderFrameworkException {
         Preconditions.checkArgument(null != dataFlow.getDataBuilderFactory()
                 || null != dataBuilderFactory);
         DataBuilderFactory builderFactory = dataFlow.getDataBuilderFactory();
@@ -123,7 +223,7 @@ public abstract class DataFlowExecutor {
             throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_FACTORY_FOR_DATA_BUILDER,
                                                 "No builder specified in contructor or dataflow");
         }
-        return process(dataBuilderContext, dataFlowInstance, dataDelta, dataFlow, builderFactory);
+        return builderFactory;
     }
 
     protected DataExecutionResponse process(DataBuilderContext dataBuilderContext,
@@ -134,34 +234,52 @@ public abstract class DataFlowExecutor {
         DataExecutionResponse response = null;
         Throwable frameworkException = null;
         try {
-            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                try {
-                    listener.preProcessing(dataFlowInstance, dataDelta);
-                } catch (Throwable t) {
-                    if(listener.shouldThrowException()) {
-                        throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.PRE_PROCESSING_ERROR,
-                                "Error running pre-processing listener: " +  t.getMessage(), t);
-                    }
-                    logger.error("Error running pre-processing listener: ", t);
-                }
-            }
+            preProcessing(dataFlowInstance, dataDelta);
             response = run(dataBuilderContext, dataFlowInstance, dataDelta, dataFlow, builderFactory);
             return response;
         } catch (DataBuilderFrameworkException e) {
             frameworkException = e;
             throw e;
         } finally {
-            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                try {
-                    listener.postProcessing(dataFlowInstance, dataDelta, response, frameworkException);
-                } catch (Throwable t) {
-                    if(listener.shouldThrowException()) {
-                        throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.POST_PROCESSING_ERROR,
-                                "Error running post-processing listener: " +  t.getMessage(), t);
-                    }
-                    logger.error("Error running post-processing listener: ", t);
+            postProcessing(dataFlowInstance, dataDelta, response, frameworkException);
+        }
+    }
+
+    /**
+     * Invoke {@link DataBuilderExecutionListener#preProcessing(DataFlowInstance, DataDelta)} on all registered listeners.
+     */
+    protected void preProcessing(DataFlowInstance dataFlowInstance, DataDelta dataDelta) throws DataBuilderFrameworkException {
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.preProcessing(dataFlowInstance, dataDelta);
+            } catch (Throwable t) {
+                if(listener.shouldThrowException()) {
+                    throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.PRE_PROCESSING_ERROR,
+                            "Error running pre-processing listener: " +  t.getMessage(), t);
+                }
+                logger.error("Error running pre-processing listener: ", t);
+            }
+        }
+    }
 
+    /**
+     * Invoke {@link DataBuilderExecutionListener#postProcessing(DataFlowInstance, DataDelta, DataExecutionResponse, Throwable)}
+     * on all registered listeners.
+     */
+    protected void postProcessing(DataFlowInstance dataFlowInstance,
+                                  DataDelta dataDelta,
+                                  DataExecutionResponse response,
+                                  Throwable frameworkException) throws DataBuilderFrameworkException {
+        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+            try {
+                listener.postProcessing(dataFlowInstance, dataDelta, response, frameworkException);
+            } catch (Throwable t) {
+                if(listener.shouldThrowException()) {
+                    throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.POST_PROCESSING_ERROR,
+                            "Error running post-processing listener: " +  t.getMessage(), t);
                 }
+                logger.error("Error running post-processing listener: ", t);
+
             }
         }
     }
@@ -182,4 +300,50 @@ public abstract class DataFlowExecutor {
     public void registerExecutionListener(DataBuilderExecutionListener listener) {
         dataBuilderExecutionListener.add(listener);
     }
+
+    /**
+     * Hedge invocations of a builder as per the given policy. Hedging is done by the
+     * {@link MultiThreadedDataFlowExecutor} and {@link OptimizedMultiThreadedDataFlowExecutor}, other executors ignore
+     * the policies.
+     *
+     * @param builderName Name of the builder to be hedged
+     * @param policy      Policy for the builder, this keeps the latency statistics and is not to be shared
+     */
+    public void registerHedgingPolicy(String builderName, HedgingPolicy policy) {
+        hedgingPolicies.put(builderName, policy);
+    }
+
+    /**
+     * Run builders assigned to the bulkhead with the same name in it. Bulkheads are used by the
+     * {@link MultiThreadedDataFlowExecutor}, {@link OptimizedMultiThreadedDataFlowExecutor} and
+     * {@link AsyncDataFlowExecutor}. Builders assigned to bulkheads that have not been registered run on the pool of
+     * the executor.
+     *
+     * @param bulkhead Bulkhead to be used
+     */
+    public void registerBulkhead(Bulkhead bulkhead) {
+        bulkheads.put(bulkhead.getName(), bulkhead);
+    }
+
+    /**
+     * Coalescing of invocations of idempotent builders across the flows run by this executor. Use this to get the
+     * number of invocations that were shared.
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Reuse data generated by builders that have a cache TTL from the given cache. The cache can be shared between
+     * executors.
+     *
+     * @param builderResultCache Cache to be used, null to always run the builders
+     */
+    public void setBuilderResultCache(BuilderResultCache builderResultCache) {
+        builderInvoker.setResultCache(builderResultCache);
+    }
+
+    public BuilderResultCache getBuilderResultCache() {
+        return builderInvoker.getResultCache();
+    }
 }
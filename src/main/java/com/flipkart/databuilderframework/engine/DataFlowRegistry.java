@@ -0,0 +1,150 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.ExecutionGraph;
+import com.flipkart.databuilderframework.model.TargetCompletion;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache for the {@link com.flipkart.databuilderframework.model.ExecutionGraph} and {@link ExecutionPlan} of flows
+ * built over a shared {@link DataBuilderMetadataManager}. Use this when flows are created on the fly, for example
+ * from per-tenant configuration, to avoid generating the same graph for every request.
+ * <br>
+ * Entries are keyed on the target data, resolution specs, transients, assumed inputs and the version of the metadata
+ * manager.
+ * Registering a new builder changes the version, so graphs generated before that are never returned again and get
+ * evicted in least recently used order once the cache is full.
+ * This class is thread safe as long as builders are not registered in the metadata manager concurrently.
+ */
+public class DataFlowRegistry {
+    private final DataBuilderMetadataManager dataBuilderMetadataManager;
+    private final ExecutionGraphGenerator executionGraphGenerator;
+    private final Cache<FlowKey, CompiledFlow> cache;
+
+    /**
+     * @param dataBuilderMetadataManager Metadata for all builders that can be used in the flows
+     * @param maximumSize                Maximum number of graphs to be cached
+     */
+    public DataFlowRegistry(DataBuilderMetadataManager dataBuilderMetadataManager, long maximumSize) {
+        this.dataBuilderMetadataManager = dataBuilderMetadataManager;
+        this.executionGraphGenerator = new ExecutionGraphGenerator(dataBuilderMetadataManager);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the execution graph for a flow. The graph is generated if not found in the cache.
+     * The returned graph is shared and must not be modified.
+     * @param dataFlow The {@link com.flipkart.databuilderframework.model.DataFlow} object to be analyzed
+     * @return The execution graph for the flow
+     * @throws DataBuilderFrameworkException if the graph could not be generated
+     */
+    public ExecutionGraph generateGraph(DataFlow dataFlow) throws DataBuilderFrameworkException {
+        return compiled(dataFlow).getExecutionGraph();
+    }
+
+    /**
+     * Set the cached execution graph and execution plan on a flow, generating them if needed.
+     * @param dataFlow Flow to be prepared for execution
+     * @return The same flow
+     * @throws DataBuilderFrameworkException if the graph could not be generated
+     */
+    public DataFlow prepare(DataFlow dataFlow) throws DataBuilderFrameworkException {
+        CompiledFlow compiledFlow = compiled(dataFlow);
+        dataFlow.setExecutionGraph(compiledFlow.getExecutionGraph());
+        dataFlow.setExecutionPlan(compiledFlow.getExecutionPlan());
+        return dataFlow;
+    }
+
+    /**
+     * Hit, miss and eviction statistics for the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Number of flows in the cache.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public DataBuilderMetadataManager getDataBuilderMetadataManager() {
+        return dataBuilderMetadataManager;
+    }
+
+    private CompiledFlow compiled(DataFlow dataFlow) throws DataBuilderFrameworkException {
+        if (null == dataFlow.getTargetData() || dataFlow.getTargetData().isEmpty()) {
+            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_TARGET_DATA,
+                    "No target data specified for flow");
+        }
+        FlowKey flowKey = new FlowKey(ImmutableList.copyOf(dataFlow.getAllTargetData()),
+                                        dataFlow.getTargetCompletion(),
+                                        copyOf(dataFlow.getResolutionSpecs()),
+                                        null == dataFlow.getTransients() ? null : ImmutableSet.copyOf(dataFlow.getTransients()),
+                                        null == dataFlow.getAssumedInputs() ? null : ImmutableSet.copyOf(dataFlow.getAssumedInputs()),
+                                        dataBuilderMetadataManager.getVersion());
+        try {
+            return cache.get(flowKey, () -> compile(dataFlow));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), DataBuilderFrameworkException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private CompiledFlow compile(DataFlow dataFlow) throws DataBuilderFrameworkException {
+        //Compile on a copy so that the caller's flow is not touched before it is prepared
+        DataFlow flow = new DataFlow();
+        flow.setTargetData(dataFlow.getTargetData());
+        flow.setAdditionalTargetData(dataFlow.getAdditionalTargetData());
+        flow.setTargetCompletion(dataFlow.getTargetCompletion());
+        flow.setResolutionSpecs(dataFlow.getResolutionSpecs());
+        flow.setTransients(dataFlow.getTransients());
+        flow.setAssumedInputs(dataFlow.getAssumedInputs());
+        flow.setExecutionGraph(executionGraphGenerator.generateGraph(flow));
+        return new CompiledFlow(flow.getExecutionGraph(), ExecutionPlan.compile(flow));
+    }
+
+    private static Map<String, String> copyOf(Map<String, String> resolutionSpecs) {
+        return null == resolutionSpecs
+                ? ImmutableMap.<String, String>of()
+                : ImmutableMap.copyOf(resolutionSpecs);
+    }
+
+    @Value
+    private static class FlowKey {
+        private final List<String> targetData;
+        private final TargetCompletion targetCompletion;
+        private final Map<String, String> resolutionSpecs;
+        private final Set<String> transients;
+        private final Set<Set<String>> assumedInputs;
+        private final long metadataVersion;
+    }
+
+    @Value
+    private static class CompiledFlow {
+        private final ExecutionGraph executionGraph;
+        private final ExecutionPlan executionPlan;
+    }
+}
@@ -0,0 +1,187 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataFlowInstance;
+import com.flipkart.databuilderframework.model.DataExecutionResponse;
+import com.flipkart.databuilderframework.model.DataSet;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Publishes data generated in a run of a flow as the executor merges it, so that callers can start using it before
+ * the run finishes. Returned by {@link DataFlowExecutor#stream(com.flipkart.databuilderframework.model.DataFlowInstance,
+ * com.flipkart.databuilderframework.model.DataDelta, Executor)}.
+ * <br>
+ * The run starts when a subscriber subscribes. Data is buffered till the subscriber requests it, the run itself never
+ * waits for the subscriber. Signals to the subscriber are serialized and are sent on the thread that generated the
+ * data or requested it. This follows the Reactive Streams contract, so it can be adapted to
+ * <code>java.util.concurrent.Flow</code> on newer JVMs. Only one subscriber is supported.
+ * <br>
+ * Cancelling the subscription stops the run: the executor starts no more builders and cancels the ones running.
+ */
+public final class DataPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(DataPublisher.class.getSimpleName());
+
+    /**
+     * Runs the flow, sending generated data to the sink. The run is to be stopped once the stop request is set.
+     */
+    @FunctionalInterface
+    interface Source {
+        DataExecutionResponse run(Consumer<Data> sink, AtomicBoolean stopRequest) throws Exception;
+    }
+
+    private final Executor executor;
+    private final DataFlowInstance dataFlowInstance;
+    private final Source source;
+    private final Queue<Data> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicBoolean stopRequest = new AtomicBoolean();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private DataSubscriber subscriber;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private volatile DataExecutionResponse response;
+    private volatile DataSet dataSet;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    DataPublisher(Executor executor, DataFlowInstance dataFlowInstance, Source source) {
+        this.executor = executor;
+        this.dataFlowInstance = dataFlowInstance;
+        this.source = source;
+    }
+
+    /**
+     * Subscribe to the data and start the run.
+     * @throws IllegalStateException if there already is a subscriber
+     */
+    public void subscribe(DataSubscriber dataSubscriber) {
+        Preconditions.checkNotNull(dataSubscriber);
+        Preconditions.checkState(subscribed.compareAndSet(false, true), "Publisher already has a subscriber");
+        this.subscriber = dataSubscriber;
+        dataSubscriber.onSubscribe(new DataSubscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    //Signalled from the drain loop, so that it is not sent concurrently with data
+                    stopRequest.set(true);
+                    buffer.clear();
+                    error.compareAndSet(null, new IllegalArgumentException("Requested " + n + " data, must be positive"));
+                    done = true;
+                    drain();
+                    return;
+                }
+                requested.accumulateAndGet(n, (current, added) -> {
+                    long total = current + added;
+                    return total < 0 ? Long.MAX_VALUE : total;
+                });
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                stopRequest.set(true);
+                buffer.clear();
+            }
+        });
+        try {
+            executor.execute(this::run);
+        } catch (RuntimeException e) {
+            finish(null, null, e);
+        }
+    }
+
+    /**
+     * Called by the executors as data is merged into the working set.
+     */
+    void emit(Data data) {
+        if (cancelled || null != error.get()) {
+            return;
+        }
+        buffer.add(data);
+        drain();
+    }
+
+    private void run() {
+        try {
+            DataExecutionResponse runResponse = source.run(this::emit, stopRequest);
+            finish(runResponse, dataFlowInstance.getDataSet(), null);
+        } catch (Throwable t) {
+            finish(null, null, t);
+        }
+    }
+
+    private void finish(DataExecutionResponse runResponse, DataSet finalDataSet, Throwable runError) {
+        this.response = runResponse;
+        this.dataSet = finalDataSet;
+        if (null != runError) {
+            //An invalid request that came in first is the one reported
+            error.compareAndSet(null, runError);
+        }
+        this.done = true;
+        drain();
+    }
+
+    /**
+     * Send buffered data as per demand, and the terminal signal once the buffer is empty. Only one thread drains at a
+     * time, others leave a note for it to go around again.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            final long demand = requested.get();
+            long sent = 0;
+            while (sent != demand && !cancelled) {
+                Data data = buffer.poll();
+                if (null == data) {
+                    break;
+                }
+                try {
+                    subscriber.onNext(data);
+                } catch (Throwable t) {
+                    logger.error("Error in subscriber, cancelling subscription: ", t);
+                    cancelled = true;
+                    stopRequest.set(true);
+                    buffer.clear();
+                    subscriber.onError(t);
+                }
+                sent++;
+            }
+            if (cancelled) {
+                buffer.clear();
+                return;
+            }
+            if (done && buffer.isEmpty()) {
+                //Nothing can be sent after this, so the drain loop is never released
+                cancelled = true;
+                if (null != error.get()) {
+                    subscriber.onError(error.get());
+                } else {
+                    subscriber.onComplete(response, dataSet);
+                }
+                return;
+            }
+            if (sent != 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-sent);
+            }
+            missed = wip.addAndGet(-missed);
+            if (0 == missed) {
+                return;
+            }
+        }
+    }
+}
@@ -131,6 +131,9 @@ public class DataSetAccessor {
      * Get a copy of the underlying data set. Don't copy transients.
      */
     public DataSet copy(Set<String> transients) {
+        if (dataSet.getAvailableData() instanceof IndexedDataMap) {
+            return new DataSet(((IndexedDataMap) dataSet.getAvailableData()).copy(transients));
+        }
         Map<String, Data> dataMap = Maps.newHashMap();
         if (null != transients && !transients.isEmpty()) {
             dataMap.putAll(Maps.filterKeys(dataSet.getAvailableData(), Predicates.not(Predicates.in(transients))));
@@ -0,0 +1,33 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataExecutionResponse;
+import com.flipkart.databuilderframework.model.DataSet;
+
+/**
+ * Receives data from a {@link DataPublisher} as builders generate it. Calls are never concurrent and follow the order
+ * onSubscribe, onNext*, then onComplete or onError.
+ */
+public interface DataSubscriber {
+    /**
+     * Called once, before anything else. No data is sent till it is requested using the subscription.
+     */
+    void onSubscribe(DataSubscription subscription);
+
+    /**
+     * Called with data generated by a builder, in the order the executor merged it into the working set.
+     */
+    void onNext(Data data);
+
+    /**
+     * Called once the run has finished and all data has been sent.
+     * @param response Response of the run, same as the one returned by {@link DataFlowExecutor#run(com.flipkart.databuilderframework.model.DataFlowInstance, com.flipkart.databuilderframework.model.DataDelta)}
+     * @param dataSet  Data set of the flow instance after the run
+     */
+    void onComplete(DataExecutionResponse response, DataSet dataSet);
+
+    /**
+     * Called if the run fails, after the data generated before the failure has been sent.
+     */
+    void onError(Throwable error);
+}
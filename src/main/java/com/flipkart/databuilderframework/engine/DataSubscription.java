@@ -0,0 +1,18 @@
+package com.flipkart.databuilderframework.engine;
+
+/**
+ * Link between a {@link DataPublisher} and it's {@link DataSubscriber}, used by the subscriber to ask for data.
+ */
+public interface DataSubscription {
+    /**
+     * Allow the publisher to send up to n more data. Demand adds up and is capped at {@link Long#MAX_VALUE}, which
+     * means no limit.
+     * @param n Number of data, must be positive
+     */
+    void request(long n);
+
+    /**
+     * Stop receiving data and stop the run: no new builders are started and the ones running are cancelled.
+     */
+    void cancel();
+}
@@ -6,7 +6,6 @@ import com.flipkart.databuilderframework.model.DataFlow;
 import com.flipkart.databuilderframework.model.ExecutionGraph;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
@@ -14,7 +13,7 @@ import java.util.*;
 
 /**
  * This class generates an {@link com.flipkart.databuilderframework.model.ExecutionGraph}.
- * It uses the target data and resolution spec provided in the {@link com.flipkart.databuilderframework.model.DataFlow}
+ * It uses the target data, including any additional target data, and resolution spec provided in the {@link com.flipkart.databuilderframework.model.DataFlow}
  * to generate a dependency list. This is used later by the {@link DataFlowExecutor}
  * to run the flow.
  */
@@ -30,6 +29,8 @@ public class ExecutionGraphGenerator {
      * Generates an {@link com.flipkart.databuilderframework.model.ExecutionGraph} for the given graph.
      * An exception is thrown if not target is specified, or there are multiple builders for the same data, but no
      * resolution is provided for the same(conflict).
+     * For flows with more than one target, a single graph is generated for all of them, with a builder placed by
+     * it's longest distance from any target.
      * @param dataFlow The {@link com.flipkart.databuilderframework.model.DataFlow} object to be analyzed
      * @return Returns the ExecutionGraph
      * @throws DataBuilderFrameworkException
@@ -42,17 +43,17 @@ public class ExecutionGraphGenerator {
         DependencyInfoManager dependencyInfoManager = new DependencyInfoManager();
 
         /**
-         * STEP 1:: GENERATE DEPENDENCY TREE {ROOT=>TARGET}
+         * STEP 1:: GENERATE DEPENDENCY TREE {ROOT=>TARGETS}
+         * Nodes are returned in post-order, i.e. every node comes after all the nodes it depends on.
          */
-        DependencyNode root
+        List<DependencyNode> postOrder
                 = TimedExecutor.run("ExecutionGraphGenerator::generateDependencyTree",
-                                                () -> generateDependencyTree(dataFlow.getTargetData(), dataFlow, null,
-                                                                   new DependencyNodeManager(), dependencyInfoManager,
-                                                                   new FlattenedDataRoute()));
+                                                () -> generateDependencyTree(dataFlow.getAllTargetData(), dataFlow,
+                                                                   dependencyInfoManager));
         /**
-         * STEP 2:: RANK NODES IN THE TREE ACCORDING TO DISTANCE FROM ROOT
+         * STEP 2:: RANK NODES IN THE TREE ACCORDING TO LONGEST DISTANCE FROM ROOT
          */
-        int maxHeight = TimedExecutor.run("ExecutionGraphGenerator::rankNodes", () -> rankNodes(root, 0));
+        int maxHeight = TimedExecutor.run("ExecutionGraphGenerator::rankNodes", () -> rankNodes(postOrder));
 
         /**
         STEP 3:: CREATE REPRESENTATION
@@ -120,58 +121,96 @@ public class ExecutionGraphGenerator {
         return dependencyHierarchy;
     }
 
-    private int rankNodes(DependencyNode root, int currentNode) {
-        if(root.getData().getRank() < currentNode) {
-            root.getData().setRank(currentNode);
+    /**
+     * Longest path ranking. Reverse post-order is a topological order with the root first, so a node's rank is
+     * final by the time it's dependencies are ranked. Runs in O(V+E).
+     * @return Number of ranks
+     */
+    private int rankNodes(List<DependencyNode> postOrder) {
+        int maxRank = 0;
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            DependencyNode node = postOrder.get(i);
+            final int rank = node.getData().getRank();
+            maxRank = Math.max(maxRank, rank);
+            for (DependencyNode child : node.getIncoming()) {
+                if (child.getData().getRank() < rank + 1) {
+                    child.getData().setRank(rank + 1);
+                }
+            }
         }
-        int childNode = currentNode + 1;
-        int returnValue = childNode;
-        for(DependencyNode child : root.getIncoming()) {
-            int val = rankNodes(child, childNode);
-            returnValue = Math.max(val, returnValue);
+        return maxRank + 1;
+    }
+
+    /**
+     * Iterative depth first traversal from the target data towards the inputs.
+     * A node is expanded only once. An edge to a node that is still being expanded, i.e. on the current path, closes
+     * a loop and is left out, so that the resulting graph is acyclic.
+     * Targets are traversed one after the other, sharing the nodes found so far. A traversal only adds nodes that were
+     * not reached before, and those can not be needed by earlier nodes, so the combined list stays in post-order.
+     * @return All reachable nodes in post-order
+     */
+    private List<DependencyNode> generateDependencyTree(final Collection<String> targets, DataFlow dataFlow,
+                                                        DependencyInfoManager dependencyInfoManager) throws DataBuilderFrameworkException {
+        Map<String, DependencyNode> nodes = Maps.newHashMap();
+        List<DependencyNode> postOrder = Lists.newArrayList();
+        for (String target : targets) {
+            if (!nodes.containsKey(target)) {
+                traverse(target, dataFlow, nodes, postOrder, dependencyInfoManager);
+            }
         }
-        return returnValue;
+        return postOrder;
     }
 
-    private DependencyNode generateDependencyTree(final String data, DataFlow dataFlow,
-                                                  DependencyInfo outgoing,
-                                                  DependencyNodeManager dependencyNodeManager,
-                                                  DependencyInfoManager dependencyInfoManager,
-                                                  FlattenedDataRoute routeMeta) throws DataBuilderFrameworkException {
-        DependencyNode root = dependencyNodeManager.get(data);
-        if(root.getData() != null ) {
-            log.debug("Precomputed dependency tree found for data: {}", data);
-            return root;
+    private void traverse(final String target, DataFlow dataFlow,
+                          Map<String, DependencyNode> nodes,
+                          List<DependencyNode> postOrder,
+                          DependencyInfoManager dependencyInfoManager) throws DataBuilderFrameworkException {
+        Deque<DependencyNode> path = new ArrayDeque<>();
+        path.push(expand(target, dataFlow, nodes, dependencyInfoManager));
+        while (!path.isEmpty()) {
+            DependencyNode current = path.peek();
+            if (!current.getPending().hasNext()) {
+                path.pop();
+                current.setInProgress(false);
+                current.setPending(null);
+                postOrder.add(current);
+                continue;
+            }
+            final String data = current.getData().getData();
+            final String consumes = current.getPending().next();
+            DependencyNode child = nodes.get(consumes);
+            if (null != child && child.isInProgress()) {
+                log.warn("Loop detected: Path for {} already contains {}", consumes, data);
+                continue;
+            }
+            if (null == child) {
+                child = expand(consumes, dataFlow, nodes, dependencyInfoManager);
+                path.push(child);
+            }
+            current.getIncoming().add(child);
         }
+    }
+
+    private DependencyNode expand(final String data, DataFlow dataFlow,
+                                  Map<String, DependencyNode> nodes,
+                                  DependencyInfoManager dependencyInfoManager) throws DataBuilderFrameworkException {
         log.debug("Generating dependency tree for: {}", data);
-        List<DependencyNode> incoming = Lists.newArrayList();
         DataBuilderMeta dataBuilderMeta = findBuilder(data, dataFlow);
         DependencyInfo info = dependencyInfoManager.get(data);
         if(null == info.getData()) {
             info.setData(data);
         }
+        DependencyNode node = new DependencyNode(info);
         if(null != dataBuilderMeta) {
             if(null == info.getBuilder()) {
                 info.setBuilder(dataBuilderMeta.getName());
             }
-            for(String consumes : dataBuilderMeta.getEffectiveConsumes()) {
-                if(routeMeta.isAlreadyOnOutgoingPath(data, consumes)) {
-                    log.warn("Loop detected: Path for {} already contains {}", consumes, data);
-                    continue;
-                }
-                routeMeta.addOutputData(consumes, data);
-                DependencyNode childnode = generateDependencyTree(consumes, dataFlow, info,
-                                                dependencyNodeManager, dependencyInfoManager, routeMeta);
-                incoming.add(childnode);
-            }
+            node.setPending(dataBuilderMeta.getEffectiveConsumes().iterator());
+        } else {
+            node.setPending(Collections.<String>emptyIterator());
         }
-        root.setData(info);
-        root.setIncoming(incoming);
-        if(null != outgoing) {
-            root.getOutgoing().add(outgoing);
-        }
-
-        return root;
+        nodes.put(data, node);
+        return node;
     }
 
     private DataBuilderMeta findBuilder(String data, DataFlow dataFlow) throws DataBuilderFrameworkException {
@@ -204,27 +243,6 @@ public class ExecutionGraphGenerator {
         return producerMeta;
     }
 
-    private static class FlattenedDataRoute {
-        private Map<String, Set<String>> outgoingMap = Maps.newHashMap();
-
-        public void addOutputData(String input, String output) {
-            if(!outgoingMap.containsKey(input)) {
-                outgoingMap.put(input, Sets.<String>newHashSet());
-            }
-            outgoingMap.get(input).add(output);
-            if(outgoingMap.containsKey(output)) {
-                outgoingMap.get(input).addAll(outgoingMap.get(output)); //My output's outputs are my outputs also
-            }
-        }
-
-        public boolean isAlreadyOnOutgoingPath(String input, String output) {
-            if(!outgoingMap.containsKey(input)) {
-                return false;
-            }
-            return outgoingMap.get(input).contains(output);
-        }
-    }
-
     @Data
     private static class DependencyInfo {
         private String data;
@@ -244,20 +262,9 @@ public class ExecutionGraphGenerator {
 
     @Data
     private static class DependencyNode {
-        private DependencyInfo data;
-        private List<DependencyNode> incoming = Lists.newArrayList();
-        private Set<DependencyInfo> outgoing = Sets.newLinkedHashSet();
-    }
-
-    private static class DependencyNodeManager {
-        private Map<String, DependencyNode> dataList = Maps.newHashMap();
-
-        DependencyNode get(String data) {
-            if(!dataList.containsKey(data)) {
-                dataList.put(data, new DependencyNode());
-            }
-            return dataList.get(data);
-        }
-
+        private final DependencyInfo data;
+        private final List<DependencyNode> incoming = Lists.newArrayList();
+        private Iterator<String> pending;
+        private boolean inProgress = true;
     }
 }
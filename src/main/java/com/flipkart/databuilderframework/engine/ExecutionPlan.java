@@ -0,0 +1,478 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.ExecutionGraph;
+import com.flipkart.databuilderframework.model.TargetCompletion;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compiled form of the {@link com.flipkart.databuilderframework.model.ExecutionGraph} of a
+ * {@link com.flipkart.databuilderframework.model.DataFlow}.
+ * Every data name and builder gets a dense integer id. Builder ids follow the order of the dependency hierarchy, so
+ * builders of a level occupy a contiguous range of ids. The consumes, optionals and access sets of the builders are
+ * stored as {@link BitSet}s over data ids, so that the executors can check readiness of a builder without hashing
+ * strings or creating set views.
+ * <br>
+ * The plan is immutable and is shared by all executions of a flow. Use {@link #of(DataFlow)} to get the cached plan
+ * for a flow.
+ */
+public final class ExecutionPlan {
+    private static final int[] NO_BUILDERS = new int[0];
+
+    private final Map<String, Integer> dataIds;
+    private final String[] dataNames;
+    private final DataBuilderMeta[] builders;
+    private final int[] builderLevels;
+    private final int[] levelStarts;
+    private final int[] produces;
+    private final BitSet[] consumes;
+    private final BitSet[] effectiveConsumes;
+    private final BitSet[] accessible;
+    private final int[][] accessibleSlots;
+    private final int[][] consumers;
+    private final int[][] producers;
+    private final BitSet trackedData;
+    private final BitSet requiredData;
+    private final BitSet allBuilders;
+    private final Map<BitSet, BitSet> specialisations;
+    private final int target;
+    private final BitSet targets;
+    private final boolean anyTarget;
+
+    private ExecutionPlan(DataFlow dataFlow) {
+        ExecutionGraph executionGraph = dataFlow.getExecutionGraph();
+        Preconditions.checkNotNull(executionGraph, "No execution graph found for flow");
+        List<List<DataBuilderMeta>> dependencyHierarchy = executionGraph.getDependencyHierarchy();
+        this.dataIds = Maps.newHashMap();
+        List<String> names = Lists.newArrayList();
+        List<DataBuilderMeta> builderList = Lists.newArrayList();
+        this.levelStarts = new int[dependencyHierarchy.size() + 1];
+        for (int level = 0; level < dependencyHierarchy.size(); level++) {
+            levelStarts[level] = builderList.size();
+            for (DataBuilderMeta builderMeta : dependencyHierarchy.get(level)) {
+                builderList.add(builderMeta);
+                register(builderMeta.getProduces(), names);
+                register(builderMeta.getAccessibleDataSet(), names);
+            }
+        }
+        levelStarts[dependencyHierarchy.size()] = builderList.size();
+        this.target = null == dataFlow.getTargetData() ? -1 : register(dataFlow.getTargetData(), names);
+        List<Integer> targetIds = Lists.newArrayList();
+        for (String targetData : dataFlow.getAllTargetData()) {
+            targetIds.add(register(targetData, names));
+        }
+        this.anyTarget = TargetCompletion.ANY == dataFlow.getTargetCompletion();
+        this.dataNames = names.toArray(new String[names.size()]);
+        this.builders = builderList.toArray(new DataBuilderMeta[builderList.size()]);
+
+        final int builderCount = builders.length;
+        this.builderLevels = new int[builderCount];
+        this.produces = new int[builderCount];
+        this.consumes = new BitSet[builderCount];
+        this.effectiveConsumes = new BitSet[builderCount];
+        this.accessible = new BitSet[builderCount];
+        this.accessibleSlots = new int[builderCount][];
+        List<List<Integer>> consumerList = Lists.newArrayListWithCapacity(dataNames.length);
+        List<List<Integer>> producerList = Lists.newArrayListWithCapacity(dataNames.length);
+        for (int dataId = 0; dataId < dataNames.length; dataId++) {
+            consumerList.add(Lists.newArrayList());
+            producerList.add(Lists.newArrayList());
+        }
+        for (int level = 0; level < dependencyHierarchy.size(); level++) {
+            for (int builderId = levelStarts[level]; builderId < levelStarts[level + 1]; builderId++) {
+                DataBuilderMeta builderMeta = builders[builderId];
+                builderLevels[builderId] = level;
+                produces[builderId] = dataIds.get(builderMeta.getProduces());
+                producerList.get(produces[builderId]).add(builderId);
+                consumes[builderId] = dataSet(builderMeta.getConsumes());
+                effectiveConsumes[builderId] = dataSet(builderMeta.getEffectiveConsumes());
+                accessible[builderId] = dataSet(builderMeta.getAccessibleDataSet());
+                accessibleSlots[builderId] = accessible[builderId].stream().toArray();
+                for (int dataId = effectiveConsumes[builderId].nextSetBit(0);
+                     dataId >= 0;
+                     dataId = effectiveConsumes[builderId].nextSetBit(dataId + 1)) {
+                    consumerList.get(dataId).add(builderId);
+                }
+            }
+        }
+        //Data that some builder can not run without
+        this.requiredData = new BitSet(dataNames.length);
+        for (BitSet builderConsumes : consumes) {
+            requiredData.or(builderConsumes);
+        }
+        this.targets = new BitSet(dataNames.length);
+        for (int targetId : targetIds) {
+            targets.set(targetId);
+        }
+        requiredData.or(targets);
+        this.consumers = new int[dataNames.length][];
+        this.producers = new int[dataNames.length][];
+        for (int dataId = 0; dataId < dataNames.length; dataId++) {
+            consumers[dataId] = toArray(consumerList.get(dataId));
+            producers[dataId] = toArray(producerList.get(dataId));
+        }
+        //Mirrors the executors: generated data is tracked for loops only if the flow specifies transients
+        Set<String> transients = dataFlow.getTransients();
+        if (null != transients) {
+            this.trackedData = new BitSet(dataNames.length);
+            trackedData.set(0, dataNames.length);
+            for (String transientData : transients) {
+                Integer dataId = dataIds.get(transientData);
+                if (null != dataId) {
+                    trackedData.clear(dataId);
+                }
+            }
+        } else {
+            this.trackedData = null;
+        }
+        this.allBuilders = new BitSet(builderCount);
+        allBuilders.set(0, builderCount);
+        //Partial evaluation for the inputs the flow is known to be run with
+        this.specialisations = Maps.newHashMap();
+        Set<Set<String>> assumedInputs = dataFlow.getAssumedInputs();
+        if (null != assumedInputs) {
+            for (Set<String> inputs : assumedInputs) {
+                BitSet inputData = dataSet(inputs);
+                specialisations.put(inputData, reachableFrom(inputData));
+            }
+        }
+    }
+
+    /**
+     * Compile a plan for the given flow. The flow must have an execution graph.
+     * @param dataFlow Flow to be compiled
+     * @return A new plan
+     */
+    public static ExecutionPlan compile(DataFlow dataFlow) {
+        return new ExecutionPlan(dataFlow);
+    }
+
+    /**
+     * Get the plan for a flow. The plan is compiled and stored on the flow when it is used for the first time.
+     * Changing the graph, target or transients of the flow using the setters discards the stored plan.
+     * @param dataFlow Flow to get the plan for
+     * @return The plan for this flow
+     */
+    public static ExecutionPlan of(DataFlow dataFlow) {
+        ExecutionPlan executionPlan = dataFlow.getExecutionPlan();
+        if (null == executionPlan) {
+            executionPlan = compile(dataFlow);
+            dataFlow.setExecutionPlan(executionPlan);
+        }
+        return executionPlan;
+    }
+
+    public int dataCount() {
+        return dataNames.length;
+    }
+
+    public int builderCount() {
+        return builders.length;
+    }
+
+    public int levelCount() {
+        return levelStarts.length - 1;
+    }
+
+    /**
+     * Id of the first builder in a level.
+     */
+    public int levelStart(int level) {
+        return levelStarts[level];
+    }
+
+    /**
+     * Id after the last builder in a level.
+     */
+    public int levelEnd(int level) {
+        return levelStarts[level + 1];
+    }
+
+    public DataBuilderMeta builder(int builderId) {
+        return builders[builderId];
+    }
+
+    public int level(int builderId) {
+        return builderLevels[builderId];
+    }
+
+    /**
+     * Id of the data generated by a builder.
+     */
+    public int produces(int builderId) {
+        return produces[builderId];
+    }
+
+    /**
+     * Ids of the data a builder can access. This includes consumes, optionals and access.
+     */
+    public BitSet accessible(int builderId) {
+        return accessible[builderId];
+    }
+
+    /**
+     * Ids of the data a builder can access, in increasing order.
+     */
+    public int[] accessibleSlots(int builderId) {
+        return accessibleSlots[builderId];
+    }
+
+    /**
+     * Ids of builders that consume or optionally consume a data, in increasing order.
+     */
+    public int[] consumers(int dataId) {
+        return consumers[dataId];
+    }
+
+    /**
+     * Add the builders that consume or optionally consume a data to a set of builder ids.
+     */
+    public void addConsumers(int dataId, BitSet builderIds) {
+        for (int builderId : consumers[dataId]) {
+            builderIds.set(builderId);
+        }
+    }
+
+    /**
+     * Builders that are triggered by any of the given data. Same as the builders for which
+     * {@link #isTriggered(int, BitSet)} is true, without going over all builders.
+     */
+    public BitSet triggeredBy(BitSet data) {
+        BitSet builderIds = new BitSet(builders.length);
+        for (int dataId = data.nextSetBit(0); dataId >= 0; dataId = data.nextSetBit(dataId + 1)) {
+            addConsumers(dataId, builderIds);
+        }
+        return builderIds;
+    }
+
+    /**
+     * Builders that can be triggered in an execution that starts with the given data in the delta. Only these builders
+     * can run, as a builder runs when some of it's inputs are in the delta or have been generated in the execution.
+     * @param data Ids of the data in the delta
+     * @return Ids of builders
+     */
+    public BitSet reachableFrom(BitSet data) {
+        BitSet reachableBuilders = new BitSet(builders.length);
+        BitSet reachableData = (BitSet) data.clone();
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int dataId = data.nextSetBit(0); dataId >= 0; dataId = data.nextSetBit(dataId + 1)) {
+            pending.push(dataId);
+        }
+        while (!pending.isEmpty()) {
+            for (int builderId : consumers[pending.pop()]) {
+                if (reachableBuilders.get(builderId)) {
+                    continue;
+                }
+                reachableBuilders.set(builderId);
+                int dataId = produces[builderId];
+                if (!reachableData.get(dataId)) {
+                    reachableData.set(dataId);
+                    pending.push(dataId);
+                }
+            }
+        }
+        return reachableBuilders;
+    }
+
+    /**
+     * Builders to look at in an execution that starts with the given data in the delta. If the data matches one of the
+     * assumed inputs of the flow, these are the builders reachable from it, computed when the plan was compiled.
+     * Otherwise these are all builders. The returned set is shared and must not be modified.
+     * @param data Ids of the data in the delta
+     * @return Ids of builders
+     */
+    public BitSet candidateBuilders(BitSet data) {
+        BitSet candidates = specialisations.get(data);
+        return null == candidates ? allBuilders : candidates;
+    }
+
+    /**
+     * Check if the plan has been specialised for the given data in the delta.
+     */
+    public boolean isSpecialisedFor(BitSet data) {
+        return specialisations.containsKey(data);
+    }
+
+    /**
+     * Builders that are not needed to generate the targets, given the available data. The rest are found by chaining
+     * back from the targets that are not available: a builder is needed if it produces a needed data that is not
+     * available, and all the data it consumes, including optionally, is needed. Available data is never needed again.
+     * If the flow is complete with the available data all builders are returned, and none if the flow does not have a
+     * target.
+     * @param availableData Ids of the data available at the start of the execution
+     * @return Ids of the builders that need not be run
+     */
+    public BitSet unneededBuilders(BitSet availableData) {
+        BitSet unneeded = new BitSet(builders.length);
+        if (targets.isEmpty()) {
+            return unneeded;
+        }
+        unneeded.set(0, builders.length);
+        if (anyTarget && targets.intersects(availableData)) {
+            return unneeded;
+        }
+        BitSet neededData = (BitSet) targets.clone();
+        neededData.andNot(availableData);
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int dataId = neededData.nextSetBit(0); dataId >= 0; dataId = neededData.nextSetBit(dataId + 1)) {
+            pending.push(dataId);
+        }
+        while (!pending.isEmpty()) {
+            for (int builderId : producers[pending.pop()]) {
+                if (!unneeded.get(builderId)) {
+                    continue;
+                }
+                unneeded.clear(builderId);
+                BitSet inputs = effectiveConsumes[builderId];
+                for (int dataId = inputs.nextSetBit(0); dataId >= 0; dataId = inputs.nextSetBit(dataId + 1)) {
+                    if (!availableData.get(dataId) && !neededData.get(dataId)) {
+                        neededData.set(dataId);
+                        pending.push(dataId);
+                    }
+                }
+            }
+        }
+        return unneeded;
+    }
+
+    /**
+     * Id for a data name.
+     * @return The id of the data or -1 if the data is not used in this flow
+     */
+    public int dataId(String data) {
+        Integer dataId = dataIds.get(data);
+        return null == dataId ? -1 : dataId;
+    }
+
+    public String dataName(int dataId) {
+        return dataNames[dataId];
+    }
+
+    /**
+     * Id of the target data of the flow, -1 if the flow does not have a target. See {@link #targets()} for flows with
+     * additional target data.
+     */
+    public int target() {
+        return target;
+    }
+
+    /**
+     * Check if generating this data should make the executor go for another pass over the graph.
+     * This is false for all data if the flow does not specify transients.
+     */
+    public boolean isTracked(int dataId) {
+        return null != trackedData && trackedData.get(dataId);
+    }
+
+    /**
+     * Check if the data produced by a builder is only consumed optionally, i.e. the flow can do without it.
+     */
+    public boolean isOptionalOnly(int builderId) {
+        return !requiredData.get(produces[builderId]);
+    }
+
+    /**
+     * Check if any of the inputs of a builder, including optional ones, is in the active set.
+     */
+    public boolean isTriggered(int builderId, BitSet activeData) {
+        return effectiveConsumes[builderId].intersects(activeData);
+    }
+
+    /**
+     * Check if all the mandatory inputs of a builder are available.
+     */
+    public boolean isSatisfied(int builderId, BitSet availableData) {
+        BitSet required = consumes[builderId];
+        for (int dataId = required.nextSetBit(0); dataId >= 0; dataId = required.nextSetBit(dataId + 1)) {
+            if (!availableData.get(dataId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the given set completes the flow: it has all the targets of the flow, or any one of them if the flow
+     * completes on {@link TargetCompletion#ANY}. Same as having the target for flows with a single target.
+     */
+    public boolean containsTarget(BitSet data) {
+        if (targets.isEmpty()) {
+            return false;
+        }
+        if (anyTarget) {
+            return targets.intersects(data);
+        }
+        BitSet missing = (BitSet) targets.clone();
+        missing.andNot(data);
+        return missing.isEmpty();
+    }
+
+    /**
+     * Check if the execution should end as soon as this data is generated, without running any more builders. This is
+     * true for the targets of flows that complete on {@link TargetCompletion#ANY}.
+     */
+    public boolean endsExecution(int dataId) {
+        return anyTarget && targets.get(dataId);
+    }
+
+    /**
+     * Ids of all the target data of the flow. The returned set is shared and must not be modified.
+     */
+    public BitSet targets() {
+        return targets;
+    }
+
+    /**
+     * Convert data names to a set of ids. Names not used in this flow are ignored.
+     */
+    public BitSet dataSet(Collection<String> data) {
+        BitSet bitSet = new BitSet(dataNames.length);
+        if (null != data) {
+            for (String name : data) {
+                Integer dataId = dataIds.get(name);
+                if (null != dataId) {
+                    bitSet.set(dataId);
+                }
+            }
+        }
+        return bitSet;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionPlan{data=" + dataNames.length + ", builders=" + builders.length + ", levels=" + levelCount() + "}";
+    }
+
+    private static int[] toArray(List<Integer> builderIds) {
+        return builderIds.isEmpty()
+                ? NO_BUILDERS
+                : builderIds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int register(String data, List<String> names) {
+        Integer dataId = dataIds.get(data);
+        if (null == dataId) {
+            dataId = names.size();
+            dataIds.put(data, dataId);
+            names.add(data);
+        }
+        return dataId;
+    }
+
+    private void register(Collection<String> data, List<String> names) {
+        for (String name : data) {
+            register(name, names);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging for a builder with long-tailed latency, usually one calling a replicated backend.
+ * If the builder has not completed by the given percentile of it's recent latencies, the
+ * {@link MultiThreadedDataFlowExecutor} and {@link OptimizedMultiThreadedDataFlowExecutor} start a second invocation
+ * on the pool and use whichever finishes first. The other one is cancelled.
+ * <br>
+ * The number of hedges is capped to a fraction of the invocations, so that a slow backend does not get twice the load.
+ * A policy keeps the latency statistics of one builder and must not be shared between builders. It is thread safe.
+ * <br>
+ * Hedges get a new builder from the {@link DataBuilderFactory}. Factories that return the same instance every time
+ * need builders that can be run concurrently.
+ */
+public class HedgingPolicy {
+    public static final int DEFAULT_WINDOW_SIZE = 128;
+    public static final int MIN_SAMPLES = 16;
+
+    private final double percentile;
+    private final double maxHedgeRate;
+    private final long[] latencies;
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private int next = 0;
+    private int samples = 0;
+
+    /**
+     * @param percentile   Percentile of recent latencies after which a hedge is started, for example 0.95
+     * @param maxHedgeRate Maximum fraction of invocations that can be hedged, for example 0.05
+     */
+    public HedgingPolicy(double percentile, double maxHedgeRate) {
+        this(percentile, maxHedgeRate, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param percentile   Percentile of recent latencies after which a hedge is started, for example 0.95
+     * @param maxHedgeRate Maximum fraction of invocations that can be hedged, for example 0.05
+     * @param windowSize   Number of recent latencies the percentile is computed over
+     */
+    public HedgingPolicy(double percentile, double maxHedgeRate, int windowSize) {
+        Preconditions.checkArgument(percentile > 0 && percentile < 1, "Percentile must be between 0 and 1");
+        Preconditions.checkArgument(maxHedgeRate >= 0 && maxHedgeRate <= 1, "Hedge rate must be between 0 and 1");
+        Preconditions.checkArgument(windowSize >= MIN_SAMPLES, "Window must hold at least %s samples", MIN_SAMPLES);
+        this.percentile = percentile;
+        this.maxHedgeRate = maxHedgeRate;
+        this.latencies = new long[windowSize];
+    }
+
+    /**
+     * Time after which an invocation started now is to be hedged.
+     * @param unit Unit for the returned value
+     * @return Delay for the hedge, -1 if not enough latencies have been recorded yet
+     */
+    public synchronized long hedgeDelay(TimeUnit unit) {
+        if (samples < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        int index = Math.min(samples - 1, (int) Math.ceil(percentile * samples) - 1);
+        return unit.convert(sorted[Math.max(0, index)], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the latency of a successful invocation.
+     */
+    public synchronized void record(long latency, TimeUnit unit) {
+        latencies[next] = unit.toNanos(latency);
+        next = (next + 1) % latencies.length;
+        samples = Math.min(samples + 1, latencies.length);
+    }
+
+    public long getInvocationCount() {
+        return invocations.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    void invoked() {
+        invocations.incrementAndGet();
+    }
+
+    /**
+     * Acquire permission to hedge an invocation.
+     * @return false if the hedge rate would go over the limit
+     */
+    boolean tryHedge() {
+        while (true) {
+            long current = hedges.get();
+            if (current + 1 > maxHedgeRate * invocations.get()) {
+                return false;
+            }
+            if (hedges.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+}
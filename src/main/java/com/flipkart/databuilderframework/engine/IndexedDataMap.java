@@ -0,0 +1,368 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map of data name to {@link com.flipkart.databuilderframework.model.Data} backed by slots indexed by the
+ * data ids of an {@link ExecutionPlan}. Data not known to the plan is kept in a small overflow map, so this is a
+ * drop-in replacement for the map inside a {@link com.flipkart.databuilderframework.model.DataSet}.
+ * <br>
+ * Slots are stored in fixed size chunks that are shared between copies. A copy only clones the chunk table, and a
+ * chunk is cloned the first time either map writes to it. So copying a map and changing a few entries costs in
+ * proportion to the number of entries changed rather than the size of the map. The executors use this for their
+ * working copy of the data set and for the snapshot stored back on the instance, so the data sets of consecutive
+ * steps of a flow instance share structure and old snapshots are cheap to keep around.
+ * <br>
+ * This class is not thread safe. Copying a map counts as a write to it.
+ */
+public class IndexedDataMap extends AbstractMap<String, Data> {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ExecutionPlan executionPlan;
+    private final Data[][] chunks;
+    private final Object[] chunkOwners;
+    private Object owner = new Object();
+    private int slotCount;
+    private Map<String, Data> overflow;
+    private Object overflowOwner;
+    private transient Set<Entry<String, Data>> entrySet;
+
+    public IndexedDataMap(ExecutionPlan executionPlan) {
+        this.executionPlan = executionPlan;
+        final int chunkCount = (executionPlan.dataCount() + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.chunks = new Data[chunkCount][];
+        this.chunkOwners = new Object[chunkCount];
+    }
+
+    private IndexedDataMap(IndexedDataMap source) {
+        this.executionPlan = source.executionPlan;
+        this.chunks = source.chunks.clone();
+        this.chunkOwners = new Object[chunks.length];
+        this.slotCount = source.slotCount;
+        this.overflow = source.overflow;
+    }
+
+    /**
+     * Create a map for the given plan containing all the data in the source map.
+     * If the source is already an {@link IndexedDataMap} for the same plan, this is an array copy.
+     */
+    public static IndexedDataMap copyOf(ExecutionPlan executionPlan, Map<String, Data> source) {
+        if (source instanceof IndexedDataMap && ((IndexedDataMap) source).executionPlan == executionPlan) {
+            return ((IndexedDataMap) source).copy();
+        }
+        IndexedDataMap indexedDataMap = new IndexedDataMap(executionPlan);
+        indexedDataMap.putAll(source);
+        return indexedDataMap;
+    }
+
+    public ExecutionPlan getExecutionPlan() {
+        return executionPlan;
+    }
+
+    /**
+     * Get data by plan id.
+     */
+    public Data get(int dataId) {
+        Data[] chunk = chunks[dataId >>> CHUNK_SHIFT];
+        return null == chunk ? null : chunk[dataId & CHUNK_MASK];
+    }
+
+    /**
+     * Check presence of data by plan id.
+     */
+    public boolean contains(int dataId) {
+        return null != get(dataId);
+    }
+
+    /**
+     * Ids of all data present in the slots.
+     */
+    public BitSet dataIds() {
+        BitSet dataIds = new BitSet(executionPlan.dataCount());
+        for (int chunkId = 0; chunkId < chunks.length; chunkId++) {
+            Data[] chunk = chunks[chunkId];
+            if (null == chunk) {
+                continue;
+            }
+            for (int index = 0; index < CHUNK_SIZE; index++) {
+                if (null != chunk[index]) {
+                    dataIds.set((chunkId << CHUNK_SHIFT) | index);
+                }
+            }
+        }
+        return dataIds;
+    }
+
+    /**
+     * Get a copy of this map. The copy shares all chunks with this map till one of them is changed.
+     */
+    public IndexedDataMap copy() {
+        //Both maps lose ownership of the chunks they had, so that neither can change the shared ones in place
+        owner = new Object();
+        return new IndexedDataMap(this);
+    }
+
+    /**
+     * Get a copy of this map without the specified data.
+     * @param excluded Names of the data to be left out. Can be null.
+     */
+    public IndexedDataMap copy(Set<String> excluded) {
+        IndexedDataMap copy = copy();
+        if (null != excluded && !excluded.isEmpty()) {
+            BitSet excludedIds = executionPlan.dataSet(excluded);
+            for (int dataId = excludedIds.nextSetBit(0); dataId >= 0; dataId = excludedIds.nextSetBit(dataId + 1)) {
+                copy.clearSlot(dataId);
+            }
+            if (null != copy.overflow && !Collections.disjoint(copy.overflow.keySet(), excluded)) {
+                copy.writableOverflow().keySet().removeAll(excluded);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Get a read-only view of the data a builder of the plan can access. The view reads through to this map and
+     * looks up data by the precomputed ids of the builder, so it costs the same for any number of accessible data.
+     * @param builderId Id of the builder in the plan
+     */
+    public Map<String, Data> scopedTo(int builderId) {
+        return new ScopedDataMap(this, builderId);
+    }
+
+    @Override
+    public int size() {
+        return slotCount + (null == overflow ? 0 : overflow.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return null != get(key);
+    }
+
+    @Override
+    public Data get(Object key) {
+        int dataId = dataId(key);
+        if (dataId >= 0) {
+            return get(dataId);
+        }
+        return null == overflow ? null : overflow.get(key);
+    }
+
+    @Override
+    public Data put(String key, Data value) {
+        if (null == value) {
+            return remove(key);
+        }
+        int dataId = executionPlan.dataId(key);
+        if (dataId >= 0) {
+            Data previous = setSlot(dataId, value);
+            if (null == previous) {
+                slotCount++;
+            }
+            return previous;
+        }
+        return writableOverflow().put(key, value);
+    }
+
+    @Override
+    public Data remove(Object key) {
+        int dataId = dataId(key);
+        if (dataId >= 0) {
+            return clearSlot(dataId);
+        }
+        if (null == overflow || !overflow.containsKey(key)) {
+            return null;
+        }
+        return writableOverflow().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(chunks, null);
+        //Owned chunks are gone, so the next write to a slot needs to allocate a chunk again
+        Arrays.fill(chunkOwners, null);
+        slotCount = 0;
+        overflow = null;
+    }
+
+    @Override
+    public Set<Entry<String, Data>> entrySet() {
+        if (null == entrySet) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private Data clearSlot(int dataId) {
+        if (null == get(dataId)) {
+            return null;
+        }
+        slotCount--;
+        return setSlot(dataId, null);
+    }
+
+    private Data setSlot(int dataId, Data value) {
+        final int chunkId = dataId >>> CHUNK_SHIFT;
+        Data[] chunk = chunks[chunkId];
+        if (chunkOwners[chunkId] != owner) {
+            chunk = null == chunk ? new Data[CHUNK_SIZE] : chunk.clone();
+            chunks[chunkId] = chunk;
+            chunkOwners[chunkId] = owner;
+        }
+        Data previous = chunk[dataId & CHUNK_MASK];
+        chunk[dataId & CHUNK_MASK] = value;
+        return previous;
+    }
+
+    private Map<String, Data> writableOverflow() {
+        if (null == overflow) {
+            overflow = Maps.newHashMap();
+        } else if (overflowOwner != owner) {
+            overflow = Maps.newHashMap(overflow);
+        }
+        overflowOwner = owner;
+        return overflow;
+    }
+
+    private int dataId(Object key) {
+        return key instanceof String ? executionPlan.dataId((String) key) : -1;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Data>> {
+        @Override
+        public int size() {
+            return IndexedDataMap.this.size();
+        }
+
+        @Override
+        public Iterator<Entry<String, Data>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Data>> {
+        private final int slotLimit = chunks.length << CHUNK_SHIFT;
+        private int nextSlot = -1;
+        private int lastSlot = -1;
+        private Iterator<Entry<String, Data>> overflowIterator;
+        private boolean inOverflow = false;
+
+        private EntryIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextSlot < slotLimit) {
+                return true;
+            }
+            if (null == overflowIterator) {
+                overflowIterator = null == overflow
+                        ? null
+                        : overflow.entrySet().iterator();
+            }
+            return null != overflowIterator && overflowIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Data> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextSlot < slotLimit) {
+                lastSlot = nextSlot;
+                advance();
+                return new SlotEntry(lastSlot);
+            }
+            inOverflow = true;
+            return overflowIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (inOverflow) {
+                //Iterating over a shared overflow map would change the other copies as well
+                Preconditions.checkState(overflowOwner == owner, "Iterate over a copy to remove overflow data");
+                overflowIterator.remove();
+                return;
+            }
+            if (lastSlot < 0) {
+                throw new IllegalStateException();
+            }
+            clearSlot(lastSlot);
+            lastSlot = -1;
+        }
+
+        private void advance() {
+            do {
+                nextSlot++;
+                if ((nextSlot & CHUNK_MASK) == 0) {
+                    //Skip chunks that were never written to
+                    while (nextSlot < slotLimit && null == chunks[nextSlot >>> CHUNK_SHIFT]) {
+                        nextSlot += CHUNK_SIZE;
+                    }
+                }
+            } while (nextSlot < slotLimit && null == get(nextSlot));
+        }
+    }
+
+    private final class SlotEntry implements Entry<String, Data> {
+        private final int dataId;
+
+        private SlotEntry(int dataId) {
+            this.dataId = dataId;
+        }
+
+        @Override
+        public String getKey() {
+            return executionPlan.dataName(dataId);
+        }
+
+        @Override
+        public Data getValue() {
+            return get(dataId);
+        }
+
+        @Override
+        public Data setValue(Data value) {
+            if (null == value) {
+                throw new NullPointerException("Null data cannot be stored");
+            }
+            return setSlot(dataId, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.flipkart.databuilderframework.model.DataSet;
+import com.google.common.collect.ImmutableSortedMap;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Identifies an invocation of a builder by it's name and the {@link Data#fingerprint()} of every data it can access.
+ * Two invocations with the same key generate the same data if the builder is idempotent.
+ */
+@Value
+public class InvocationKey {
+    private final String builderName;
+    private final Map<String, String> fingerprints;
+
+    /**
+     * Key for invoking a builder with the given data.
+     * @return The key or null if some data in the set does not have a fingerprint
+     */
+    static InvocationKey of(DataBuilderMeta builderMeta, DataSet accessibleDataSet) {
+        ImmutableSortedMap.Builder<String, String> fingerprints = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, Data> entry : accessibleDataSet.getAvailableData().entrySet()) {
+            String fingerprint = entry.getValue().fingerprint();
+            if (null == fingerprint) {
+                return null;
+            }
+            fingerprints.put(entry.getKey(), fingerprint);
+        }
+        return new InvocationKey(builderMeta.getName(), fingerprints.build());
+    }
+}
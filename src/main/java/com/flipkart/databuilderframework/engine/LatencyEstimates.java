@@ -0,0 +1,59 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency estimates for builders, kept by an executor across runs as an exponentially weighted moving average.
+ * These are used to find the builders on the critical path of a flow, so that they can be started before builders
+ * that have time to spare when the pool is saturated.
+ */
+final class LatencyEstimates {
+    /**
+     * Weight of the latest sample.
+     */
+    static final double ALPHA = 0.2;
+    /**
+     * Estimate for builders that have not run yet. Without any samples, the critical path is the longest chain.
+     */
+    static final double DEFAULT_ESTIMATE = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, Double> estimates = Maps.newConcurrentMap();
+
+    void record(String builderName, long latencyNanos) {
+        estimates.merge(builderName, (double) latencyNanos,
+                        (estimate, sample) -> estimate + ALPHA * (sample - estimate));
+    }
+
+    double estimate(String builderName) {
+        Double estimate = estimates.get(builderName);
+        return null == estimate ? DEFAULT_ESTIMATE : estimate;
+    }
+
+    /**
+     * Estimated time from the start of every builder in the plan till the end of the longest chain of builders that
+     * consume it's data, including the builder itself. Builders of higher levels come later in the plan, so a single
+     * pass from the last builder is enough.
+     * @param executionPlan Plan for the flow
+     * @return Remaining critical path length indexed by builder id
+     */
+    double[] criticalPaths(ExecutionPlan executionPlan) {
+        double[] criticalPaths = new double[executionPlan.builderCount()];
+        for (int builderId = executionPlan.builderCount() - 1; builderId >= 0; builderId--) {
+            double downstream = 0;
+            final int level = executionPlan.level(builderId);
+            final int produces = executionPlan.produces(builderId);
+            if (produces >= 0) {
+                for (int consumerId : executionPlan.consumers(produces)) {
+                    if (executionPlan.level(consumerId) > level) {
+                        downstream = Math.max(downstream, criticalPaths[consumerId]);
+                    }
+                }
+            }
+            criticalPaths[builderId] = estimate(executionPlan.builder(builderId).getName()) + downstream;
+        }
+        return criticalPaths;
+    }
+}
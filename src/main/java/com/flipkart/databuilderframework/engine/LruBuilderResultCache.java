@@ -0,0 +1,118 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.google.common.base.Preconditions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BuilderResultCache} that keeps up to a fixed number of entries in the heap and evicts the least recently
+ * used one to make space. Expired entries are dropped when they are looked up.
+ * This class is thread safe.
+ */
+public class LruBuilderResultCache implements BuilderResultCache {
+    private static final class Entry {
+        private final Data data;
+        private final long expiresAt;
+
+        private Entry(Data data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final LinkedHashMap<InvocationKey, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * @param maxSize Maximum number of entries in the cache
+     */
+    public LruBuilderResultCache(int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "Cache size must be positive");
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<InvocationKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<InvocationKey, Entry> eldest) {
+                if (size() > LruBuilderResultCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Data get(InvocationKey key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (null != entry && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+            if (null == entry) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.data;
+        }
+    }
+
+    @Override
+    public void put(InvocationKey key, Data data, long ttl, TimeUnit unit) {
+        Entry entry = new Entry(data, System.nanoTime() + unit.toNanos(ttl));
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Fraction of lookups that found data, 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return 0 == lookups ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Number of entries removed to make space for new ones.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Number of entries removed as they had expired.
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+}
@@ -2,7 +2,6 @@ package com.flipkart.databuilderframework.engine;
 
 import com.flipkart.databuilderframework.model.*;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
@@ -10,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The executor for a {@link com.flipkart.databuilderframework.model.DataFlow}.
@@ -36,79 +36,149 @@ public class MultiThreadedDataFlowExecutor extends DataFlowExecutor {
                                         DataDelta dataDelta,
                                         DataFlow dataFlow,
                                         DataBuilderFactory builderFactory) throws DataBuilderFrameworkException, DataValidationException {
-        CompletionService<DataContainer> completionExecutor = new ExecutorCompletionService<DataContainer>(executorService);
-        ExecutionGraph executionGraph = dataFlow.getExecutionGraph();
-        DataSet dataSet = dataFlowInstance.getDataSet().accessor().copy(); //Create own copy to work with
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        IndexedDataMap workingData = IndexedDataMap.copyOf(executionPlan, dataFlowInstance.getDataSet().getAvailableData());
+        DataSet dataSet = new DataSet(workingData); //Create own copy to work with
         DataSetAccessor dataSetAccessor = DataSet.accessor(dataSet);
         dataSetAccessor.merge(dataDelta);
         Map<String, Data> responseData = Maps.newTreeMap();
-        Set<String> activeDataSet = Sets.newHashSet();
+        BitSet availableData = workingData.dataIds();
+        BitSet activeDataSet = new BitSet(executionPlan.dataCount());
 
         for (Data data : dataDelta.getDelta()) {
-            activeDataSet.add(data.getData());
+            int dataId = executionPlan.dataId(data.getData());
+            if (dataId >= 0) {
+                activeDataSet.set(dataId);
+            }
+        }
+        //Builders that can not be reached from the delta are never looked at
+        BitSet candidateBuilders = executionPlan.candidateBuilders(activeDataSet);
+        BitSet newlyGeneratedData = new BitSet(executionPlan.dataCount());
+        //Targets of a flow that completes on all of them can be generated in different passes
+        BitSet generatedData = new BitSet(executionPlan.dataCount());
+        BitSet processedBuilders = new BitSet(executionPlan.builderCount());
+        if (dataFlow.isDemandDriven()) {
+            processedBuilders.or(executionPlan.unneededBuilders(availableData));
         }
-        List<List<DataBuilderMeta>> dependencyHierarchy = executionGraph.getDependencyHierarchy();
-        Set<String> newlyGeneratedData = Sets.newHashSet();
-        Set<DataBuilderMeta> processedBuilders = Collections.synchronizedSet(Sets.<DataBuilderMeta>newHashSet());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Set<String> timedOutBuilders = Sets.newTreeSet();
+        RunningBuilders runningBuilders = new RunningBuilders(executorService, executionPlan, dataBuilderContext,
+                                                                cancelled, timedOutBuilders, hedgingPolicies, bulkheads,
+                                                                latencyEstimates);
+        boolean stopped = false;
+        boolean completed = false;
         while(true) {
-            for (List<DataBuilderMeta> levelBuilders : dependencyHierarchy) {
-                List<Future<DataContainer>> dataFutures = Lists.newArrayList();
-                for (DataBuilderMeta builderMeta : levelBuilders) {
-                    if (processedBuilders.contains(builderMeta)) {
+            for (int level = 0; level < executionPlan.levelCount(); level++) {
+                final int levelEnd = executionPlan.levelEnd(level);
+                final int firstCandidate = candidateBuilders.nextSetBit(executionPlan.levelStart(level));
+                if (firstCandidate < 0) {
+                    break;
+                }
+                if (firstCandidate >= levelEnd) {
+                    continue;
+                }
+                for (int builderId = firstCandidate;
+                     builderId >= 0 && builderId < levelEnd;
+                     builderId = candidateBuilders.nextSetBit(builderId + 1)) {
+                    if (processedBuilders.get(builderId)) {
                         continue;
                     }
                     //If there is an intersection, means some of it's inputs have changed. Reevaluate
-                    if (Sets.intersection(builderMeta.getEffectiveConsumes(), activeDataSet).isEmpty()) {
+                    if (!executionPlan.isTriggered(builderId, activeDataSet)) {
                         continue;
                     }
-                    DataBuilder builder = builderFactory.create(builderMeta);
-                    if (!dataSetAccessor.checkForData(builder.getDataBuilderMeta().getConsumes())) {
+                    if (!executionPlan.isSatisfied(builderId, availableData)) {
                         continue;
                     }
+                    if (dataBuilderContext.isDeadlineExceeded()) {
+                        runningBuilders.skip(builderId);
+                        continue;
+                    }
+                    DataBuilderMeta builderMeta = executionPlan.builder(builderId);
+                    DataBuilder builder = builderFactory.create(builderMeta);
+                    //Failures end the run, so a builder that has been submitted is never run again
+                    processedBuilders.set(builderId);
+                    //Builders run concurrently with merges into the working set, so they get a snapshot of what they can access
                     BuilderRunner builderRunner = new BuilderRunner(dataBuilderExecutionListener, dataFlowInstance,
                                                                         builderMeta, dataDelta, responseData,
-                                                                        builder, dataBuilderContext, processedBuilders, dataSet);
-                    Future<DataContainer> future = completionExecutor.submit(builderRunner);
-                    dataFutures.add(future);
+                                                                        builder, builderFactory, dataBuilderContext,
+                                                                        new DataSet(workingData.copy().scopedTo(builderId)),
+                                                                        cancelled, builderInvoker, true);
+                    runningBuilders.submit(builderId, builderRunner);
                 }
+                runningBuilders.start();
 
                 //Now wait for something to complete.
-                int listSize = dataFutures.size();
-                for(int i = 0; i < listSize; i++) {
-                    try {
-                        DataContainer responseContainer = completionExecutor.take().get();
-                        Data response = responseContainer.getGeneratedData();
-                        String data = responseContainer.getBuilderMeta().getProduces();
-                        if(responseContainer.isHasError()) {
-                            if(null != responseContainer.getValidationException()) {
-                                throw responseContainer.getValidationException();
-
+                try {
+                    while (!runningBuilders.isEmpty()) {
+                        if (dataBuilderContext.isStopRequested()) {
+                            runningBuilders.cancelAll();
+                            break;
+                        }
+                        try {
+                            DataContainer responseContainer = runningBuilders.next();
+                            if (null == responseContainer) {
+                                continue;
                             }
+                            Data response = responseContainer.getGeneratedData();
+                            String data = responseContainer.getBuilderMeta().getProduces();
+                            if(responseContainer.isHasError()) {
+                                if(null != responseContainer.getValidationException()) {
+                                    throw responseContainer.getValidationException();
 
-                            throw responseContainer.getException();
-                        }
-                        if (null != response) {
-                            Preconditions.checkArgument(response.getData().equalsIgnoreCase(data),
-                                    String.format("Builder is supposed to produce %s but produces %s",
-                                            data, response.getData()));
-                            dataSetAccessor.merge(response);
-                            responseData.put(response.getData(), response);
-                            activeDataSet.add(response.getData());
-                            if(null != dataFlow.getTransients() && !dataFlow.getTransients().contains(response.getData())) {
-                                newlyGeneratedData.add(response.getData());
+                                }
+
+                                throw responseContainer.getException();
+                            }
+                            if (null != response) {
+                                Preconditions.checkArgument(response.getData().equalsIgnoreCase(data),
+                                        String.format("Builder is supposed to produce %s but produces %s",
+                                                data, response.getData()));
+                                dataSetAccessor.merge(response);
+                                responseData.put(response.getData(), response);
+                                dataBuilderContext.emit(response);
+                                int dataId = executionPlan.dataId(response.getData());
+                                if (dataId >= 0) {
+                                    availableData.set(dataId);
+                                    activeDataSet.set(dataId);
+                                    if (executionPlan.isTracked(dataId)) {
+                                        newlyGeneratedData.set(dataId);
+                                        generatedData.set(dataId);
+                                    }
+                                    if (executionPlan.endsExecution(dataId)) {
+                                        //One of the targets is enough for this flow, the rest of the builders are of no use
+                                        completed = true;
+                                        runningBuilders.cancelAll();
+                                        break;
+                                    }
+                                }
                             }
                         }
+                        catch (InterruptedException e) {
+                            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                                    "Error while waiting for error ", e);
+                        } catch (ExecutionException e) {
+                            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                                    "Error while waiting for error ", e.getCause());
+                        }
                     }
-                    catch (InterruptedException e) {
-                        throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
-                                "Error while waiting for error ", e);
-                    } catch (ExecutionException e) {
-                        throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
-                                "Error while waiting for error ", e.getCause());
-                    }
+                } catch (Throwable t) {
+                    //The run has failed, builders of this level that are still running are of no use any more
+                    runningBuilders.cancelAll();
+                    throw t;
+                }
+                if (runningBuilders.isStopped() || dataBuilderContext.isStopRequested()) {
+                    //Out of time or no longer needed, return whatever has been generated so far
+                    runningBuilders.cancelAll();
+                    stopped = true;
+                    break;
+                }
+                if (completed || executionPlan.containsTarget(generatedData)) {
+                    //Target has been generated, builders in the remaining levels are not needed for this pass
+                    break;
                 }
             }
-            if(newlyGeneratedData.contains(dataFlow.getTargetData())) {
+            if(stopped || completed || executionPlan.containsTarget(generatedData)) {
                 //logger.debug("Finished running this instance of the flow. Exiting.");
                 break;
             }
@@ -122,7 +192,7 @@ public class MultiThreadedDataFlowExecutor extends DataFlowExecutor {
 //            }
             //logger.info("Newly generated: " + stringBuilder);
             activeDataSet.clear();
-            activeDataSet.addAll(newlyGeneratedData);
+            activeDataSet.or(newlyGeneratedData);
             newlyGeneratedData.clear();
             if(!dataFlow.isLoopingEnabled()) {
                 break;
@@ -130,166 +200,6 @@ public class MultiThreadedDataFlowExecutor extends DataFlowExecutor {
         }
         DataSet finalDataSet = dataSetAccessor.copy(dataFlow.getTransients());
         dataFlowInstance.setDataSet(finalDataSet);
-        return new DataExecutionResponse(responseData);
-    }
-
-    private static final class DataContainer {
-        private final DataBuilderMeta builderMeta;
-        private final Data generatedData;
-        private boolean hasError = false;
-        private final DataBuilderFrameworkException exception;
-        private final DataValidationException validationException;
-
-        private DataContainer(DataBuilderMeta builderMeta, Data generatedData) {
-            this.builderMeta = builderMeta;
-            this.generatedData = generatedData;
-            this.exception = null;
-            this.validationException = null;
-        }
-
-        private DataContainer(DataBuilderMeta builderMeta, DataBuilderFrameworkException exception) {
-            this.builderMeta = builderMeta;
-            this.generatedData = null;
-            this.hasError = true;
-            this.exception = exception;
-            this.validationException = null;
-        }
-
-        private DataContainer(DataBuilderMeta builderMeta, DataValidationException validationException) {
-            this.builderMeta = builderMeta;
-            this.generatedData = null;
-            this.hasError = true;
-            this.exception = null;
-            this.validationException = validationException;
-        }
-
-
-
-        public DataBuilderMeta getBuilderMeta() {
-            return builderMeta;
-        }
-
-        public Data getGeneratedData() {
-            return generatedData;
-        }
-
-        public DataBuilderFrameworkException getException() {
-            return exception;
-        }
-
-        public DataValidationException getValidationException() {
-            return validationException;
-        }
-
-        public boolean isHasError() {
-            return hasError;
-        }
-    }
-    private static final class BuilderRunner implements Callable<DataContainer> {
-
-        private List<DataBuilderExecutionListener> dataBuilderExecutionListener;
-        private DataFlowInstance dataFlowInstance;
-        private DataBuilderMeta builderMeta;
-        private DataDelta dataDelta;
-        private Map<String,Data> responseData;
-        private DataBuilder builder;
-        private DataBuilderContext dataBuilderContext;
-        private final Set<DataBuilderMeta> procesedBuilders;
-        private DataSet dataSet;
-
-        private BuilderRunner(List<DataBuilderExecutionListener> dataBuilderExecutionListener,
-                              DataFlowInstance dataFlowInstance,
-                              DataBuilderMeta builderMeta,
-                              DataDelta dataDelta,
-                              Map<String, Data> responseData,
-                              DataBuilder builder,
-                              DataBuilderContext dataBuilderContext,
-                              Set<DataBuilderMeta> procesedBuilders,
-                              DataSet dataSet) {
-            this.dataBuilderExecutionListener = dataBuilderExecutionListener;
-            this.dataFlowInstance = dataFlowInstance;
-            this.builderMeta = builderMeta;
-            this.dataDelta = dataDelta;
-            this.responseData = responseData;
-            this.builder = builder;
-            this.dataBuilderContext = dataBuilderContext;
-            this.procesedBuilders = procesedBuilders;
-            this.dataSet = dataSet;
-        }
-
-        @Override
-        public DataContainer call() throws Exception {
-
-            for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                try {
-                    listener.beforeExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData);
-                } catch (Throwable t) {
-                    logger.error("Error running pre-execution execution listener: ", t);
-                }
-            }
-            try {
-                Data response = builder.process(dataBuilderContext.immutableCopy(
-                                            dataSet.accessor().getAccesibleDataSetFor(builder)));
-                //logger.debug("Ran " + builderMeta.getName());
-                procesedBuilders.add(builderMeta);
-                for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                    try {
-                        listener.afterExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, response);
-                    } catch (Throwable t) {
-                        logger.error("Error running post-execution listener: ", t);
-                    }
-                }
-                if(null != response) {
-                    Preconditions.checkArgument(response.getData().equalsIgnoreCase(builderMeta.getProduces()),
-                            String.format("Builder is supposed to produce %s but produces %s",
-                                    builderMeta.getProduces(), response.getData()));
-                    response.setGeneratedBy(builderMeta.getName());
-                }
-                return new DataContainer(builderMeta, response);
-            } catch (DataBuilderException e) {
-                logger.error("Error running builder: " + builderMeta.getName());
-                for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                    try {
-                        listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, e);
-
-                    } catch (Throwable error) {
-                        logger.error("Error running post-execution listener: ", error);
-                    }
-                }
-                return new DataContainer(builderMeta, new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
-                        "Error running builder: " + builderMeta.getName(), e.getDetails(), e));
-
-            } catch (DataValidationException e) {
-                logger.error("Validation error in data produced by builder" +builderMeta.getName());
-                for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                    try {
-                        listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, e);
-
-                    } catch (Throwable error) {
-                        logger.error("Error running post-execution listener: ", error);
-                    }
-                }
-                return new DataContainer(builderMeta, new DataValidationException(DataValidationException.ErrorCode.DATA_VALIDATION_EXCEPTION,
-                        "Error running builder: " + builderMeta.getName(), new DataExecutionResponse(responseData), e.getDetails(), e));
-
-
-            }
-            catch (Throwable t) {
-                logger.error("Error running builder: " + builderMeta.getName());
-                for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                    try {
-                        listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, t);
-
-                    } catch (Throwable error) {
-                        logger.error("Error running post-execution listener: ", error);
-                    }
-                }
-                Map<String, Object> objectMap = new HashMap<String, Object>();
-                objectMap.put("MESSAGE", t.getMessage());
-                return new DataContainer(builderMeta, new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
-                        "Error running builder: " + builderMeta.getName() + t.getMessage(), objectMap, t));
-            }
-        }
+        return new DataExecutionResponse(responseData, timedOutBuilders);
     }
-
 }
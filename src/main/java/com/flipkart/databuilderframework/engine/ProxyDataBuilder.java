@@ -14,4 +14,8 @@ public class ProxyDataBuilder extends DataBuilder {
     public Data process(DataBuilderContext context) throws DataBuilderException, DataValidationException {
         return impl.process(context);
     }
+
+    DataBuilder getImpl() {
+        return impl;
+    }
 }
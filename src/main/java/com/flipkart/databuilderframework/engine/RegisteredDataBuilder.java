@@ -0,0 +1,19 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import lombok.Value;
+
+import java.util.function.Supplier;
+
+/**
+ * A builder in a {@link DataBuilderRegistry}, with the same meta and lifecycle as would be read from it's annotations,
+ * and a supplier for new instances.
+ */
+@Value
+public class RegisteredDataBuilder {
+    private final DataBuilderMeta meta;
+    private final Class<? extends DataBuilder> dataBuilderClass;
+    private final BuilderLifecycle lifecycle;
+    private final Supplier<? extends DataBuilder> supplier;
+}
@@ -0,0 +1,359 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builders submitted to the pool by the {@link MultiThreadedDataFlowExecutor} and
+ * {@link OptimizedMultiThreadedDataFlowExecutor} for a run. Waits for them taking into account the timeouts of the
+ * builders and the deadline of the run. Builders that take too long are cancelled and recorded as timed out. The run is stopped if
+ * the deadline expires or a builder whose data is required by the flow times out.
+ * <br>
+ * Builders with a {@link HedgingPolicy} get a second invocation if they run for longer than the policy allows. The
+ * first invocation to succeed is used and the other one is cancelled. Listeners are told about the outcome of the
+ * invocation that is used only, and the latency of a hedged builder is measured from the start of the first
+ * invocation.
+ * <br>
+ * Builders assigned to a registered {@link Bulkhead} are run in it, others on the pool of the executor. Completions
+ * from all pools go to the same queue.
+ * <br>
+ * Builders submitted together are started longest remaining critical path first as per the {@link LatencyEstimates}
+ * of the executor, so that builders with time to spare queue behind them when the pool is saturated.
+ */
+final class RunningBuilders {
+    private final ExecutorService executorService;
+    private final BlockingQueue<Future<DataContainer>> completed = new LinkedBlockingQueue<>();
+    private final Map<String, CompletionService<DataContainer>> completionServices = Maps.newHashMap();
+    private final ExecutionPlan executionPlan;
+    private final DataBuilderContext dataBuilderContext;
+    private final AtomicBoolean cancelled;
+    private final Set<String> timedOutBuilders;
+    private final Map<String, HedgingPolicy> hedgingPolicies;
+    private final Map<String, Bulkhead> bulkheads;
+    private final LatencyEstimates latencyEstimates;
+    private final PriorityQueue<Pending> pending = new PriorityQueue<>();
+    private double[] criticalPaths;
+    private final Map<Future<DataContainer>, Attempt> attempts = Maps.newHashMap();
+    private final List<RunningBuilder> running = Lists.newArrayList();
+    private boolean stopped = false;
+
+    RunningBuilders(ExecutorService executorService,
+                    ExecutionPlan executionPlan,
+                    DataBuilderContext dataBuilderContext,
+                    AtomicBoolean cancelled,
+                    Set<String> timedOutBuilders,
+                    Map<String, HedgingPolicy> hedgingPolicies,
+                    Map<String, Bulkhead> bulkheads,
+                    LatencyEstimates latencyEstimates) {
+        this.executorService = executorService;
+        this.executionPlan = executionPlan;
+        this.dataBuilderContext = dataBuilderContext;
+        this.cancelled = cancelled;
+        this.timedOutBuilders = timedOutBuilders;
+        this.hedgingPolicies = hedgingPolicies;
+        this.bulkheads = bulkheads;
+        this.latencyEstimates = latencyEstimates;
+    }
+
+    /**
+     * Check if the builder is assigned to a registered {@link Bulkhead}.
+     */
+    boolean hasBulkhead(DataBuilderMeta builderMeta) {
+        return null != builderMeta.getBulkhead() && bulkheads.containsKey(builderMeta.getBulkhead());
+    }
+
+    /**
+     * Add a builder to be started by the next call to {@link #start()}.
+     */
+    void submit(int builderId, BuilderRunner builderRunner) {
+        if (null == criticalPaths) {
+            criticalPaths = latencyEstimates.criticalPaths(executionPlan);
+        }
+        pending.add(new Pending(builderId, builderRunner, criticalPaths[builderId]));
+    }
+
+    /**
+     * Start submitted builders, longest remaining critical path first.
+     * @throws DataBuilderFrameworkException if a builder is rejected by it's bulkhead. Builders that have been
+     * started are cancelled.
+     */
+    void start() throws DataBuilderFrameworkException {
+        while (!pending.isEmpty()) {
+            Pending next = pending.poll();
+            start(next.builderId, next.builderRunner);
+        }
+    }
+
+    private void start(int builderId, BuilderRunner builderRunner) throws DataBuilderFrameworkException {
+        HedgingPolicy hedgingPolicy = hedgingPolicies.get(executionPlan.builder(builderId).getName());
+        RunningBuilder runningBuilder = new RunningBuilder(builderId, executionPlan.builder(builderId).getTimeoutMs(),
+                                                            hedgingPolicy);
+        running.add(runningBuilder);
+        try {
+            start(runningBuilder, builderRunner);
+        } catch (RejectedExecutionException e) {
+            running.remove(runningBuilder);
+            pending.clear();
+            cancelAll();
+            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_REJECTED,
+                    "Builder rejected: " + executionPlan.builder(builderId).getName() + ": " + e.getMessage(), e);
+        }
+        if (null != hedgingPolicy) {
+            hedgingPolicy.invoked();
+        }
+    }
+
+    /**
+     * Record a builder that could not be started as the deadline for the run has expired and stop the run.
+     */
+    void skip(int builderId) {
+        timedOutBuilders.add(executionPlan.builder(builderId).getName());
+        stopped = true;
+    }
+
+    boolean isEmpty() {
+        return running.isEmpty();
+    }
+
+    /**
+     * Check if the run has to be stopped because of timeouts.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Wait for the next builder to complete.
+     * @return Outcome of the builder, null if builders timed out or were hedged, or an invocation cancelled earlier
+     * completed instead
+     */
+    DataContainer next() throws InterruptedException, ExecutionException, DataBuilderFrameworkException {
+        final long waitTime = waitTime();
+        Future<DataContainer> future = Long.MAX_VALUE == waitTime
+                                        ? completed.take()
+                                        : completed.poll(waitTime, TimeUnit.NANOSECONDS);
+        if (null == future) {
+            expire();
+            hedge();
+            return null;
+        }
+        Attempt attempt = attempts.remove(future);
+        if (null == attempt) {
+            //Cancelled futures are queued as well
+            return null;
+        }
+        RunningBuilder runningBuilder = attempt.runningBuilder;
+        runningBuilder.attempts.remove(future);
+        DataContainer dataContainer = future.get();
+        if (dataContainer.isHasError() && !runningBuilder.attempts.isEmpty()) {
+            //The other invocation can still succeed
+            return null;
+        }
+        if (runningBuilder.raced) {
+            attempt.builderRunner.notifyOutcome(dataContainer);
+        }
+        //Cache hits say nothing about the latency of the builder
+        final boolean executed = !dataContainer.isHasError() && !dataContainer.isCached();
+        final long sinceStart = System.nanoTime() - runningBuilder.startTime;
+        if (executed) {
+            latencyEstimates.record(dataContainer.getBuilderMeta().getName(),
+                                    runningBuilder.raced ? sinceStart : dataContainer.getElapsedTime());
+        }
+        if (executed && null != runningBuilder.hedgingPolicy) {
+            runningBuilder.hedgingPolicy.record(sinceStart, TimeUnit.NANOSECONDS);
+        }
+        running.remove(runningBuilder);
+        cancel(runningBuilder);
+        return dataContainer;
+    }
+
+    /**
+     * Cancel all builders that are still running or waiting for a thread.
+     */
+    void cancelAll() {
+        cancelled.set(true);
+        for (RunningBuilder runningBuilder : running) {
+            cancel(runningBuilder);
+        }
+        running.clear();
+    }
+
+    private void start(RunningBuilder runningBuilder, BuilderRunner builderRunner) {
+        Future<DataContainer> future = completionService(executionPlan.builder(runningBuilder.builderId))
+                                            .submit(builderRunner);
+        attempts.put(future, new Attempt(runningBuilder, builderRunner));
+        runningBuilder.attempts.add(future);
+    }
+
+    private CompletionService<DataContainer> completionService(DataBuilderMeta builderMeta) {
+        //Builders assigned to bulkheads that have not been registered use the pool of the executor
+        final String bulkhead = hasBulkhead(builderMeta) ? builderMeta.getBulkhead() : "";
+        CompletionService<DataContainer> completionService = completionServices.get(bulkhead);
+        if (null == completionService) {
+            Executor executor = bulkhead.isEmpty()
+                                    ? executorService
+                                    : bulkheads.get(bulkhead).executor(executorService);
+            completionService = new ExecutorCompletionService<>(executor, completed);
+            completionServices.put(bulkhead, completionService);
+        }
+        return completionService;
+    }
+
+    private long waitTime() {
+        long waitTime = dataBuilderContext.getRemainingTime(TimeUnit.NANOSECONDS);
+        final long now = System.nanoTime();
+        for (RunningBuilder runningBuilder : running) {
+            if (runningBuilder.hasTimeout()) {
+                waitTime = Math.min(waitTime, Math.max(0, runningBuilder.deadline - now));
+            }
+            if (runningBuilder.canHedge()) {
+                waitTime = Math.min(waitTime, Math.max(0, runningBuilder.hedgeTime - now));
+            }
+        }
+        return waitTime;
+    }
+
+    private void expire() {
+        final boolean deadlineExceeded = dataBuilderContext.isDeadlineExceeded();
+        final long now = System.nanoTime();
+        Iterator<RunningBuilder> iterator = running.iterator();
+        while (iterator.hasNext()) {
+            RunningBuilder runningBuilder = iterator.next();
+            if (!deadlineExceeded && !runningBuilder.isExpired(now)) {
+                continue;
+            }
+            iterator.remove();
+            cancel(runningBuilder);
+            timedOutBuilders.add(executionPlan.builder(runningBuilder.builderId).getName());
+            if (!executionPlan.isOptionalOnly(runningBuilder.builderId)) {
+                stopped = true;
+            }
+        }
+        if (deadlineExceeded) {
+            stopped = true;
+        }
+        if (stopped) {
+            for (RunningBuilder runningBuilder : running) {
+                timedOutBuilders.add(executionPlan.builder(runningBuilder.builderId).getName());
+            }
+            cancelAll();
+        }
+    }
+
+    private void hedge() throws DataBuilderFrameworkException {
+        final long now = System.nanoTime();
+        for (RunningBuilder runningBuilder : running) {
+            if (!runningBuilder.canHedge() || runningBuilder.hedgeTime - now > 0) {
+                continue;
+            }
+            runningBuilder.hedged = true;
+            if (!runningBuilder.hedgingPolicy.tryHedge()) {
+                continue;
+            }
+            BuilderRunner builderRunner = attempts.get(runningBuilder.attempts.get(0)).builderRunner;
+            BuilderRunner hedgeRunner = builderRunner.hedge();
+            //The outcome is reported for the invocation that wins, once it is known
+            builderRunner.mute();
+            runningBuilder.raced = true;
+            try {
+                start(runningBuilder, hedgeRunner);
+            } catch (RejectedExecutionException e) {
+                //The bulkhead is full, let the first invocation finish
+                continue;
+            }
+            builderRunner.notifyHedged(runningBuilder.hedgingPolicy.getHedgeCount());
+        }
+    }
+
+    private void cancel(RunningBuilder runningBuilder) {
+        for (Future<DataContainer> future : runningBuilder.attempts) {
+            Attempt attempt = attempts.remove(future);
+            if (future.cancel(true)) {
+                attempt.builderRunner.notifyCancelled();
+            }
+        }
+        runningBuilder.attempts.clear();
+    }
+
+    private static final class RunningBuilder {
+        private final int builderId;
+        private final long timeoutMs;
+        private final long deadline;
+        private final HedgingPolicy hedgingPolicy;
+        private final long hedgeTime;
+        private final long startTime;
+        private final List<Future<DataContainer>> attempts = Lists.newArrayListWithCapacity(2);
+        private boolean hedged;
+        private boolean raced;
+
+        private RunningBuilder(int builderId, long timeoutMs, HedgingPolicy hedgingPolicy) {
+            final long now = System.nanoTime();
+            this.builderId = builderId;
+            this.startTime = now;
+            this.timeoutMs = timeoutMs;
+            this.deadline = now + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            this.hedgingPolicy = hedgingPolicy;
+            final long hedgeDelay = null == hedgingPolicy ? -1 : hedgingPolicy.hedgeDelay(TimeUnit.NANOSECONDS);
+            this.hedged = hedgeDelay < 0;
+            this.hedgeTime = now + Math.max(0, hedgeDelay);
+        }
+
+        private boolean hasTimeout() {
+            return timeoutMs > 0;
+        }
+
+        private boolean isExpired(long now) {
+            return hasTimeout() && deadline - now <= 0;
+        }
+
+        private boolean canHedge() {
+            return !hedged && !attempts.isEmpty();
+        }
+    }
+
+    private static final class Pending implements Comparable<Pending> {
+        private final int builderId;
+        private final BuilderRunner builderRunner;
+        private final double criticalPath;
+
+        private Pending(int builderId, BuilderRunner builderRunner, double criticalPath) {
+            this.builderId = builderId;
+            this.builderRunner = builderRunner;
+            this.criticalPath = criticalPath;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int result = Double.compare(other.criticalPath, criticalPath);
+            return 0 != result ? result : Integer.compare(builderId, other.builderId);
+        }
+    }
+
+    private static final class Attempt {
+        private final RunningBuilder runningBuilder;
+        private final BuilderRunner builderRunner;
+
+        private Attempt(RunningBuilder runningBuilder, BuilderRunner builderRunner) {
+            this.runningBuilder = runningBuilder;
+            this.builderRunner = builderRunner;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only view of the data in an {@link IndexedDataMap} that is accessible to a builder.
+ * Uses the accessible ids precomputed in the {@link ExecutionPlan} for the builder.
+ */
+final class ScopedDataMap extends AbstractMap<String, Data> {
+    private final IndexedDataMap source;
+    private final ExecutionPlan executionPlan;
+    private final int builderId;
+
+    ScopedDataMap(IndexedDataMap source, int builderId) {
+        this.source = source;
+        this.executionPlan = source.getExecutionPlan();
+        this.builderId = builderId;
+    }
+
+    /**
+     * Check if this view was created for the given builder.
+     */
+    boolean isScopedTo(DataBuilderMeta builderMeta) {
+        DataBuilderMeta scopedMeta = executionPlan.builder(builderId);
+        return scopedMeta == builderMeta
+                || (null != builderMeta && scopedMeta.getName().equals(builderMeta.getName()));
+    }
+
+    @Override
+    public Data get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int dataId = executionPlan.dataId((String) key);
+        return dataId >= 0 && executionPlan.accessible(builderId).get(dataId)
+                ? source.get(dataId)
+                : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return null != get(key);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int dataId : executionPlan.accessibleSlots(builderId)) {
+            if (source.contains(dataId)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Data>> entrySet() {
+        return new AbstractSet<Entry<String, Data>>() {
+            @Override
+            public Iterator<Entry<String, Data>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ScopedDataMap.this.size();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Data>> {
+        private final int[] dataIds = executionPlan.accessibleSlots(builderId);
+        private int next = -1;
+
+        private EntryIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < dataIds.length;
+        }
+
+        @Override
+        public Entry<String, Data> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int dataId = dataIds[next];
+            advance();
+            return new SimpleImmutableEntry<>(executionPlan.dataName(dataId), source.get(dataId));
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while (next < dataIds.length && !source.contains(dataIds[next]));
+        }
+    }
+}
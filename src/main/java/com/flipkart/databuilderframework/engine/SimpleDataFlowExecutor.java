@@ -7,8 +7,8 @@ import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -35,34 +35,55 @@ public class SimpleDataFlowExecutor extends DataFlowExecutor {
                                      DataDelta dataDelta,
                                      DataFlow dataFlow,
                                      DataBuilderFactory builderFactory) throws DataBuilderFrameworkException, DataValidationException {
-        ExecutionGraph executionGraph = dataFlow.getExecutionGraph();
-        DataSet dataSet = dataFlowInstance.getDataSet().accessor().copy(); //Create own copy to work with
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        IndexedDataMap workingData = IndexedDataMap.copyOf(executionPlan, dataFlowInstance.getDataSet().getAvailableData());
+        DataSet dataSet = new DataSet(workingData); //Create own copy to work with
         DataSetAccessor dataSetAccessor = DataSet.accessor(dataSet);
         dataSetAccessor.merge(dataDelta);
         Map<String, Data> responseData = Maps.newTreeMap();
-        Set<String> activeDataSet = Sets.newHashSet();
-
-        activeDataSet.addAll(dataDelta.getDelta()
+        BitSet availableData = workingData.dataIds();
+        BitSet activeDataSet = executionPlan.dataSet(dataDelta.getDelta()
                 .stream()
                 .map(Data::getData)
                 .collect(Collectors.toList()));
-        List<List<DataBuilderMeta>> dependencyHierarchy = executionGraph.getDependencyHierarchy();
-        Set<String> newlyGeneratedData = Sets.newHashSet();
-        Set<DataBuilderMeta> processedBuilders = Sets.newHashSet();
+        BitSet newlyGeneratedData = new BitSet(executionPlan.dataCount());
+        //Targets of a flow that completes on all of them can be generated in different passes
+        BitSet generatedData = new BitSet(executionPlan.dataCount());
+        BitSet processedBuilders = new BitSet(executionPlan.builderCount());
+        if (dataFlow.isDemandDriven()) {
+            processedBuilders.or(executionPlan.unneededBuilders(availableData));
+        }
+        Set<String> timedOutBuilders = Sets.newTreeSet();
+        boolean completed = false;
         while(true) {
-            for (List<DataBuilderMeta> levelBuilders : dependencyHierarchy) {
-                for (DataBuilderMeta builderMeta : levelBuilders) {
-                    if (processedBuilders.contains(builderMeta)) {
-                        continue;
-                    }
-                    //If there is an intersection, means some of it's inputs have changed. Reevaluate
-                    if (Sets.intersection(builderMeta.getEffectiveConsumes(), activeDataSet).isEmpty()) {
-                        continue;
-                    }
-                    DataBuilder builder = builderFactory.create(builderMeta);
-                    if (!dataSetAccessor.checkForData(builder.getDataBuilderMeta().getConsumes())) {
-                        continue;
-                    }
+            //Worklist of builders whose inputs have changed. Data generated in a pass adds it's consumers, but only the
+            //ones after the current builder are reached in the same pass, same as a full scan in builder order.
+            BitSet triggeredBuilders = executionPlan.triggeredBy(activeDataSet);
+            triggeredBuilders.andNot(processedBuilders);
+            for (int builderId = triggeredBuilders.nextSetBit(0);
+                 builderId >= 0;
+                 builderId = triggeredBuilders.nextSetBit(builderId + 1)) {
+                if (processedBuilders.get(builderId)) {
+                    continue;
+                }
+                if (!executionPlan.isSatisfied(builderId, availableData)) {
+                    continue;
+                }
+                if (dataBuilderContext.isStopRequested()) {
+                    //The caller does not need the outcome any more
+                    completed = true;
+                    break;
+                }
+                DataBuilderMeta builderMeta = executionPlan.builder(builderId);
+                if (dataBuilderContext.isDeadlineExceeded()) {
+                    //Builders run on the calling thread, so the deadline can only be checked between them
+                    timedOutBuilders.add(builderMeta.getName());
+                    break;
+                }
+                DataSet accessibleDataSet = new DataSet(workingData.scopedTo(builderId));
+                Data cachedResponse = builderInvoker.cached(builderMeta, accessibleDataSet);
+                DataBuilder builder = null == cachedResponse ? builderFactory.create(builderMeta) : null;
+                if (null == cachedResponse) {
                     for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
                         try {
                             listener.beforeExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData);
@@ -70,80 +91,99 @@ public class SimpleDataFlowExecutor extends DataFlowExecutor {
                             logger.error("Error running pre-execution execution listener: ", t);
                         }
                     }
-                    try {
-                        Data response = builder.process(
-                                                    dataBuilderContext.immutableCopy(
-                                                            dataSet.accessor().getAccesibleDataSetFor(builder)));
-                        if (null != response) {
-                            Preconditions.checkArgument(response.getData().equalsIgnoreCase(builderMeta.getProduces()),
-                                                String.format("Builder is supposed to produce %s but produces %s",
-                                                                builderMeta.getProduces(), response.getData()));
-                            dataSetAccessor.merge(response);
-                            responseData.put(response.getData(), response);
-                            response.setGeneratedBy(builderMeta.getName());
-                            activeDataSet.add(response.getData());
-                            if(null != dataFlow.getTransients() && !dataFlow.getTransients().contains(response.getData())) {
-                                newlyGeneratedData.add(response.getData());
+                }
+                try {
+                    Data response = null != cachedResponse
+                            ? cachedResponse
+                            : builderInvoker.invoke(builderMeta, accessibleDataSet,
+                                        () -> builder.process(dataBuilderContext.immutableCopy(accessibleDataSet)));
+                    if (null != response) {
+                        Preconditions.checkArgument(response.getData().equalsIgnoreCase(builderMeta.getProduces()),
+                                            String.format("Builder is supposed to produce %s but produces %s",
+                                                            builderMeta.getProduces(), response.getData()));
+                        dataSetAccessor.merge(response);
+                        responseData.put(response.getData(), response);
+                        response.setGeneratedBy(builderMeta.getName());
+                        dataBuilderContext.emit(response);
+                        int dataId = executionPlan.dataId(response.getData());
+                        if (dataId >= 0) {
+                            availableData.set(dataId);
+                            executionPlan.addConsumers(dataId, triggeredBuilders);
+                            if (executionPlan.isTracked(dataId)) {
+                                newlyGeneratedData.set(dataId);
+                                generatedData.set(dataId);
                             }
+                            completed = executionPlan.endsExecution(dataId);
                         }
-                        //logger.debug("Ran " + builderMeta.getName());
-                        processedBuilders.add(builderMeta);
-                        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                            try {
+                    }
+                    //logger.debug("Ran " + builderMeta.getName());
+                    processedBuilders.set(builderId);
+                    for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                        try {
+                            if (null != cachedResponse) {
+                                listener.afterCacheHit(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, response);
+                            } else {
                                 listener.afterExecute(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, response);
-                            } catch (Throwable t) {
-                                logger.error("Error running post-execution listener: ", t);
                             }
+                        } catch (Throwable t) {
+                            logger.error("Error running post-execution listener: ", t);
                         }
+                    }
+                    if (completed) {
+                        //One of the targets is enough for this flow
+                        break;
+                    }
+                } catch (DataBuilderException e) {
+                    logger.error("Error running builder: " + builderMeta.getName());
+                    for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                        try {
+                            listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, e);
 
-                    } catch (DataBuilderException e) {
-                        logger.error("Error running builder: " + builderMeta.getName());
-                        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                            try {
-                                listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, e);
-
-                            } catch (Throwable error) {
-                                logger.error("Error running post-execution listener: ", error);
-                            }
+                        } catch (Throwable error) {
+                            logger.error("Error running post-execution listener: ", error);
                         }
-                        throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
-                                "Error running builder: " + builderMeta.getName(), e.getDetails(), e, new DataExecutionResponse(responseData));
+                    }
+                    throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                            "Error running builder: " + builderMeta.getName(), e.getDetails(), e, new DataExecutionResponse(responseData));
 
-                    } catch (DataValidationException e) {
-                        logger.error("Validation error in data produced by builder" +builderMeta.getName());
-                        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                            try {
-                                listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, e);
+                } catch (DataValidationException e) {
+                    logger.error("Validation error in data produced by builder" +builderMeta.getName());
+                    for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                        try {
+                            listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, e);
 
-                            } catch (Throwable error) {
-                                logger.error("Error running post-execution listener: ", error);
-                            }
+                        } catch (Throwable error) {
+                            logger.error("Error running post-execution listener: ", error);
                         }
-                        // Sending Execution response in exception object
+                    }
+                    // Sending Execution response in exception object
 
-                        throw new DataValidationException(DataValidationException.ErrorCode.DATA_VALIDATION_EXCEPTION, e.getMessage(), new DataExecutionResponse(responseData),e.getDetails(), e);
+                    throw new DataValidationException(DataValidationException.ErrorCode.DATA_VALIDATION_EXCEPTION, e.getMessage(), new DataExecutionResponse(responseData),e.getDetails(), e);
 
 
-                    }
-                    catch (Throwable t) {
-                        logger.error("Error running builder: " + builderMeta.getName());
-                        for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
-                            try {
-                                listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, t);
+                }
+                catch (Throwable t) {
+                    logger.error("Error running builder: " + builderMeta.getName());
+                    for (DataBuilderExecutionListener listener : dataBuilderExecutionListener) {
+                        try {
+                            listener.afterException(dataBuilderContext, dataFlowInstance, builderMeta, dataDelta, responseData, t);
 
-                            } catch (Throwable error) {
-                                logger.error("Error running post-execution listener: ", error);
-                            }
+                        } catch (Throwable error) {
+                            logger.error("Error running post-execution listener: ", error);
                         }
-                        Map<String, Object> objectMap = new HashMap<String, Object>();
-                        objectMap.put("MESSAGE", t.getMessage());
-                        throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
-                                "Error running builder: " + builderMeta.getName()
-                                        + ": " + t.getMessage(), objectMap, t, new DataExecutionResponse(responseData));
+                    }
+                    Map<String, Object> objectMap = new HashMap<String, Object>();
+                    objectMap.put("MESSAGE", t.getMessage());
+                    throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR,
+                            "Error running builder: " + builderMeta.getName()
+                                    + ": " + t.getMessage(), objectMap, t, new DataExecutionResponse(responseData));
+                } finally {
+                    if (null != builder) {
+                        builderFactory.release(builder);
                     }
                 }
             }
-            if(newlyGeneratedData.contains(dataFlow.getTargetData())) {
+            if(completed || !timedOutBuilders.isEmpty() || executionPlan.containsTarget(generatedData)) {
                 //logger.debug("Finished running this instance of the flow. Exiting.");
                 break;
             }
@@ -157,7 +197,7 @@ public class SimpleDataFlowExecutor extends DataFlowExecutor {
 //            }
             //logger.info("Newly generated: " + stringBuilder);
             activeDataSet.clear();
-            activeDataSet.addAll(newlyGeneratedData);
+            activeDataSet.or(newlyGeneratedData);
             newlyGeneratedData.clear();
             if(!dataFlow.isLoopingEnabled()) {
                 break;
@@ -165,7 +205,7 @@ public class SimpleDataFlowExecutor extends DataFlowExecutor {
         }
         DataSet finalDataSet = dataSetAccessor.copy(dataFlow.getTransients());
         dataFlowInstance.setDataSet(finalDataSet);
-        return new DataExecutionResponse(responseData);
+        return new DataExecutionResponse(responseData, timedOutBuilders);
     }
 
 }
@@ -0,0 +1,152 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.flipkart.databuilderframework.model.DataSet;
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent invocations of an idempotent builder with the same inputs across all flows run by an executor.
+ * The first invocation runs the builder, the ones that come in while it is running wait for it and get the same
+ * {@link Data} object. Invocations are the same if they have the same {@link InvocationKey}, i.e. the builder has the
+ * same name and all data in it's accessible {@link DataSet} has the same {@link Data#fingerprint()}. Builders that can
+ * access data without a fingerprint are always run.
+ * <br>
+ * Only builders marked idempotent using {@link com.flipkart.databuilderframework.annotations.DataBuilderInfo#idempotent()},
+ * {@link com.flipkart.databuilderframework.annotations.DataBuilderClassInfo#idempotent()} or
+ * {@link DataBuilderMetadataManager#markIdempotent(String)} are coalesced. The shared data must not be modified by
+ * the flows. If the invocation being waited for fails, the waiting invocations are coalesced again and one of them
+ * runs the builder, so that a failed or cancelled flow does not fail others.
+ * This class is thread safe.
+ */
+public class SingleFlight {
+    /**
+     * A builder invocation.
+     */
+    @FunctionalInterface
+    interface Invocation {
+        Data process() throws DataBuilderException, DataValidationException;
+    }
+
+    private final ConcurrentMap<InvocationKey, CompletableFuture<Data>> inFlight = Maps.newConcurrentMap();
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Number of invocations of idempotent builders that actually ran the builder.
+     */
+    public long getInvocationCount() {
+        return invocations.get();
+    }
+
+    /**
+     * Number of invocations of idempotent builders that got the data of another invocation instead of running the builder.
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * Number of coalesced invocations that are running right now.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    Data execute(DataBuilderMeta builderMeta, DataSet accessibleDataSet, Invocation invocation) throws DataBuilderException, DataValidationException {
+        final InvocationKey key = key(builderMeta, accessibleDataSet);
+        if (null == key) {
+            return invocation.process();
+        }
+        final CompletableFuture<Data> result = new CompletableFuture<>();
+        final CompletableFuture<Data> running = inFlight.putIfAbsent(key, result);
+        if (null != running) {
+            try {
+                Data response = running.get();
+                shared.incrementAndGet();
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataBuilderException(DataBuilderException.ErrorCode.HANDLER_FAILURE,
+                        "Interrupted while waiting for shared invocation of " + builderMeta.getName(), e);
+            } catch (ExecutionException e) {
+                //Coalesce again, so that only one of the waiting invocations runs the builder next
+                return execute(builderMeta, accessibleDataSet, invocation);
+            }
+        }
+        invocations.incrementAndGet();
+        try {
+            Data response = invocation.process();
+            result.complete(response);
+            return response;
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, result);
+        }
+    }
+
+    CompletionStage<Data> executeAsync(DataBuilderMeta builderMeta,
+                                       DataSet accessibleDataSet,
+                                       Supplier<CompletionStage<Data>> invocation) {
+        final InvocationKey key = key(builderMeta, accessibleDataSet);
+        if (null == key) {
+            return invocation.get();
+        }
+        final CompletableFuture<Data> result = new CompletableFuture<>();
+        final CompletableFuture<Data> running = inFlight.putIfAbsent(key, result);
+        if (null != running) {
+            //A new stage, so that cancelling it does not cancel the shared one
+            CompletableFuture<Data> response = new CompletableFuture<>();
+            running.whenComplete((data, error) -> {
+                if (null == error) {
+                    shared.incrementAndGet();
+                    response.complete(data);
+                    return;
+                }
+                try {
+                    executeAsync(builderMeta, accessibleDataSet, invocation).whenComplete((ownData, ownError) -> {
+                        if (null == ownError) {
+                            response.complete(ownData);
+                        } else {
+                            response.completeExceptionally(ownError);
+                        }
+                    });
+                } catch (Throwable t) {
+                    response.completeExceptionally(t);
+                }
+            });
+            return response;
+        }
+        invocations.incrementAndGet();
+        final CompletionStage<Data> stage;
+        try {
+            stage = invocation.get();
+        } catch (Throwable t) {
+            inFlight.remove(key, result);
+            result.completeExceptionally(t);
+            throw t;
+        }
+        stage.whenComplete((data, error) -> {
+            inFlight.remove(key, result);
+            if (null == error) {
+                result.complete(data);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return stage;
+    }
+
+    private static InvocationKey key(DataBuilderMeta builderMeta, DataSet accessibleDataSet) {
+        return builderMeta.isIdempotent() ? InvocationKey.of(builderMeta, accessibleDataSet) : null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.flipkart.databuilderframework.model.DataSet;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Runs a builder of a sub-flow that has been inlined into a parent flow by
+ * {@link DataFlowBuilder#withSubFlow(String, com.flipkart.databuilderframework.model.DataFlow, Map)}.
+ * The builder sees the data under the names used in the sub-flow, and the data it generates is renamed to the name used
+ * in the parent flow. Builder instances come from the factory of the sub-flow.
+ */
+final class SubFlowDataBuilder extends DataBuilder {
+    private final DataBuilderMeta innerMeta;
+    private final DataBuilderFactory innerFactory;
+    private final Map<String, String> innerNames;
+
+    /**
+     * @param dataBuilderMeta Meta of the builder in the parent flow
+     * @param innerMeta       Meta of the builder in the sub-flow
+     * @param innerFactory    Factory of the sub-flow
+     * @param innerNames      Name in the sub-flow for the data accessible to the builder, keyed on the parent name
+     */
+    SubFlowDataBuilder(DataBuilderMeta dataBuilderMeta,
+                       DataBuilderMeta innerMeta,
+                       DataBuilderFactory innerFactory,
+                       Map<String, String> innerNames) {
+        this.innerMeta = innerMeta;
+        this.innerFactory = innerFactory;
+        this.innerNames = ImmutableMap.copyOf(innerNames);
+        setDataBuilderMeta(dataBuilderMeta);
+    }
+
+    @Override
+    public Data process(DataBuilderContext context) throws DataBuilderException, DataValidationException {
+        Map<String, Data> innerData = Maps.newHashMap();
+        for (Map.Entry<String, Data> entry : context.getDataSet().getAvailableData().entrySet()) {
+            String innerName = innerNames.get(entry.getKey());
+            if (null != innerName) {
+                innerData.put(innerName, entry.getValue());
+            }
+        }
+        DataBuilder builder;
+        try {
+            builder = innerFactory.create(innerMeta);
+        } catch (DataBuilderFrameworkException e) {
+            throw new DataBuilderException(DataBuilderException.ErrorCode.HANDLER_FAILURE,
+                    "Could not create sub-flow builder: " + innerMeta.getName(), e);
+        }
+        try {
+            Data response = builder.process(context.immutableCopy(new DataSet(innerData)));
+            //Data of the wrong type is left as is, for the executor to reject
+            if (null != response && response.getData().equalsIgnoreCase(innerMeta.getProduces())) {
+                //The builder might have shared the data through a cache, so it is renamed on a copy
+                return response.copyAs(getDataBuilderMeta().getProduces());
+            }
+            return response;
+        } finally {
+            innerFactory.release(builder);
+        }
+    }
+}
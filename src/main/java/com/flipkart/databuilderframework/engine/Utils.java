@@ -2,6 +2,7 @@ package com.flipkart.databuilderframework.engine;
 
 import com.flipkart.databuilderframework.annotations.DataBuilderClassInfo;
 import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
 import com.flipkart.databuilderframework.model.Data;
 import com.flipkart.databuilderframework.model.DataBuilderMeta;
 import com.google.common.base.CaseFormat;
@@ -57,12 +58,17 @@ public interface Utils {
     static DataBuilderMeta meta(Class<? extends DataBuilder> annotatedDataBuilder) {
         DataBuilderInfo info = annotatedDataBuilder.getAnnotation(DataBuilderInfo.class);
         if(null != info) {
-            return new DataBuilderMeta(
+            DataBuilderMeta dataBuilderMeta = new DataBuilderMeta(
                     ImmutableSet.copyOf(info.consumes()),
                     info.produces(),
                     info.name(),
                     ImmutableSet.copyOf(info.optionals()),
                     ImmutableSet.copyOf(info.accesses()));
+            dataBuilderMeta.setTimeoutMs(info.timeoutMs());
+            dataBuilderMeta.setBulkhead(Strings.emptyToNull(info.bulkhead()));
+            dataBuilderMeta.setIdempotent(info.idempotent());
+            dataBuilderMeta.setCacheTtlMs(info.cacheTtlMs());
+            return dataBuilderMeta;
         }
         else {
             DataBuilderClassInfo dataBuilderClassInfo = annotatedDataBuilder.getAnnotation(DataBuilderClassInfo.class);
@@ -87,7 +93,7 @@ public interface Utils {
             }
 
             final String name = dataBuilderClassInfo.name();
-            return new DataBuilderMeta(
+            DataBuilderMeta dataBuilderMeta = new DataBuilderMeta(
                     ImmutableSet.copyOf(consumes),
                     Utils.name(dataBuilderClassInfo.produces()),
                     Strings.isNullOrEmpty(name)
@@ -96,6 +102,22 @@ public interface Utils {
                     ImmutableSet.copyOf(optionals),
                     ImmutableSet.copyOf(access)
             );
+            dataBuilderMeta.setTimeoutMs(dataBuilderClassInfo.timeoutMs());
+            dataBuilderMeta.setBulkhead(Strings.emptyToNull(dataBuilderClassInfo.bulkhead()));
+            dataBuilderMeta.setIdempotent(dataBuilderClassInfo.idempotent());
+            dataBuilderMeta.setCacheTtlMs(dataBuilderClassInfo.cacheTtlMs());
+            return dataBuilderMeta;
         }
     }
+
+    static BuilderLifecycle lifecycle(Class<? extends DataBuilder> annotatedDataBuilder) {
+        DataBuilderInfo info = annotatedDataBuilder.getAnnotation(DataBuilderInfo.class);
+        if(null != info) {
+            return info.lifecycle();
+        }
+        DataBuilderClassInfo dataBuilderClassInfo = annotatedDataBuilder.getAnnotation(DataBuilderClassInfo.class);
+        return null != dataBuilderClassInfo
+                ? dataBuilderClassInfo.lifecycle()
+                : BuilderLifecycle.PROTOTYPE;
+    }
 }
@@ -0,0 +1,86 @@
+package com.flipkart.databuilderframework.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The executor for a {@link com.flipkart.databuilderframework.model.DataFlow}.
+ * This is an {@link AsyncDataFlowExecutor} that runs every builder invocation on it's own virtual thread. Blocking
+ * builders cost very little to park, so there is no pool to be sized for the fan-out of the flows.
+ * <br>
+ * Virtual threads are available from JDK 21 onwards. The executor is looked up at runtime so that the library can
+ * still be built for and used on Java 8. Use {@link #isSupported()} to check for availability.
+ */
+public class VirtualThreadDataFlowExecutor extends AsyncDataFlowExecutor implements AutoCloseable {
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR_FACTORY = findVirtualThreadExecutorFactory();
+
+    private final ExecutorService executorService;
+
+    /**
+     * The executor will use the builder factory in the DataFlow.
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public VirtualThreadDataFlowExecutor() {
+        this(newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public VirtualThreadDataFlowExecutor(DataBuilderFactory dataBuilderFactory) {
+        this(dataBuilderFactory, newVirtualThreadPerTaskExecutor());
+    }
+
+    private VirtualThreadDataFlowExecutor(ExecutorService executorService) {
+        super(executorService);
+        this.executorService = executorService;
+    }
+
+    private VirtualThreadDataFlowExecutor(DataBuilderFactory dataBuilderFactory, ExecutorService executorService) {
+        super(dataBuilderFactory, executorService);
+        this.executorService = executorService;
+    }
+
+    /**
+     * Shut down the virtual thread executor. Builders already running are allowed to finish, new runs are rejected.
+     */
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * Check if virtual threads are available in the current JVM.
+     * @return <i>true</i> if this executor can be used. <i>false</i> otherwise.
+     */
+    public static boolean isSupported() {
+        return null != VIRTUAL_THREAD_EXECUTOR_FACTORY;
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM. JDK 21+ is needed");
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not create virtual thread executor: " + t.getMessage(), t);
+        }
+    }
+
+    private static MethodHandle findVirtualThreadExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
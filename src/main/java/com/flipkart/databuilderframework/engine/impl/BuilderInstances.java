@@ -0,0 +1,179 @@
+package com.flipkart.databuilderframework.engine.impl;
+
+import com.flipkart.databuilderframework.engine.DataBuilder;
+import com.flipkart.databuilderframework.engine.DataBuilderFrameworkException;
+import com.flipkart.databuilderframework.engine.DataBuilderMetadataManager;
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
+import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.google.common.collect.MapMaker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Creates builder instances for the factories according to the {@link BuilderLifecycle} registered for them.
+ * Builders registered from a {@link com.flipkart.databuilderframework.engine.DataBuilderRegistry} are created using
+ * the supplier in the registry. For others, constructors are looked up once per builder and invoked through a
+ * {@link MethodHandle}.
+ * <br>
+ * The meta is copied once per builder of a flow, and the copy is shared by all instances created for it. Shared
+ * instances are kept per builder of a flow as well, so that {@link DataBuilder#getDataBuilderMeta()} always returns
+ * the meta of the flow being run, even when a builder is used by many flows or under a different name. Both are held
+ * weakly against the meta in the flow and go away with the flow.
+ */
+class BuilderInstances {
+    static final int DEFAULT_POOL_SIZE = 64;
+
+    private final DataBuilderMetadataManager dataBuilderMetadataManager;
+    private final boolean useCurrentMeta;
+    private final int poolSize;
+    private final ConcurrentMap<String, Instantiator> instantiators = new ConcurrentHashMap<>();
+
+    BuilderInstances(DataBuilderMetadataManager dataBuilderMetadataManager, boolean useCurrentMeta, int poolSize) {
+        this.dataBuilderMetadataManager = dataBuilderMetadataManager;
+        this.useCurrentMeta = useCurrentMeta;
+        this.poolSize = poolSize;
+    }
+
+    DataBuilder acquire(DataBuilderMeta dataBuilderMeta) throws DataBuilderFrameworkException {
+        final String builderName = dataBuilderMeta.getName();
+        Instantiator instantiator = instantiators.get(builderName);
+        if(null == instantiator) {
+            Class<? extends DataBuilder> dataBuilderClass = dataBuilderMetadataManager.getDataBuilderClass(builderName);
+            if(null == dataBuilderClass) {
+                throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_BUILDER_FOUND_FOR_NAME,
+                                        "No builder found for name: " + builderName);
+            }
+            instantiator = instantiators.computeIfAbsent(builderName, name -> new Instantiator(
+                    dataBuilderClass, dataBuilderMetadataManager.getLifecycle(name),
+                    dataBuilderMetadataManager.getDataBuilderSupplier(name)));
+        }
+        return instantiator.acquire(useCurrentMeta
+                                        ? dataBuilderMetadataManager.get(builderName)
+                                        : dataBuilderMeta);
+    }
+
+    void release(DataBuilder dataBuilder) {
+        if(null == dataBuilder || null == dataBuilder.getDataBuilderMeta()) {
+            return;
+        }
+        Instantiator instantiator = instantiators.get(dataBuilder.getDataBuilderMeta().getName());
+        if(null != instantiator) {
+            instantiator.release(dataBuilder);
+        }
+    }
+
+    private final class Instantiator {
+        private final Class<? extends DataBuilder> dataBuilderClass;
+        private final BuilderLifecycle lifecycle;
+        private final Supplier<? extends DataBuilder> supplier;
+        //Weak keys are compared by identity, so every flow gets it's own entry
+        private final ConcurrentMap<DataBuilderMeta, Shared> byFlowMeta = new MapMaker().weakKeys().makeMap();
+        //Used to find the pool of a released instance, which only has the copied meta
+        private final ConcurrentMap<DataBuilderMeta, Shared> byCopy = new MapMaker().weakKeys().weakValues().makeMap();
+        private volatile MethodHandle constructor;
+
+        private Instantiator(Class<? extends DataBuilder> dataBuilderClass, BuilderLifecycle lifecycle,
+                             Supplier<? extends DataBuilder> supplier) {
+            this.dataBuilderClass = dataBuilderClass;
+            this.lifecycle = lifecycle;
+            this.supplier = supplier;
+        }
+
+        DataBuilder acquire(DataBuilderMeta dataBuilderMeta) throws DataBuilderFrameworkException {
+            Shared shared = shared(dataBuilderMeta);
+            switch (lifecycle) {
+                case SINGLETON: {
+                    DataBuilder dataBuilder = shared.singleton;
+                    if(null == dataBuilder) {
+                        synchronized (shared) {
+                            if(null == shared.singleton) {
+                                shared.singleton = newInstance(shared.meta);
+                            }
+                            dataBuilder = shared.singleton;
+                        }
+                    }
+                    return dataBuilder;
+                }
+                case POOLED: {
+                    DataBuilder dataBuilder = shared.pool.poll();
+                    return null != dataBuilder ? dataBuilder : newInstance(shared.meta);
+                }
+                default:
+                    return newInstance(shared.meta);
+            }
+        }
+
+        void release(DataBuilder dataBuilder) {
+            if(BuilderLifecycle.POOLED != lifecycle) {
+                return;
+            }
+            Shared shared = byCopy.get(dataBuilder.getDataBuilderMeta());
+            if(null != shared) {
+                //Dropped if the pool is full
+                shared.pool.offer(dataBuilder);
+            }
+        }
+
+        private Shared shared(DataBuilderMeta dataBuilderMeta) {
+            Shared shared = byFlowMeta.get(dataBuilderMeta);
+            if(null == shared) {
+                shared = byFlowMeta.computeIfAbsent(dataBuilderMeta, meta -> {
+                    Shared created = new Shared(meta.deepCopy(), BuilderLifecycle.POOLED == lifecycle
+                                                                    ? new ArrayBlockingQueue<>(poolSize)
+                                                                    : null);
+                    byCopy.put(created.meta, created);
+                    return created;
+                });
+            }
+            return shared;
+        }
+
+        private DataBuilder newInstance(DataBuilderMeta dataBuilderMeta) throws DataBuilderFrameworkException {
+            try {
+                DataBuilder dataBuilder = null != supplier
+                                            ? supplier.get()
+                                            : (DataBuilder) constructor().invokeExact();
+                dataBuilder.setDataBuilderMeta(dataBuilderMeta);
+                return dataBuilder;
+            } catch (Throwable t) {
+                throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.INSTANTIATION_FAILURE,
+                                        "Could not instantiate builder: " + dataBuilderMeta.getName());
+            }
+        }
+
+        private MethodHandle constructor() throws ReflectiveOperationException {
+            MethodHandle handle = constructor;
+            if(null == handle) {
+                Constructor<? extends DataBuilder> noArgsConstructor = dataBuilderClass.getDeclaredConstructor();
+                noArgsConstructor.setAccessible(true);
+                handle = MethodHandles.lookup()
+                            .unreflectConstructor(noArgsConstructor)
+                            .asType(MethodType.methodType(DataBuilder.class));
+                constructor = handle;
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * Copy of the meta and instances shared by all runs of a builder in a flow.
+     */
+    private static final class Shared {
+        private final DataBuilderMeta meta;
+        private final BlockingQueue<DataBuilder> pool;
+        private volatile DataBuilder singleton;
+
+        private Shared(DataBuilderMeta meta, BlockingQueue<DataBuilder> pool) {
+            this.meta = meta;
+            this.pool = pool;
+        }
+    }
+}
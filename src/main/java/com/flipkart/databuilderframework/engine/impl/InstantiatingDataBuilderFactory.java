@@ -4,50 +4,53 @@ import com.flipkart.databuilderframework.engine.DataBuilder;
 import com.flipkart.databuilderframework.engine.DataBuilderFactory;
 import com.flipkart.databuilderframework.engine.DataBuilderFrameworkException;
 import com.flipkart.databuilderframework.engine.DataBuilderMetadataManager;
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
 import com.flipkart.databuilderframework.model.DataBuilderMeta;
 
 /**
  * @inheritDoc
  * This particular version, uses metadata stored in {@link com.flipkart.databuilderframework.engine.DataBuilderMetadataManager}
  * to generate a specific builder.
+ * Instances are created and reused according to the {@link BuilderLifecycle} registered for the builder.
  */
 public class InstantiatingDataBuilderFactory implements DataBuilderFactory {
     private DataBuilderMetadataManager dataBuilderMetadataManager;
     private boolean useCurrentMeta;
+    private int poolSize;
+    private BuilderInstances builderInstances;
 
     public InstantiatingDataBuilderFactory(DataBuilderMetadataManager dataBuilderMetadataManager) {
         this(dataBuilderMetadataManager, false);
     }
 
     public InstantiatingDataBuilderFactory(DataBuilderMetadataManager dataBuilderMetadataManager, boolean useCurrentMeta) {
+        this(dataBuilderMetadataManager, useCurrentMeta, BuilderInstances.DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param dataBuilderMetadataManager Metadata for the builders
+     * @param useCurrentMeta             Set meta from the metadata manager on the builders instead of the one in the flow
+     * @param poolSize                   Maximum number of idle instances kept for every {@link BuilderLifecycle#POOLED} builder
+     */
+    public InstantiatingDataBuilderFactory(DataBuilderMetadataManager dataBuilderMetadataManager, boolean useCurrentMeta,
+                                           int poolSize) {
         this.dataBuilderMetadataManager = dataBuilderMetadataManager;
         this.useCurrentMeta = useCurrentMeta;
+        this.poolSize = poolSize;
+        this.builderInstances = new BuilderInstances(dataBuilderMetadataManager, useCurrentMeta, poolSize);
     }
 
     public DataBuilder create(DataBuilderMeta dataBuilderMeta) throws DataBuilderFrameworkException {
-        final String builderName = dataBuilderMeta.getName();
-        Class<? extends DataBuilder> dataBuilderClass = dataBuilderMetadataManager.getDataBuilderClass(builderName);
-        if(null == dataBuilderClass) {
-            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_BUILDER_FOUND_FOR_NAME,
-                                    "No builder found for name: " + builderName);
-        }
-        try {
-            DataBuilder dataBuilder = dataBuilderClass.newInstance();
-            if(useCurrentMeta) {
-                dataBuilder.setDataBuilderMeta(dataBuilderMetadataManager.get(builderName).deepCopy());
-            }
-            else {
-                dataBuilder.setDataBuilderMeta(dataBuilderMeta.deepCopy());
-            }
-            return dataBuilder;
-        } catch (Exception e) {
-            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.INSTANTIATION_FAILURE,
-                                    "Could not instantiate builder: " + builderName);
-        }
+        return builderInstances.acquire(dataBuilderMeta);
+    }
+
+    @Override
+    public void release(DataBuilder dataBuilder) {
+        builderInstances.release(dataBuilder);
     }
 
     @Override
     public DataBuilderFactory immutableCopy() {
-        return new InstantiatingDataBuilderFactory(dataBuilderMetadataManager.immutableCopy());
+        return new InstantiatingDataBuilderFactory(dataBuilderMetadataManager.immutableCopy(), useCurrentMeta, poolSize);
     }
 }
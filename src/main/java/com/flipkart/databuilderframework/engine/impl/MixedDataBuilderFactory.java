@@ -13,27 +13,57 @@ import java.util.Map;
 /**
  * @inheritDoc
  * This particular version, uses metadata stored in {@link com.flipkart.databuilderframework.engine.DataBuilderMetadataManager}
- * to generate a specific builder.
+ * to generate a specific builder. Registered instances are always reused, classes are instantiated according to the
+ * {@link com.flipkart.databuilderframework.model.BuilderLifecycle} registered for the builder.
  */
 public class MixedDataBuilderFactory implements DataBuilderFactory {
     private Map<String, DataBuilder> builderInstances = Maps.newHashMap();
     private DataBuilderMetadataManager dataBuilderMetadataManager;
     private boolean useCurrentMeta;
+    private int poolSize = BuilderInstances.DEFAULT_POOL_SIZE;
+    private volatile BuilderInstances instances;
 
     public MixedDataBuilderFactory() {
     }
 
+    /**
+     * @param poolSize Maximum number of idle instances kept for every
+     *                 {@link com.flipkart.databuilderframework.model.BuilderLifecycle#POOLED} builder
+     */
+    public MixedDataBuilderFactory(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
     public MixedDataBuilderFactory(
             Map<String, DataBuilder> builderInstances,
             DataBuilderMetadataManager dataBuilderMetadataManager,
             boolean useCurrentMeta) {
+        this(builderInstances, dataBuilderMetadataManager, useCurrentMeta, BuilderInstances.DEFAULT_POOL_SIZE);
+    }
+
+    public MixedDataBuilderFactory(
+            Map<String, DataBuilder> builderInstances,
+            DataBuilderMetadataManager dataBuilderMetadataManager,
+            boolean useCurrentMeta,
+            int poolSize) {
         this.builderInstances = builderInstances;
         this.dataBuilderMetadataManager = dataBuilderMetadataManager;
         this.useCurrentMeta = useCurrentMeta;
+        this.poolSize = poolSize;
     }
 
     public void setDataBuilderMetadataManager(DataBuilderMetadataManager dataBuilderMetadataManager) {
         this.dataBuilderMetadataManager = dataBuilderMetadataManager;
+        this.instances = null;
+    }
+
+    /**
+     * @param poolSize Maximum number of idle instances kept for every
+     *                 {@link com.flipkart.databuilderframework.model.BuilderLifecycle#POOLED} builder
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        this.instances = null;
     }
 
     public void register(DataBuilder dataBuilder) {
@@ -42,32 +72,34 @@ public class MixedDataBuilderFactory implements DataBuilderFactory {
 
     public DataBuilder create(DataBuilderMeta dataBuilderMeta) throws DataBuilderFrameworkException {
         final String builderName = dataBuilderMeta.getName();
-        if(builderInstances.containsKey(builderName)) {
-            return builderInstances.get(builderName);
-        }
-        Class<? extends DataBuilder> dataBuilderClass = dataBuilderMetadataManager.getDataBuilderClass(builderName);
-        if(null == dataBuilderClass) {
-            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.NO_BUILDER_FOUND_FOR_NAME,
-                                    "No builder found for name: " + builderName);
-        }
-        try {
-            DataBuilder dataBuilder = dataBuilderClass.newInstance();
-            if(useCurrentMeta) {
-                dataBuilder.setDataBuilderMeta(dataBuilderMetadataManager.get(builderName).deepCopy());
-            }
-            else {
-                dataBuilder.setDataBuilderMeta(dataBuilderMeta.deepCopy());
-            }
+        DataBuilder dataBuilder = builderInstances.get(builderName);
+        if(null != dataBuilder) {
             return dataBuilder;
-        } catch (Exception e) {
-            throw new DataBuilderFrameworkException(DataBuilderFrameworkException.ErrorCode.INSTANTIATION_FAILURE,
-                                    "Could not instantiate builder: " + builderName);
+        }
+        return instances().acquire(dataBuilderMeta);
+    }
+
+    @Override
+    public void release(DataBuilder dataBuilder) {
+        BuilderInstances current = instances;
+        if(null != current) {
+            current.release(dataBuilder);
         }
     }
 
     public MixedDataBuilderFactory immutableCopy() {
         return new MixedDataBuilderFactory(ImmutableMap.copyOf(builderInstances),
                                             dataBuilderMetadataManager.immutableCopy(),
-                                            useCurrentMeta);
+                                            useCurrentMeta,
+                                            poolSize);
+    }
+
+    private BuilderInstances instances() {
+        BuilderInstances current = instances;
+        if(null == current) {
+            current = new BuilderInstances(dataBuilderMetadataManager, useCurrentMeta, poolSize);
+            instances = current;
+        }
+        return current;
     }
 }
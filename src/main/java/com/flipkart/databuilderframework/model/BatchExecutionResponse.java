@@ -0,0 +1,50 @@
+package com.flipkart.databuilderframework.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response from {@link com.flipkart.databuilderframework.engine.DataFlowExecutor#runBatch(DataFlow, List, List)}.
+ * Instances of a batch succeed or fail independently, failures do not stop the rest of the batch.
+ */
+public class BatchExecutionResponse {
+    /**
+     * Responses indexed by position of the instance in the batch. Null for instances that failed.
+     */
+    private List<DataExecutionResponse> responses;
+
+    /**
+     * Errors indexed by position of the instance in the batch. These are the same exceptions
+     * {@link com.flipkart.databuilderframework.engine.DataFlowExecutor#run(DataFlowInstance, DataDelta)} would throw.
+     */
+    private Map<Integer, Exception> failures = Collections.emptyMap();
+
+    public BatchExecutionResponse(List<DataExecutionResponse> responses, Map<Integer, Exception> failures) {
+        this.responses = responses;
+        this.failures = failures;
+    }
+
+    public BatchExecutionResponse() {
+    }
+
+    public List<DataExecutionResponse> getResponses() {
+        return responses;
+    }
+
+    public void setResponses(List<DataExecutionResponse> responses) {
+        this.responses = responses;
+    }
+
+    public Map<Integer, Exception> getFailures() {
+        return failures;
+    }
+
+    public void setFailures(Map<Integer, Exception> failures) {
+        this.failures = failures;
+    }
+
+    public boolean isFailed(int index) {
+        return failures.containsKey(index);
+    }
+}
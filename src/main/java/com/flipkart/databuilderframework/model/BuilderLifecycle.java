@@ -0,0 +1,28 @@
+package com.flipkart.databuilderframework.model;
+
+/**
+ * Decides how instances of a {@link com.flipkart.databuilderframework.engine.DataBuilder} are created and reused by
+ * the {@link com.flipkart.databuilderframework.engine.impl.InstantiatingDataBuilderFactory} and
+ * {@link com.flipkart.databuilderframework.engine.impl.MixedDataBuilderFactory}.
+ * Set using the lifecycle attribute of {@link com.flipkart.databuilderframework.annotations.DataBuilderInfo} or
+ * {@link com.flipkart.databuilderframework.annotations.DataBuilderClassInfo}.
+ */
+public enum BuilderLifecycle {
+    /**
+     * A new instance is created every time the builder is run. This is the default.
+     */
+    PROTOTYPE,
+
+    /**
+     * A single instance is shared by all runs of a flow. Every flow using the builder gets it's own instance. The
+     * builder must be thread safe.
+     */
+    SINGLETON,
+
+    /**
+     * Instances are taken from a bounded pool and returned to it once the builder has run, so an instance is never
+     * used by two runs at the same time. Every flow using the builder has it's own pool. Use this for builders that
+     * keep state in members.
+     */
+    POOLED
+}
@@ -12,7 +12,7 @@ import javax.validation.constraints.NotNull;
 @JsonTypeInfo(use= JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "data")
 @lombok.Data
 @ToString
-public abstract class Data {
+public abstract class Data implements Cloneable {
 
     /**
      * The type-name for data. This is an app defined tag for this data.
@@ -33,4 +33,30 @@ public abstract class Data {
         this.data = data;
     }
 
+    /**
+     * A value that is the same for two data objects only if builders would generate the same data from either of them.
+     * This is used to share the result of idempotent builders between concurrent invocations with the same inputs.
+     * Override this for data used by idempotent builders, for example to return the id of the product being looked up.
+     * @return The fingerprint or null if this data can not be fingerprinted, which is the default
+     */
+    public String fingerprint() {
+        return null;
+    }
+
+    /**
+     * A shallow copy of this data with a different name. Used where the same data is known by another name, without
+     * changing this object, which might be shared.
+     * @param data Name for the copy
+     * @return The copy, of the same class as this data
+     */
+    public Data copyAs(String data) {
+        try {
+            Data copy = (Data) super.clone();
+            copy.data = data;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Could not copy data: " + this.data, e);
+        }
+    }
+
 }
@@ -65,6 +65,34 @@ public class DataBuilderMeta implements Comparable<DataBuilderMeta>, Serializabl
     @JsonProperty
     private Set<String> access;
 
+    /**
+     * Maximum time in milliseconds this {@link com.flipkart.databuilderframework.engine.DataBuilder} is allowed to run
+     * for in the multi-threaded executors. 0 means no limit.
+     */
+    @JsonProperty
+    private long timeoutMs;
+
+    /**
+     * Name of the {@link com.flipkart.databuilderframework.engine.Bulkhead} this
+     * {@link com.flipkart.databuilderframework.engine.DataBuilder} is run in, null if it uses the pool of the executor.
+     */
+    @JsonProperty
+    private String bulkhead;
+
+    /**
+     * Whether concurrent invocations of this {@link com.flipkart.databuilderframework.engine.DataBuilder} with the
+     * same inputs can share one result. See {@link com.flipkart.databuilderframework.engine.SingleFlight}.
+     */
+    @JsonProperty
+    private boolean idempotent;
+
+    /**
+     * Time in milliseconds for which data generated by this {@link com.flipkart.databuilderframework.engine.DataBuilder}
+     * can be reused from the {@link com.flipkart.databuilderframework.engine.BuilderResultCache}, 0 if it is not cached.
+     */
+    @JsonProperty
+    private long cacheTtlMs;
+
     public DataBuilderMeta(Set<String> consumes, String produces, String name) {
         this(consumes, produces, name, Collections.emptySet(), Collections.emptySet());
     }
@@ -111,6 +139,11 @@ public class DataBuilderMeta implements Comparable<DataBuilderMeta>, Serializabl
     public DataBuilderMeta deepCopy() {
     	Set<String> optionalCopy = (optionals != null) ? ImmutableSet.copyOf(optionals) : null;
     	Set<String> accessCopy = (access != null) ? ImmutableSet.copyOf(access) : null;
-        return new DataBuilderMeta(ImmutableSet.copyOf(consumes), produces, name, optionalCopy, accessCopy);
+        DataBuilderMeta copy = new DataBuilderMeta(ImmutableSet.copyOf(consumes), produces, name, optionalCopy, accessCopy);
+        copy.setTimeoutMs(timeoutMs);
+        copy.setBulkhead(bulkhead);
+        copy.setIdempotent(idempotent);
+        copy.setCacheTtlMs(cacheTtlMs);
+        return copy;
     }
 }
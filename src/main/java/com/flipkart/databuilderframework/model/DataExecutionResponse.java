@@ -2,7 +2,9 @@ package com.flipkart.databuilderframework.model;
 
 import com.flipkart.databuilderframework.engine.Utils;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Response from the system, once the {@link com.flipkart.databuilderframework.model.DataFlow} is executed by a
@@ -16,10 +18,21 @@ public class DataExecutionResponse {
      */
     private Map<String,Data> responses;
 
+    /**
+     * Names of builders that did not finish within their own timeout or the deadline for the run.
+     * If this is not empty, the responses contain only the data generated till then.
+     */
+    private Set<String> timedOutBuilders = Collections.emptySet();
+
     public DataExecutionResponse(Map<String, Data> responses) {
         this.responses = responses;
     }
 
+    public DataExecutionResponse(Map<String, Data> responses, Set<String> timedOutBuilders) {
+        this.responses = responses;
+        this.timedOutBuilders = timedOutBuilders;
+    }
+
     public DataExecutionResponse() {
     }
 
@@ -35,4 +48,12 @@ public class DataExecutionResponse {
     public void setResponses(Map<String, Data> responses) {
         this.responses = responses;
     }
+
+    public Set<String> getTimedOutBuilders() {
+        return timedOutBuilders;
+    }
+
+    public void setTimedOutBuilders(Set<String> timedOutBuilders) {
+        this.timedOutBuilders = timedOutBuilders;
+    }
 }
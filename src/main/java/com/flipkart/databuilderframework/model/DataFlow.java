@@ -3,8 +3,11 @@ package com.flipkart.databuilderframework.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.flipkart.databuilderframework.engine.DataBuilderFactory;
+import com.flipkart.databuilderframework.engine.ExecutionPlan;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import lombok.Builder;
+import lombok.ToString;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.constraints.NotNull;
@@ -16,6 +19,7 @@ import java.util.Set;
  * Flow specification for execution
  */
 @lombok.Data
+@ToString(exclude = "executionPlan")
 public class DataFlow implements Serializable {
 
     private static final long serialVersionUID = -2095986441159703272L;
@@ -44,6 +48,19 @@ public class DataFlow implements Serializable {
     @JsonProperty
     private String targetData;
 
+    /**
+     * More data for the flow to generate along with the target data, for example when a page needs several pieces of
+     * data. All targets share one execution graph, so builders needed by more than one of them run only once.
+     */
+    @JsonProperty
+    private Set<String> additionalTargetData;
+
+    /**
+     * When an execution with more than one target is complete. All targets by default.
+     */
+    @JsonProperty
+    private TargetCompletion targetCompletion = TargetCompletion.ALL;
+
     /**
      * The objects to be used for generating
      * Key is the data for which conflict can arise. Value is the builder to actually use.
@@ -72,12 +89,33 @@ public class DataFlow implements Serializable {
      */
     private boolean loopingEnabled = true;
 
+    /**
+     * Flag to run only the builders that are on a path to the target data, given the data already present in the data
+     * set. Data that is already present is not generated again, even if some of it's inputs change. Off by default.
+     */
+    @JsonProperty
+    private boolean demandDriven;
+
+    /**
+     * Sets of data names the flow is expected to be run with, for example the inputs of the first step of a flow and
+     * the ones of later steps. Executions with exactly one of these sets of data in the delta use a plan that only
+     * looks at the builders that can be reached from it.
+     */
+    @JsonProperty
+    private Set<Set<String>> assumedInputs;
+
     /**
      * Factory to be used to build data for this flow. This is set by the framework generally.
      */
     @JsonIgnore
     private transient DataBuilderFactory dataBuilderFactory;
 
+    /**
+     * Compiled plan used by the executors. This is created from the execution graph when the flow is first run.
+     */
+    @JsonIgnore
+    private transient ExecutionPlan executionPlan;
+
     public DataFlow() {
         this.resolutionSpecs = Maps.newHashMap();
     }
@@ -86,32 +124,89 @@ public class DataFlow implements Serializable {
     DataFlow(String name,
                     String description,
                     String targetData,
+                    Set<String> additionalTargetData,
+                    TargetCompletion targetCompletion,
                     Map<String, String> resolutionSpecs,
                     ExecutionGraph executionGraph,
                     Set<String> transients,
                     boolean enabled,
                     boolean loopingEnabled,
+                    boolean demandDriven,
+                    Set<Set<String>> assumedInputs,
                     DataBuilderFactory dataBuilderFactory) {
         this.name = name;
         this.description = description;
         this.targetData = targetData;
+        this.additionalTargetData = additionalTargetData;
+        this.targetCompletion = null == targetCompletion ? TargetCompletion.ALL : targetCompletion;
         this.resolutionSpecs = resolutionSpecs;
         this.executionGraph = executionGraph;
         this.transients = transients;
         this.enabled = enabled;
         this.loopingEnabled = loopingEnabled;
+        this.demandDriven = demandDriven;
+        this.assumedInputs = assumedInputs;
         this.dataBuilderFactory = dataBuilderFactory;
     }
 
+    public void setTargetData(String targetData) {
+        this.targetData = targetData;
+        this.executionPlan = null;
+    }
+
+    public void setAdditionalTargetData(Set<String> additionalTargetData) {
+        this.additionalTargetData = additionalTargetData;
+        this.executionPlan = null;
+    }
+
+    public void setTargetCompletion(TargetCompletion targetCompletion) {
+        this.targetCompletion = targetCompletion;
+        this.executionPlan = null;
+    }
+
+    /**
+     * The target data followed by the additional target data, if any.
+     */
+    @JsonIgnore
+    public Set<String> getAllTargetData() {
+        Set<String> allTargetData = Sets.newLinkedHashSet();
+        if (null != targetData) {
+            allTargetData.add(targetData);
+        }
+        if (null != additionalTargetData) {
+            allTargetData.addAll(additionalTargetData);
+        }
+        return allTargetData;
+    }
+
+    public void setExecutionGraph(ExecutionGraph executionGraph) {
+        this.executionGraph = executionGraph;
+        this.executionPlan = null;
+    }
+
+    public void setTransients(Set<String> transients) {
+        this.transients = transients;
+        this.executionPlan = null;
+    }
+
+    public void setAssumedInputs(Set<Set<String>> assumedInputs) {
+        this.assumedInputs = assumedInputs;
+        this.executionPlan = null;
+    }
+
     public DataFlow deepCopy() {
         return new DataFlow(name,
                             description,
                             targetData,
+                            additionalTargetData,
+                            targetCompletion,
                             resolutionSpecs,
                             executionGraph.deepCopy(),
                             transients,
                             enabled,
                             loopingEnabled,
+                            demandDriven,
+                            assumedInputs,
                             dataBuilderFactory);
     }
 }
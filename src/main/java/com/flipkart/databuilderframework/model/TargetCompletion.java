@@ -0,0 +1,19 @@
+package com.flipkart.databuilderframework.model;
+
+/**
+ * Decides when an execution of a {@link DataFlow} with more than one target data is complete.
+ * Set using {@link com.flipkart.databuilderframework.engine.DataFlowBuilder#withTargetCompletion(TargetCompletion)}.
+ * Flows with a single target behave the same way with either.
+ */
+public enum TargetCompletion {
+    /**
+     * The execution is complete once all targets have been generated. This is the default.
+     */
+    ALL,
+
+    /**
+     * The execution is complete as soon as any one of the targets has been generated. Builders that have not run yet
+     * are not run, and builders that are still running are cancelled where the executor supports it.
+     */
+    ANY
+}
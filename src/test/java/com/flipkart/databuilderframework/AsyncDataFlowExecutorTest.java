@@ -0,0 +1,261 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.fail;
+
+@Slf4j
+public class AsyncDataFlowExecutorTest {
+    private static class TestListener implements DataBuilderExecutionListener {
+
+        @Override
+        public void beforeExecute(DataBuilderContext builderContext,
+                                  DataFlowInstance dataFlowInstance,
+                                  DataBuilderMeta builderToBeApplied,
+                                  DataDelta dataDelta, Map<String, Data> prevResponses) throws Exception {
+            log.info("{} called for: {}", builderToBeApplied.getName(), dataFlowInstance.getId());
+        }
+
+        @Override
+        public void afterExecute(DataBuilderContext builderContext,
+                                 DataFlowInstance dataFlowInstance,
+                                 DataBuilderMeta builderToBeApplied,
+                                 DataDelta dataDelta, Map<String, Data> prevResponses, Data currentResponse) throws Exception {
+            log.info("{} called for: {}", builderToBeApplied.getName(), dataFlowInstance.getId());
+        }
+
+        @Override
+        public void afterException(DataBuilderContext builderContext,
+                                   DataFlowInstance dataFlowInstance,
+                                   DataBuilderMeta builderToBeApplied,
+                                   DataDelta dataDelta,
+                                   Map<String, Data> prevResponses, Throwable frameworkException) throws Exception {
+            log.info("{} called for: {}", builderToBeApplied.getName(), dataFlowInstance.getId());
+        }
+    }
+
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class SleepingBuilder extends DataBuilder {
+        private final String produces;
+        private final long sleepMs;
+        private final AtomicLong finishedAt;
+
+        SleepingBuilder(String produces, long sleepMs, AtomicLong finishedAt) {
+            this.produces = produces;
+            this.sleepMs = sleepMs;
+            this.finishedAt = finishedAt;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                throw new DataBuilderException("Interrupted");
+            }
+            finishedAt.set(System.currentTimeMillis());
+            return new NamedData(produces);
+        }
+    }
+
+    private static class DelayedAsyncBuilder extends AsyncDataBuilder {
+        private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        private final String produces;
+        private final long delayMs;
+        private final boolean fail;
+
+        DelayedAsyncBuilder(String produces, long delayMs, boolean fail) {
+            this.produces = produces;
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public CompletionStage<Data> processAsync(DataBuilderContext context) {
+            CompletableFuture<Data> future = new CompletableFuture<>();
+            timer.schedule(() -> {
+                if (fail) {
+                    future.completeExceptionally(new DataBuilderException("AsyncError"));
+                } else {
+                    future.complete(new NamedData(produces));
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+            return future;
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final AsyncDataFlowExecutor executor = new AsyncDataFlowExecutor(executorService);
+    private DataFlow dataFlow = new DataFlow();
+    private DataFlow dataFlowError = new DataFlow();
+    private DataFlow dataFlowValidationErrorWithPartialData = new DataFlow();
+
+    @Before
+    public void setup() throws Exception {
+        dataFlow = new DataFlowBuilder()
+                .withAnnotatedDataBuilder(TestBuilderA.class)
+                .withAnnotatedDataBuilder(TestBuilderB.class)
+                .withAnnotatedDataBuilder(TestBuilderC.class)
+                .withTargetData("F")
+                .build();
+
+        dataFlowError = new DataFlowBuilder()
+                .withAnnotatedDataBuilder(TestBuilderError.class)
+                .withTargetData("Y")
+                .build();
+
+        dataFlowValidationErrorWithPartialData = new DataFlowBuilder()
+                .withAnnotatedDataBuilder(TestBuilderA.class)
+                .withAnnotatedDataBuilder(TestBuilderDataValidationError.class)
+                .withTargetData("Y")
+                .build();
+        executor.registerExecutionListener(new TestListener());
+    }
+
+    @Test
+    public void testRunThreeSteps() throws Exception {
+        DataFlowInstance dataFlowInstance = new DataFlowInstance();
+        dataFlowInstance.setId("testflow");
+        dataFlowInstance.setDataFlow(dataFlow);
+        {
+            DataDelta dataDelta = new DataDelta(Lists.<Data>newArrayList(new TestDataA("Hello")));
+            DataExecutionResponse response = executor.runAsync(dataFlowInstance, dataDelta).get();
+            Assert.assertTrue(response.getResponses().isEmpty());
+        }
+        {
+            DataDelta dataDelta = new DataDelta(Lists.<Data>newArrayList(new TestDataB("World")));
+            DataExecutionResponse response = executor.runAsync(dataFlowInstance, dataDelta).get();
+            Assert.assertFalse(response.getResponses().isEmpty());
+            Assert.assertTrue(response.getResponses().containsKey("C"));
+        }
+        {
+            DataDelta dataDelta = new DataDelta(Lists.<Data>newArrayList(new TestDataD("this")));
+            DataExecutionResponse response = executor.runAsync(dataFlowInstance, dataDelta).get();
+            Assert.assertFalse(response.getResponses().isEmpty());
+            Assert.assertTrue(response.getResponses().containsKey("E"));
+            Assert.assertTrue(response.getResponses().containsKey("F"));
+        }
+    }
+
+    @Test
+    public void testRunSingleStep() throws Exception {
+        DataFlowInstance dataFlowInstance = new DataFlowInstance();
+        dataFlowInstance.setId("testflow");
+        dataFlowInstance.setDataFlow(dataFlow);
+        DataDelta dataDelta = new DataDelta(Lists.newArrayList(
+                                        new TestDataA("Hello"), new TestDataB("World"),
+                                        new TestDataD("this"), new TestDataG("Hmmm")));
+        DataExecutionResponse response = executor.run(dataFlowInstance, dataDelta);
+        Assert.assertEquals(3, response.getResponses().size());
+        Assert.assertTrue(response.getResponses().containsKey("C"));
+        Assert.assertTrue(response.getResponses().containsKey("E"));
+        Assert.assertTrue(response.getResponses().containsKey("F"));
+        Assert.assertTrue(dataFlowInstance.getDataSet().accessor().checkForData("F"));
+    }
+
+    @Test
+    public void testRunError() throws Exception {
+        DataFlowInstance dataFlowInstance = new DataFlowInstance();
+        dataFlowInstance.setId("testflow");
+        dataFlowInstance.setDataFlow(dataFlowError);
+        DataDelta dataDelta = new DataDelta(Lists.<Data>newArrayList(new TestDataX("Hello")));
+        try {
+            executor.runAsync(dataFlowInstance, dataDelta).get();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DataBuilderFrameworkException);
+            Assert.assertEquals("TestError", e.getCause().getCause().getMessage());
+            return;
+        }
+        fail("Should have thrown exception");
+    }
+
+    @Test
+    public void testRunValidationErrorWithPartialData() throws Exception {
+        DataFlowInstance dataFlowInstance = new DataFlowInstance();
+        dataFlowInstance.setId("testflow");
+        dataFlowInstance.setDataFlow(dataFlowValidationErrorWithPartialData);
+        DataDelta dataDelta = new DataDelta(Lists.<Data>newArrayList(new TestDataA("Hello"), new TestDataB("World")));
+        try {
+            executor.run(dataFlowInstance, dataDelta);
+        } catch (DataValidationException e) {
+            Assert.assertTrue(e.getResponse().getResponses().containsKey("C"));
+            return;
+        }
+        fail("Should have thrown exception");
+    }
+
+    @Test
+    public void testNoLevelBarrier() throws Exception {
+        AtomicLong slowFinishedAt = new AtomicLong();
+        AtomicLong fastFinishedAt = new AtomicLong();
+        DataFlow flow = new DataFlowBuilder()
+                .withDataBuilder("Slow", "S", ImmutableSet.of("REQ"), new SleepingBuilder("S", 500, slowFinishedAt))
+                .withDataBuilder("SlowConsumer", "Y", ImmutableSet.of("S"), new SleepingBuilder("Y", 0, new AtomicLong()))
+                .withDataBuilder("Fast", "Q", ImmutableSet.of("REQ"), new SleepingBuilder("Q", 0, fastFinishedAt))
+                .withDataBuilder("Result", "RES", ImmutableSet.of("Y", "Q"), new SleepingBuilder("RES", 0, new AtomicLong()))
+                .withTargetData("RES")
+                .build();
+        //Slow is alone in the first level, Fast shares the second level with SlowConsumer
+        Assert.assertEquals(3, flow.getExecutionGraph().getDependencyHierarchy().size());
+
+        DataFlowInstance dataFlowInstance = new DataFlowInstance("testflow", flow);
+        DataExecutionResponse response = executor.runAsync(dataFlowInstance, new NamedData("REQ")).get();
+        Assert.assertEquals(4, response.getResponses().size());
+        Assert.assertTrue(response.getResponses().containsKey("RES"));
+        Assert.assertTrue(fastFinishedAt.get() < slowFinishedAt.get());
+    }
+
+    @Test
+    public void testAsyncBuildersDoNotHoldThreads() throws Exception {
+        DataFlow flow = new DataFlowBuilder()
+                .withDataBuilder("CallerA", "A", ImmutableSet.of("REQ"), new DelayedAsyncBuilder("A", 300, false))
+                .withDataBuilder("CallerB", "B", ImmutableSet.of("REQ"), new DelayedAsyncBuilder("B", 300, false))
+                .withDataBuilder("CallerC", "C", ImmutableSet.of("REQ"), new DelayedAsyncBuilder("C", 300, false))
+                .withDataBuilder("Combiner", "RES", ImmutableSet.of("A", "B", "C"), new SleepingBuilder("RES", 0, new AtomicLong()))
+                .withTargetData("RES")
+                .build();
+        AsyncDataFlowExecutor singleThreadedExecutor = new AsyncDataFlowExecutor(Executors.newSingleThreadExecutor());
+        long start = System.currentTimeMillis();
+        DataExecutionResponse response = singleThreadedExecutor
+                                                .runAsync(new DataFlowInstance("testflow", flow), new NamedData("REQ"))
+                                                .get();
+        Assert.assertEquals(4, response.getResponses().size());
+        Assert.assertTrue(response.getResponses().containsKey("RES"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 900);
+
+        //Other executors wait for the async builders to finish
+        response = new SimpleDataFlowExecutor().run(new DataFlowInstance("testflow", flow), new NamedData("REQ"));
+        Assert.assertEquals(4, response.getResponses().size());
+    }
+
+    @Test
+    public void testAsyncBuilderError() throws Exception {
+        DataFlow flow = new DataFlowBuilder()
+                .withDataBuilder("CallerA", "A", ImmutableSet.of("REQ"), new DelayedAsyncBuilder("A", 10, true))
+                .withTargetData("A")
+                .build();
+        try {
+            executor.run(new DataFlowInstance("testflow", flow), new NamedData("REQ"));
+        } catch (DataBuilderFrameworkException e) {
+            Assert.assertEquals("AsyncError", e.getCause().getMessage());
+            return;
+        }
+        fail("Should have thrown exception");
+    }
+}
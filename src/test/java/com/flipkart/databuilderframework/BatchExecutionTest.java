@@ -0,0 +1,127 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchExecutionTest {
+    private static class ValueData extends Data {
+        private final int value;
+
+        ValueData(String data, int value) {
+            super(data);
+            this.value = value;
+        }
+    }
+
+    /**
+     * Doubles the request, recording the size of every batch it gets.
+     */
+    private static class LookupBuilder extends BatchDataBuilder {
+        private final List<Integer> batches = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<Data> processBatch(List<DataBuilderContext> contexts) throws DataBuilderException {
+            batches.add(contexts.size());
+            List<Data> response = Lists.newArrayList();
+            for (DataBuilderContext context : contexts) {
+                int value = DataSet.accessor(context.getDataSet()).get("REQ", ValueData.class).value;
+                response.add(value < 0 ? null : new ValueData("L", value * 2));
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Adds one to the lookup, fails for the given value.
+     */
+    private static class ResultBuilder extends DataBuilder {
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final int failFor;
+
+        ResultBuilder(int failFor) {
+            this.failFor = failFor;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            invocations.incrementAndGet();
+            int value = DataSet.accessor(context.getDataSet()).get("L", ValueData.class).value;
+            if (value == failFor) {
+                throw new DataBuilderException("Failed for " + value);
+            }
+            return new ValueData("RES", value + 1);
+        }
+    }
+
+    @Test
+    public void testRunBatch() throws Exception {
+        LookupBuilder lookup = new LookupBuilder();
+        ResultBuilder result = new ResultBuilder(-1);
+        DataFlow dataFlow = flow(lookup, result);
+        List<DataFlowInstance> instances = Lists.newArrayList();
+        List<DataDelta> deltas = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            instances.add(new DataFlowInstance("test-" + i, dataFlow));
+            deltas.add(new DataDelta(new ValueData("REQ", i)));
+        }
+        BatchExecutionResponse response = new SimpleDataFlowExecutor().runBatch(dataFlow, instances, deltas);
+        Assert.assertTrue(response.getFailures().isEmpty());
+        for (int i = 0; i < 10; i++) {
+            DataExecutionResponse itemResponse = response.getResponses().get(i);
+            Assert.assertEquals(ImmutableSet.of("L", "RES"), itemResponse.getResponses().keySet());
+            Assert.assertEquals(2 * i + 1, ((ValueData) itemResponse.getResponses().get("RES")).value);
+            Assert.assertNotNull(instances.get(i).getDataSet().getAvailableData().get("RES"));
+        }
+        Assert.assertEquals(Lists.newArrayList(10), lookup.batches);
+        Assert.assertEquals(10, result.invocations.get());
+
+        //Same results as a run of the instance
+        DataExecutionResponse single = new SimpleDataFlowExecutor()
+                .run(new DataFlowInstance("single", dataFlow), new ValueData("REQ", 3));
+        Assert.assertEquals(7, ((ValueData) single.getResponses().get("RES")).value);
+    }
+
+    @Test
+    public void testFailuresAreIsolated() throws Exception {
+        LookupBuilder lookup = new LookupBuilder();
+        DataFlow dataFlow = flow(lookup, new ResultBuilder(4));
+        BatchExecutionResponse response = new SimpleDataFlowExecutor().runBatch(dataFlow,
+                Lists.newArrayList(new DataFlowInstance("a", dataFlow), new DataFlowInstance("b", dataFlow),
+                                   new DataFlowInstance("c", dataFlow)),
+                Lists.newArrayList(new DataDelta(new ValueData("REQ", 1)), new DataDelta(new ValueData("REQ", 2)),
+                                   new DataDelta(new ValueData("REQ", -1))));
+        Assert.assertEquals(ImmutableSet.of(1), response.getFailures().keySet());
+        Assert.assertTrue(response.isFailed(1));
+        Assert.assertNull(response.getResponses().get(1));
+        DataBuilderFrameworkException e = (DataBuilderFrameworkException) response.getFailures().get(1);
+        Assert.assertEquals(DataBuilderFrameworkException.ErrorCode.BUILDER_EXECUTION_ERROR, e.getErrorCode());
+        Assert.assertEquals(ImmutableSet.of("L"), e.getPartialExecutionResponse().getResponses().keySet());
+        Assert.assertEquals(3, ((ValueData) response.getResponses().get(0).getResponses().get("RES")).value);
+        //Lookup did not generate data for the last one, so the result builder did not run
+        Assert.assertTrue(response.getResponses().get(2).getResponses().isEmpty());
+        Assert.assertEquals(Lists.newArrayList(3), lookup.batches);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedDeltas() throws Exception {
+        DataFlow dataFlow = flow(new LookupBuilder(), new ResultBuilder(-1));
+        new SimpleDataFlowExecutor().runBatch(dataFlow,
+                Lists.newArrayList(new DataFlowInstance("a", dataFlow)), Lists.newArrayList());
+    }
+
+    private static DataFlow flow(LookupBuilder lookup, ResultBuilder result) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("Lookup", "L", ImmutableSet.of("REQ"), lookup)
+                .withDataBuilder("Result", "RES", ImmutableSet.of("L"), result)
+                .withTargetData("RES")
+                .build();
+    }
+}
@@ -0,0 +1,208 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.fail;
+
+public class BulkheadTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    /**
+     * Records the threads builders run on and the highest number of builders running at a time.
+     */
+    private static class Probe {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+    }
+
+    private static class ProbedBuilder extends DataBuilder {
+        private final Probe probe;
+        private final String produces;
+
+        ProbedBuilder(Probe probe, String produces) {
+            this.probe = probe;
+            this.produces = produces;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            probe.threads.add(Thread.currentThread().getName());
+            int active = probe.active.incrementAndGet();
+            probe.maxActive.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new DataBuilderException("Interrupted");
+            } finally {
+                probe.active.decrementAndGet();
+            }
+            return new NamedData(produces);
+        }
+    }
+
+    @DataBuilderInfo(name = "Isolated", consumes = {"REQ"}, produces = "I", bulkhead = "isolated")
+    private static class IsolatedBuilder extends ProbedBuilder {
+        IsolatedBuilder(Probe probe) {
+            super(probe, "I");
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final ExecutorService isolatedPool = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("isolated-%d").build());
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+        isolatedPool.shutdownNow();
+    }
+
+    @Test
+    public void testOwnPool() throws Exception {
+        Probe probe = new Probe();
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder(new IsolatedBuilder(probe))
+                .withTargetData("I")
+                .build();
+        for (DataFlowExecutor executor : executors()) {
+            executor.registerBulkhead(Bulkhead.pool("isolated", isolatedPool));
+            DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow), new NamedData("REQ"));
+            Assert.assertEquals(ImmutableSet.of("I"), response.getResponses().keySet());
+        }
+        Assert.assertEquals(ImmutableSet.of("isolated-0"), probe.threads);
+    }
+
+    @Test
+    public void testQueue() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            Probe probe = new Probe();
+            Bulkhead bulkhead = Bulkhead.limit("limited", 1, Bulkhead.Mode.QUEUE);
+            executor.registerBulkhead(bulkhead);
+            DataExecutionResponse response = executor.run(new DataFlowInstance("test", limitedFlow(probe)), new NamedData("REQ"));
+            Assert.assertEquals(ImmutableSet.of("A", "B", "C", "RES"), response.getResponses().keySet());
+            Assert.assertEquals(1, probe.maxActive.get());
+            Assert.assertEquals(0, bulkhead.getQueueDepth());
+            Assert.assertEquals(0, bulkhead.getActiveCount());
+        }
+    }
+
+    @Test
+    public void testQueueKeepsExecutor() throws Exception {
+        ExecutorService leftPool = Executors.newFixedThreadPool(4,
+                new ThreadFactoryBuilder().setNameFormat("left-%d").build());
+        ExecutorService rightPool = Executors.newFixedThreadPool(4,
+                new ThreadFactoryBuilder().setNameFormat("right-%d").build());
+        try {
+            Bulkhead bulkhead = Bulkhead.limit("limited", 1, Bulkhead.Mode.QUEUE);
+            DataFlowExecutor left = new MultiThreadedDataFlowExecutor(leftPool);
+            DataFlowExecutor right = new MultiThreadedDataFlowExecutor(rightPool);
+            left.registerBulkhead(bulkhead);
+            right.registerBulkhead(bulkhead);
+            Probe leftProbe = new Probe();
+            Probe rightProbe = new Probe();
+            //Both flows queue on the shared bulkhead and drain each other's waiting builders
+            Future<DataExecutionResponse> leftResponse = executorService.submit(
+                    () -> left.run(new DataFlowInstance("left", limitedFlow(leftProbe)), new NamedData("REQ")));
+            Future<DataExecutionResponse> rightResponse = executorService.submit(
+                    () -> right.run(new DataFlowInstance("right", limitedFlow(rightProbe)), new NamedData("REQ")));
+            Assert.assertEquals(ImmutableSet.of("A", "B", "C", "RES"), leftResponse.get().getResponses().keySet());
+            Assert.assertEquals(ImmutableSet.of("A", "B", "C", "RES"), rightResponse.get().getResponses().keySet());
+            Assert.assertTrue(leftProbe.threads.toString(),
+                    leftProbe.threads.stream().allMatch(thread -> thread.startsWith("left-")));
+            Assert.assertTrue(rightProbe.threads.toString(),
+                    rightProbe.threads.stream().allMatch(thread -> thread.startsWith("right-")));
+            Assert.assertEquals(0, bulkhead.getQueueDepth());
+        } finally {
+            leftPool.shutdownNow();
+            rightPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            Bulkhead bulkhead = Bulkhead.limit("limited", 1, Bulkhead.Mode.FAIL_FAST);
+            executor.registerBulkhead(bulkhead);
+            try {
+                executor.run(new DataFlowInstance("test", limitedFlow(new Probe())), new NamedData("REQ"));
+                fail("Should have thrown exception");
+            } catch (DataBuilderFrameworkException e) {
+                Assert.assertEquals(DataBuilderFrameworkException.ErrorCode.BUILDER_REJECTED, e.getErrorCode());
+            }
+            Assert.assertEquals(1, bulkhead.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void testRunInline() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            Probe probe = new Probe();
+            Bulkhead bulkhead = Bulkhead.limit("limited", 1, Bulkhead.Mode.RUN_INLINE);
+            executor.registerBulkhead(bulkhead);
+            DataExecutionResponse response = executor.run(new DataFlowInstance("test", limitedFlow(probe)), new NamedData("REQ"));
+            Assert.assertEquals(ImmutableSet.of("A", "B", "C", "RES"), response.getResponses().keySet());
+            Assert.assertTrue(bulkhead.getInlineCount() > 0);
+            Assert.assertTrue(probe.threads.contains(Thread.currentThread().getName()));
+        }
+    }
+
+    @Test
+    public void testAssignBulkhead() throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager()
+                .register(ImmutableSet.of("REQ"), "A", "BuilderA", TestBuilderA.class);
+        long version = dataBuilderMetadataManager.getVersion();
+        dataBuilderMetadataManager.assignBulkhead("BuilderA", "limited");
+        Assert.assertEquals("limited", dataBuilderMetadataManager.get("BuilderA").getBulkhead());
+        Assert.assertEquals("limited", dataBuilderMetadataManager.get("BuilderA").deepCopy().getBulkhead());
+        Assert.assertNotEquals(version, dataBuilderMetadataManager.getVersion());
+        try {
+            dataBuilderMetadataManager.assignBulkhead("Missing", "limited");
+            fail("Should have thrown exception");
+        } catch (DataBuilderFrameworkException e) {
+            Assert.assertEquals(DataBuilderFrameworkException.ErrorCode.NO_BUILDER_FOUND_FOR_NAME, e.getErrorCode());
+        }
+    }
+
+    private DataFlowExecutor[] executors() {
+        return new DataFlowExecutor[] {
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)
+        };
+    }
+
+    private static DataFlow limitedFlow(Probe probe) throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
+        DataFlowBuilder dataFlowBuilder = new DataFlowBuilder()
+                .withMetaDataManager(dataBuilderMetadataManager)
+                .withDataBuilder("BuilderA", "A", ImmutableSet.of("REQ"), new ProbedBuilder(probe, "A"))
+                .withDataBuilder("BuilderB", "B", ImmutableSet.of("REQ"), new ProbedBuilder(probe, "B"))
+                .withDataBuilder("BuilderC", "C", ImmutableSet.of("REQ"), new ProbedBuilder(probe, "C"))
+                .withDataBuilder("Result", "RES", ImmutableSet.of("A", "B", "C"), new ProbedBuilder(new Probe(), "RES"))
+                .withTargetData("RES");
+        dataBuilderMetadataManager
+                .assignBulkhead("BuilderA", "limited")
+                .assignBulkhead("BuilderB", "limited")
+                .assignBulkhead("BuilderC", "limited");
+        return dataFlowBuilder.build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.fail;
+
+public class CancellationTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class PollingBuilder extends DataBuilder {
+        private final AtomicBoolean sawCancellation;
+
+        PollingBuilder(AtomicBoolean sawCancellation) {
+            this.sawCancellation = sawCancellation;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (System.currentTimeMillis() < end) {
+                if (context.isCancelled()) {
+                    sawCancellation.set(true);
+                    return null;
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    sawCancellation.set(true);
+                    throw new DataBuilderException("Interrupted");
+                }
+            }
+            return new NamedData("S");
+        }
+    }
+
+    private static class FailingBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new DataBuilderException("Interrupted");
+            }
+            throw new DataBuilderException("Failed");
+        }
+    }
+
+    private static class CancellationListener implements DataBuilderExecutionListener {
+        private final List<String> cancelled = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void beforeExecute(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                  DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                  Map<String, Data> prevResponses) throws Exception {
+        }
+
+        @Override
+        public void afterExecute(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                 DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                 Map<String, Data> allResponses, Data currentResponse) throws Exception {
+        }
+
+        @Override
+        public void afterException(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                   DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                   Map<String, Data> prevResponses, Throwable frameworkException) throws Exception {
+        }
+
+        @Override
+        public void afterCancel(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                Map<String, Data> prevResponses) throws Exception {
+            cancelled.add(builderToBeApplied.getName());
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final AtomicBoolean sawCancellation = new AtomicBoolean();
+    private DataFlow dataFlow;
+
+    @Before
+    public void setup() throws Exception {
+        dataFlow = new DataFlowBuilder()
+                .withDataBuilder("Slow", "S", ImmutableSet.of("REQ"), new PollingBuilder(sawCancellation))
+                .withDataBuilder("Failing", "F", ImmutableSet.of("REQ"), new FailingBuilder())
+                .withDataBuilder("Result", "RES", ImmutableSet.of("S", "F"), new PollingBuilder(new AtomicBoolean()))
+                .withTargetData("RES")
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testMultiThreadedExecutorCancelsSiblings() throws Exception {
+        runAndCheckCancelled(new MultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testOptimizedExecutorCancelsSiblings() throws Exception {
+        runAndCheckCancelled(new OptimizedMultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testAsyncExecutorCancelsRunningBuilders() throws Exception {
+        runAndCheckCancelled(new AsyncDataFlowExecutor(executorService));
+    }
+
+    private void runAndCheckCancelled(DataFlowExecutor executor) throws Exception {
+        CancellationListener listener = new CancellationListener();
+        executor.registerExecutionListener(listener);
+        long start = System.currentTimeMillis();
+        try {
+            executor.run(new DataFlowInstance("test", dataFlow), new NamedData("REQ"));
+            fail("Should have thrown exception");
+        } catch (DataBuilderFrameworkException e) {
+            Assert.assertEquals("Failed", e.getCause().getMessage());
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertEquals(ImmutableSet.of("Slow"), ImmutableSet.copyOf(listener.cancelled));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!sawCancellation.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(sawCancellation.get());
+    }
+}
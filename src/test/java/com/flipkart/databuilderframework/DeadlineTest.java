@@ -0,0 +1,177 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class DeadlineTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class SleepingBuilder extends DataBuilder {
+        private final String produces;
+        private final long sleepMs;
+
+        SleepingBuilder(String produces, long sleepMs) {
+            this.produces = produces;
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                throw new DataBuilderException("Interrupted");
+            }
+            return new NamedData(produces);
+        }
+    }
+
+    @DataBuilderInfo(name = "Extra", consumes = {"REQ"}, produces = "X", timeoutMs = 100)
+    private static class ExtraBuilder extends SleepingBuilder {
+        ExtraBuilder() {
+            super("X", 5000);
+        }
+    }
+
+    @DataBuilderInfo(name = "Result", consumes = {"A"}, optionals = {"X"}, produces = "RES")
+    private static class ResultBuilder extends SleepingBuilder {
+        ResultBuilder() {
+            super("RES", 0);
+        }
+    }
+
+    @DataBuilderInfo(name = "Result", consumes = {"A", "X"}, produces = "RES")
+    private static class RequiredResultBuilder extends SleepingBuilder {
+        RequiredResultBuilder() {
+            super("RES", 0);
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testMultiThreadedExecutorDeadline() throws Exception {
+        runAndCheckDeadline(new MultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testOptimizedExecutorDeadline() throws Exception {
+        runAndCheckDeadline(new OptimizedMultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testAsyncExecutorDeadline() throws Exception {
+        runAndCheckDeadline(new AsyncDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testSimpleExecutorDeadline() throws Exception {
+        //Builders are not interrupted, the deadline is checked before running the next one
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("Fast", "A", ImmutableSet.of("REQ"), new SleepingBuilder("A", 0))
+                .withDataBuilder("Slow", "S", ImmutableSet.of("A"), new SleepingBuilder("S", 300))
+                .withDataBuilder("Result", "RES", ImmutableSet.of("S"), new SleepingBuilder("RES", 0))
+                .withTargetData("RES")
+                .build();
+        DataExecutionResponse response = new SimpleDataFlowExecutor()
+                .run(new DataFlowInstance("test", dataFlow), new DataDelta(new NamedData("REQ")), 100, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(ImmutableSet.of("A", "S"), response.getResponses().keySet());
+        Assert.assertEquals(ImmutableSet.of("Result"), response.getTimedOutBuilders());
+    }
+
+    @Test
+    public void testMultiThreadedExecutorSkipsOptional() throws Exception {
+        runAndCheckOptionalSkipped(new MultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testOptimizedExecutorSkipsOptional() throws Exception {
+        runAndCheckOptionalSkipped(new OptimizedMultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testAsyncExecutorSkipsOptional() throws Exception {
+        runAndCheckOptionalSkipped(new AsyncDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testMultiThreadedExecutorRequiredTimeout() throws Exception {
+        runAndCheckRequiredTimeout(new MultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testAsyncExecutorRequiredTimeout() throws Exception {
+        runAndCheckRequiredTimeout(new AsyncDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testTimeoutFromAnnotation() throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager()
+                .register(ExtraBuilder.class)
+                .register(ResultBuilder.class);
+        Assert.assertEquals(100, dataBuilderMetadataManager.get("Extra").getTimeoutMs());
+        Assert.assertEquals(100, dataBuilderMetadataManager.get("Extra").deepCopy().getTimeoutMs());
+        Assert.assertEquals(0, dataBuilderMetadataManager.get("Result").getTimeoutMs());
+    }
+
+    private void runAndCheckDeadline(DataFlowExecutor executor) throws Exception {
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("Fast", "A", ImmutableSet.of("REQ"), new SleepingBuilder("A", 0))
+                .withDataBuilder("Slow", "S", ImmutableSet.of("REQ"), new SleepingBuilder("S", 5000))
+                .withDataBuilder("Result", "RES", ImmutableSet.of("A", "S"), new SleepingBuilder("RES", 0))
+                .withTargetData("RES")
+                .build();
+        long start = System.currentTimeMillis();
+        DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow),
+                                                        new DataDelta(new NamedData("REQ")), 200, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertEquals(ImmutableSet.of("A"), response.getResponses().keySet());
+        Assert.assertEquals(ImmutableSet.of("Slow"), response.getTimedOutBuilders());
+    }
+
+    private void runAndCheckOptionalSkipped(DataFlowExecutor executor) throws Exception {
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("Fast", "A", ImmutableSet.of("REQ"), new SleepingBuilder("A", 0))
+                .withDataBuilder(new ExtraBuilder())
+                .withDataBuilder(new ResultBuilder())
+                .withTargetData("RES")
+                .build();
+        long start = System.currentTimeMillis();
+        DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow), new NamedData("REQ"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertEquals(ImmutableSet.of("A", "RES"), response.getResponses().keySet());
+        Assert.assertEquals(ImmutableSet.of("Extra"), response.getTimedOutBuilders());
+    }
+
+    private void runAndCheckRequiredTimeout(DataFlowExecutor executor) throws Exception {
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("Fast", "A", ImmutableSet.of("REQ"), new SleepingBuilder("A", 0))
+                .withDataBuilder(new ExtraBuilder())
+                .withDataBuilder(new RequiredResultBuilder())
+                .withTargetData("RES")
+                .build();
+        long start = System.currentTimeMillis();
+        DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow), new NamedData("REQ"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertEquals(ImmutableSet.of("A"), response.getResponses().keySet());
+        Assert.assertEquals(ImmutableSet.of("Extra"), response.getTimedOutBuilders());
+    }
+}
@@ -0,0 +1,117 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DemandDrivenExecutionTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class ProducingBuilder extends DataBuilder {
+        private final String produces;
+
+        ProducingBuilder(String produces) {
+            this.produces = produces;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            return new NamedData(produces);
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testUnneededBuilders() throws Exception {
+        DataFlow dataFlow = flow(true);
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        BitSet unneeded = executionPlan.unneededBuilders(executionPlan.dataSet(ImmutableSet.of("X", "Y")));
+        Assert.assertTrue(unneeded.isEmpty());
+        unneeded = executionPlan.unneededBuilders(executionPlan.dataSet(ImmutableSet.of("X", "Y", "A")));
+        Assert.assertEquals(1, unneeded.cardinality());
+        Assert.assertEquals("BuildA", executionPlan.builder(unneeded.nextSetBit(0)).getName());
+        unneeded = executionPlan.unneededBuilders(executionPlan.dataSet(ImmutableSet.of("T")));
+        Assert.assertEquals(executionPlan.builderCount(), unneeded.cardinality());
+    }
+
+    @Test
+    public void testSkipsAvailableBranch() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            //A is already there from an earlier step, so only B is needed for the target
+            DataFlowInstance dataFlowInstance = new DataFlowInstance("test", flow(true));
+            executor.run(dataFlowInstance, new NamedData("X"));
+            DataExecutionResponse response = executor.run(dataFlowInstance,
+                    new DataDelta(new NamedData("X"), new NamedData("Y")));
+            Assert.assertEquals(ImmutableSet.of("B", "T"), response.getResponses().keySet());
+
+            //Without demand driven execution, A is built again as X has changed
+            dataFlowInstance = new DataFlowInstance("test", flow(false));
+            executor.run(dataFlowInstance, new NamedData("X"));
+            response = executor.run(dataFlowInstance, new DataDelta(new NamedData("X"), new NamedData("Y")));
+            Assert.assertEquals(ImmutableSet.of("A", "B", "T"), response.getResponses().keySet());
+        }
+    }
+
+    @Test
+    public void testTargetAvailable() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            DataFlowInstance dataFlowInstance = new DataFlowInstance("test", flow(true));
+            DataExecutionResponse response = executor.run(dataFlowInstance,
+                    new DataDelta(new NamedData("X"), new NamedData("Y")));
+            Assert.assertEquals(ImmutableSet.of("A", "B", "T"), response.getResponses().keySet());
+            response = executor.run(dataFlowInstance, new NamedData("Y"));
+            Assert.assertTrue(response.getResponses().isEmpty());
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        DataFlow dataFlow = flow(true);
+        DataFlowInstance withA = new DataFlowInstance("a", dataFlow);
+        DataFlowExecutor executor = new SimpleDataFlowExecutor();
+        executor.run(withA, new NamedData("X"));
+        BatchExecutionResponse response = executor.runBatch(dataFlow,
+                Arrays.asList(withA, new DataFlowInstance("b", dataFlow)),
+                Arrays.asList(new DataDelta(new NamedData("X"), new NamedData("Y")),
+                        new DataDelta(new NamedData("X"), new NamedData("Y"))));
+        Assert.assertEquals(ImmutableSet.of("B", "T"), response.getResponses().get(0).getResponses().keySet());
+        Assert.assertEquals(ImmutableSet.of("A", "B", "T"), response.getResponses().get(1).getResponses().keySet());
+    }
+
+    private DataFlowExecutor[] executors() {
+        return new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)
+        };
+    }
+
+    private static DataFlow flow(boolean demandDriven) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("BuildA", "A", ImmutableSet.of("X"), new ProducingBuilder("A"))
+                .withDataBuilder("BuildB", "B", ImmutableSet.of("Y"), new ProducingBuilder("B"))
+                .withDataBuilder("BuildT", "T", ImmutableSet.of("A", "B"), new ProducingBuilder("T"))
+                .withTargetData("T")
+                .withDemandDriven(demandDriven)
+                .build();
+    }
+}
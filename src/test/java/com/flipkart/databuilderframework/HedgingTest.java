@@ -0,0 +1,169 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgingTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    /**
+     * Slow on the first invocation only, like a request that lands on a bad replica.
+     */
+    private static class TailBuilder extends DataBuilder {
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final long slowMs;
+
+        TailBuilder(long slowMs) {
+            this.slowMs = slowMs;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            if (0 == invocations.getAndIncrement()) {
+                try {
+                    Thread.sleep(slowMs);
+                } catch (InterruptedException e) {
+                    throw new DataBuilderException("Interrupted");
+                }
+            }
+            return new NamedData("T");
+        }
+    }
+
+    private static class HedgeListener implements DataBuilderExecutionListener {
+        private final List<Long> hedges = new CopyOnWriteArrayList<>();
+        private final List<String> cancelled = new CopyOnWriteArrayList<>();
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void beforeExecute(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                  DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                  Map<String, Data> prevResponses) throws Exception {
+            events.add("before");
+        }
+
+        @Override
+        public void afterExecute(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                 DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                 Map<String, Data> allResponses, Data currentResponse) throws Exception {
+            events.add("after");
+        }
+
+        @Override
+        public void afterException(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                   DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                   Map<String, Data> prevResponses, Throwable frameworkException) throws Exception {
+            events.add("exception");
+        }
+
+        @Override
+        public void afterCancel(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                Map<String, Data> prevResponses) throws Exception {
+            cancelled.add(builderToBeApplied.getName());
+        }
+
+        @Override
+        public void afterHedge(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                               DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                               Map<String, Data> prevResponses, long hedgeCount) throws Exception {
+            hedges.add(hedgeCount);
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testMultiThreadedExecutorHedges() throws Exception {
+        runAndCheckHedged(new MultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testOptimizedExecutorHedges() throws Exception {
+        runAndCheckHedged(new OptimizedMultiThreadedDataFlowExecutor(executorService));
+    }
+
+    @Test
+    public void testHedgeRateCap() throws Exception {
+        DataFlowExecutor executor = new MultiThreadedDataFlowExecutor(executorService);
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(0.9, 0));
+        executor.registerHedgingPolicy("Tail", policy);
+        long start = System.currentTimeMillis();
+        DataExecutionResponse response = executor.run(new DataFlowInstance("test", flow(300)), new NamedData("REQ"));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 300);
+        Assert.assertEquals(ImmutableSet.of("T"), response.getResponses().keySet());
+        Assert.assertEquals(1, policy.getInvocationCount());
+        Assert.assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    public void testHedgeDelay() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.1);
+        for (int i = 1; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.record(i, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertEquals(-1, policy.hedgeDelay(TimeUnit.MILLISECONDS));
+        for (int i = HedgingPolicy.MIN_SAMPLES; i <= 100; i++) {
+            policy.record(i, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertEquals(90, policy.hedgeDelay(TimeUnit.MILLISECONDS));
+        //Old samples fall out of the window
+        for (int i = 0; i < HedgingPolicy.DEFAULT_WINDOW_SIZE; i++) {
+            policy.record(5, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertEquals(5, policy.hedgeDelay(TimeUnit.MILLISECONDS));
+    }
+
+    private void runAndCheckHedged(DataFlowExecutor executor) throws Exception {
+        HedgeListener listener = new HedgeListener();
+        executor.registerExecutionListener(listener);
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(0.9, 1));
+        executor.registerHedgingPolicy("Tail", policy);
+        long start = System.currentTimeMillis();
+        DataExecutionResponse response = executor.run(new DataFlowInstance("test", flow(5000)), new NamedData("REQ"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertEquals(ImmutableSet.of("T"), response.getResponses().keySet());
+        Assert.assertEquals(1, policy.getHedgeCount());
+        Assert.assertEquals(ImmutableSet.of(1L), ImmutableSet.copyOf(listener.hedges));
+        Assert.assertEquals(ImmutableSet.of("Tail"), ImmutableSet.copyOf(listener.cancelled));
+        //The interrupted first invocation is not reported, only the hedge that won
+        Thread.sleep(100);
+        Assert.assertEquals(Lists.newArrayList("before", "after"), listener.events);
+    }
+
+    private static HedgingPolicy warmedUp(HedgingPolicy policy) {
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.record(50, TimeUnit.MILLISECONDS);
+        }
+        return policy;
+    }
+
+    private static DataFlow flow(long slowMs) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("Tail", "T", ImmutableSet.of("REQ"), new TailBuilder(slowMs))
+                .withTargetData("T")
+                .build();
+    }
+}
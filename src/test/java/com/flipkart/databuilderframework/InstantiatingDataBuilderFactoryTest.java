@@ -1,9 +1,13 @@
 package com.flipkart.databuilderframework;
 
+import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
 import com.flipkart.databuilderframework.engine.*;
 import com.flipkart.databuilderframework.engine.impl.InstantiatingDataBuilderFactory;
+import com.flipkart.databuilderframework.model.BuilderLifecycle;
 import com.flipkart.databuilderframework.model.Data;
 import com.flipkart.databuilderframework.model.DataBuilderMeta;
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.DataFlowInstance;
 import com.flipkart.databuilderframework.model.ExecutionGraph;
 import com.google.common.collect.ImmutableSet;
 import org.junit.Assert;
@@ -26,6 +30,37 @@ public class InstantiatingDataBuilderFactoryTest {
             return null;
         }
     }
+
+    @DataBuilderInfo(name = "SingletonBuilder", consumes = {"A"}, produces = "S", lifecycle = BuilderLifecycle.SINGLETON)
+    public static class SingletonBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) {
+            return null;
+        }
+    }
+
+    @DataBuilderInfo(name = "PooledBuilder", consumes = {"A"}, produces = "P", lifecycle = BuilderLifecycle.POOLED)
+    public static class PooledBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) {
+            return null;
+        }
+    }
+
+    @DataBuilderInfo(name = "EchoBuilder", consumes = {"A"}, produces = "S", lifecycle = BuilderLifecycle.SINGLETON)
+    public static class EchoBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) {
+            return new NamedData(getDataBuilderMeta().getProduces());
+        }
+    }
+
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
     private DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
     private ExecutionGraphGenerator executionGraphGenerator = new ExecutionGraphGenerator(dataBuilderMetadataManager);
     private DataBuilderFactory dataBuilderFactory = new InstantiatingDataBuilderFactory(dataBuilderMetadataManager);
@@ -35,6 +70,8 @@ public class InstantiatingDataBuilderFactoryTest {
         dataBuilderMetadataManager.register(ImmutableSet.of("A", "B"), "C", "BuilderA", TestBuilderA.class);
         dataBuilderMetadataManager.register(ImmutableSet.of("A", "B"), "C", "BuilderB", null);
         dataBuilderMetadataManager.register(ImmutableSet.of("A", "B"), "X", "BuilderC", WrongBuilder.class);
+        dataBuilderMetadataManager.register(SingletonBuilder.class);
+        dataBuilderMetadataManager.register(PooledBuilder.class);
     }
 
 
@@ -73,4 +110,91 @@ public class InstantiatingDataBuilderFactoryTest {
         }
         fail();
     }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        DataBuilderMeta prototypeMeta = DataBuilderMeta.builder()
+                .name("BuilderA")
+                .consumes(ImmutableSet.of("A", "B"))
+                .produces("C")
+                .build();
+        DataBuilder prototype = dataBuilderFactory.create(prototypeMeta);
+        DataBuilder prototype2 = dataBuilderFactory.create(prototypeMeta);
+        dataBuilderFactory.release(prototype);
+        Assert.assertNotSame(prototype, prototype2);
+        Assert.assertNotSame(prototype, dataBuilderFactory.create(prototypeMeta));
+        //The meta is copied once and shared by all instances for it
+        Assert.assertNotSame(prototypeMeta, prototype.getDataBuilderMeta());
+        Assert.assertEquals(prototypeMeta, prototype.getDataBuilderMeta());
+        Assert.assertSame(prototype.getDataBuilderMeta(), prototype2.getDataBuilderMeta());
+
+        DataBuilderMeta singletonMeta = dataBuilderMetadataManager.get("SingletonBuilder");
+        DataBuilder singleton = dataBuilderFactory.create(singletonMeta);
+        dataBuilderFactory.release(singleton);
+        Assert.assertSame(singleton, dataBuilderFactory.create(singletonMeta));
+
+        DataBuilderMeta pooledMeta = dataBuilderMetadataManager.get("PooledBuilder");
+        DataBuilder pooled = dataBuilderFactory.create(pooledMeta);
+        DataBuilder pooled2 = dataBuilderFactory.create(pooledMeta);
+        Assert.assertNotSame(pooled, pooled2);
+        dataBuilderFactory.release(pooled);
+        Assert.assertSame(pooled, dataBuilderFactory.create(pooledMeta));
+        Assert.assertNotSame(pooled, dataBuilderFactory.create(pooledMeta));
+        Assert.assertSame(pooled.getDataBuilderMeta(), pooled2.getDataBuilderMeta());
+
+        Assert.assertEquals(BuilderLifecycle.POOLED, dataBuilderMetadataManager.getLifecycle("PooledBuilder"));
+        Assert.assertEquals(BuilderLifecycle.PROTOTYPE, dataBuilderMetadataManager.getLifecycle("BuilderA"));
+    }
+
+    @Test
+    public void testSharedInstancesPerFlow() throws Exception {
+        DataBuilderMetadataManager sMetadataManager = new DataBuilderMetadataManager().register(EchoBuilder.class);
+        DataBuilderMetadataManager tMetadataManager = new DataBuilderMetadataManager()
+                .register(ImmutableSet.of("A"), "T", "EchoBuilder", EchoBuilder.class);
+        DataBuilderFactory factory = new InstantiatingDataBuilderFactory(sMetadataManager);
+        DataFlow sFlow = new DataFlowBuilder()
+                .withMetaDataManager(sMetadataManager)
+                .withTargetData("S")
+                .build();
+        DataFlow tFlow = new DataFlowBuilder()
+                .withMetaDataManager(tMetadataManager)
+                .withTargetData("T")
+                .build();
+        sFlow.setDataBuilderFactory(factory);
+        tFlow.setDataBuilderFactory(factory);
+        DataFlowExecutor executor = new SimpleDataFlowExecutor();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(ImmutableSet.of("S"), executor.run(new DataFlowInstance("s", sFlow), new NamedData("A"))
+                    .getResponses().keySet());
+            Assert.assertEquals(ImmutableSet.of("T"), executor.run(new DataFlowInstance("t", tFlow), new NamedData("A"))
+                    .getResponses().keySet());
+        }
+
+        //One instance for every flow, each with the meta of it's flow
+        DataBuilderMeta sMeta = sMetadataManager.get("EchoBuilder");
+        DataBuilderMeta tMeta = tMetadataManager.get("EchoBuilder");
+        DataBuilder sBuilder = factory.create(sMeta);
+        DataBuilder tBuilder = factory.create(tMeta);
+        Assert.assertNotSame(sBuilder, tBuilder);
+        Assert.assertSame(sBuilder, factory.create(sMeta));
+        Assert.assertEquals(sMeta, sBuilder.getDataBuilderMeta());
+        Assert.assertEquals(tMeta, tBuilder.getDataBuilderMeta());
+    }
+
+    @Test
+    public void testPoolSizeKeptInCopies() throws Exception {
+        DataBuilderMetadataManager pooledMetadataManager = new DataBuilderMetadataManager().register(PooledBuilder.class);
+        DataBuilderFactory copy = new InstantiatingDataBuilderFactory(pooledMetadataManager, false, 1)
+                                        .immutableCopy();
+        DataBuilderMeta pooledMeta = pooledMetadataManager.get("PooledBuilder");
+        DataBuilder pooled = copy.create(pooledMeta);
+        DataBuilder pooled2 = copy.create(pooledMeta);
+        copy.release(pooled);
+        //Dropped as the pool is full
+        copy.release(pooled2);
+        Assert.assertSame(pooled, copy.create(pooledMeta));
+        DataBuilder pooled3 = copy.create(pooledMeta);
+        Assert.assertNotSame(pooled, pooled3);
+        Assert.assertNotSame(pooled2, pooled3);
+    }
 }
@@ -0,0 +1,225 @@
+package com.flipkart.databuilderframework;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MultiTargetFlowTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class ProducingBuilder extends DataBuilder {
+        private final String produces;
+        private final long sleepMs;
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        ProducingBuilder(String produces, long sleepMs) {
+            this.produces = produces;
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            invocations.incrementAndGet();
+            if (sleepMs > 0) {
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataBuilderException("Interrupted");
+                }
+            }
+            return new NamedData(produces);
+        }
+    }
+
+    /*
+     * Delivery needs the quote, which needs delivery optionally, and recheck needs delivery, which needs recheck
+     * optionally. The graph leaves out the dependency of delivery on the quote and of recheck on delivery, so delivery
+     * can only be generated in the pass after the quote and recheck in the pass after delivery.
+     */
+    @DataBuilderInfo(name = "Quote", consumes = {"X"}, optionals = {"D"}, produces = "Q")
+    private static class QuoteBuilder extends ProducingBuilder {
+        QuoteBuilder() {
+            super("Q", 0);
+        }
+    }
+
+    @DataBuilderInfo(name = "Price", consumes = {"Q"}, produces = "P")
+    private static class PriceBuilder extends ProducingBuilder {
+        PriceBuilder() {
+            super("P", 0);
+        }
+    }
+
+    @DataBuilderInfo(name = "Delivery", consumes = {"X", "Q"}, optionals = {"H"}, produces = "D")
+    private static class DeliveryBuilder extends ProducingBuilder {
+        DeliveryBuilder() {
+            super("D", 0);
+        }
+    }
+
+    @DataBuilderInfo(name = "Recheck", consumes = {"X", "D"}, produces = "H")
+    private static class RecheckBuilder extends ProducingBuilder {
+        RecheckBuilder() {
+            super("H", 0);
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final ProducingBuilder shared = new ProducingBuilder("S", 0);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testMergedGraph() throws Exception {
+        DataFlow dataFlow = flow(TargetCompletion.ALL, 0);
+        List<List<DataBuilderMeta>> dependencyHierarchy = dataFlow.getExecutionGraph().getDependencyHierarchy();
+        Assert.assertEquals(2, dependencyHierarchy.size());
+        Assert.assertEquals(1, dependencyHierarchy.get(0).size());
+        Assert.assertEquals("Shared", dependencyHierarchy.get(0).get(0).getName());
+        Assert.assertEquals(3, dependencyHierarchy.get(1).size());
+        Assert.assertEquals(ImmutableSet.of("P", "O", "D"), dataFlow.getAllTargetData());
+
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        Assert.assertFalse(executionPlan.containsTarget(executionPlan.dataSet(ImmutableSet.of("P", "O"))));
+        Assert.assertTrue(executionPlan.containsTarget(executionPlan.dataSet(ImmutableSet.of("P", "O", "D"))));
+        Assert.assertTrue(ExecutionPlan.of(flow(TargetCompletion.ANY, 0))
+                .containsTarget(executionPlan.dataSet(ImmutableSet.of("O"))));
+    }
+
+    @Test
+    public void testAllTargets() throws Exception {
+        DataFlow dataFlow = flow(TargetCompletion.ALL, 0);
+        for (DataFlowExecutor executor : executors()) {
+            DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow),
+                    new DataDelta(new NamedData("X"), new NamedData("Y")));
+            Assert.assertEquals(ImmutableSet.of("S", "P", "O", "D"), response.getResponses().keySet());
+        }
+        //The shared builder runs once per execution
+        Assert.assertEquals(executors().length, shared.invocations.get());
+    }
+
+    @Test
+    public void testAllTargetsInDifferentPasses() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            ProducingBuilder delivery = new DeliveryBuilder();
+            ProducingBuilder recheck = new RecheckBuilder();
+            DataFlow dataFlow = loopedFlow(delivery, recheck);
+            Assert.assertTrue(dataFlow.isLoopingEnabled());
+            DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow), new NamedData("X"));
+            Assert.assertEquals(ImmutableSet.of("Q", "P", "D"), response.getResponses().keySet());
+            Assert.assertEquals(1, delivery.invocations.get());
+            //No more passes once both targets have been generated
+            Assert.assertEquals(0, recheck.invocations.get());
+        }
+        ProducingBuilder recheck = new RecheckBuilder();
+        DataFlow dataFlow = loopedFlow(new DeliveryBuilder(), recheck);
+        BatchExecutionResponse response = new SimpleDataFlowExecutor().runBatch(dataFlow,
+                Lists.newArrayList(new DataFlowInstance("a", dataFlow), new DataFlowInstance("b", dataFlow)),
+                Lists.newArrayList(new DataDelta(new NamedData("X")), new DataDelta(new NamedData("X"))));
+        Assert.assertTrue(response.getFailures().isEmpty());
+        for (DataExecutionResponse itemResponse : response.getResponses()) {
+            Assert.assertEquals(ImmutableSet.of("Q", "P", "D"), itemResponse.getResponses().keySet());
+        }
+        Assert.assertEquals(0, recheck.invocations.get());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        DataFlow dataFlow = flow(TargetCompletion.ANY, 0);
+        dataFlow.setDemandDriven(true);
+        dataFlow.setAssumedInputs(ImmutableSet.<Set<String>>of(ImmutableSet.of("X", "Y")));
+        ObjectMapper mapper = new ObjectMapper();
+        DataFlow read = mapper.readValue(mapper.writeValueAsString(dataFlow), DataFlow.class);
+        Assert.assertEquals(dataFlow.getAllTargetData(), read.getAllTargetData());
+        Assert.assertEquals(TargetCompletion.ANY, read.getTargetCompletion());
+        Assert.assertTrue(read.isDemandDriven());
+        Assert.assertEquals(dataFlow.getAssumedInputs(), read.getAssumedInputs());
+    }
+
+    @Test
+    public void testAnyTarget() throws Exception {
+        DataFlow dataFlow = flow(TargetCompletion.ANY, 2000);
+        for (DataFlowExecutor executor : new DataFlowExecutor[] {
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)}) {
+            long start = System.currentTimeMillis();
+            DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow),
+                    new DataDelta(new NamedData("X"), new NamedData("Y")));
+            Assert.assertTrue(System.currentTimeMillis() - start < 1500);
+            Assert.assertFalse(response.getResponses().containsKey("D"));
+            Assert.assertTrue(response.getResponses().containsKey("P") || response.getResponses().containsKey("O"));
+        }
+        //Builders run in order on the calling thread, the first target ends the execution
+        DataExecutionResponse response = new SimpleDataFlowExecutor().run(new DataFlowInstance("test", dataFlow),
+                new DataDelta(new NamedData("X")));
+        Assert.assertEquals(2, response.getResponses().size());
+    }
+
+    @Test
+    public void testDemandDriven() throws Exception {
+        DataFlow dataFlow = flow(TargetCompletion.ALL, 0);
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        //Only delivery is missing
+        Assert.assertEquals(3, executionPlan.unneededBuilders(
+                executionPlan.dataSet(ImmutableSet.of("X", "Y", "P", "O"))).cardinality());
+        DataFlow anyFlow = flow(TargetCompletion.ANY, 0);
+        ExecutionPlan anyPlan = ExecutionPlan.of(anyFlow);
+        Assert.assertEquals(anyPlan.builderCount(), anyPlan.unneededBuilders(
+                anyPlan.dataSet(ImmutableSet.of("X", "Y", "P"))).cardinality());
+    }
+
+    private DataFlowExecutor[] executors() {
+        return new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)
+        };
+    }
+
+    private static DataFlow loopedFlow(ProducingBuilder delivery, ProducingBuilder recheck) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder(new QuoteBuilder())
+                .withDataBuilder(new PriceBuilder())
+                .withDataBuilder(delivery)
+                .withDataBuilder(recheck)
+                .withTargetData("P")
+                .withAdditionalTargetData("D")
+                .withTransientData("H")
+                .build();
+    }
+
+    private DataFlow flow(TargetCompletion targetCompletion, long deliverySleepMs) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("Shared", "S", ImmutableSet.of("X"), shared)
+                .withDataBuilder("Price", "P", ImmutableSet.of("S"), new ProducingBuilder("P", 0))
+                .withDataBuilder("Offers", "O", ImmutableSet.of("S"), new ProducingBuilder("O", 0))
+                .withDataBuilder("Delivery", "D", ImmutableSet.of("Y"), new ProducingBuilder("D", deliverySleepMs))
+                .withTargetData("P")
+                .withAdditionalTargetData("O")
+                .withAdditionalTargetData("D")
+                .withTargetCompletion(targetCompletion)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+public class PartialEvaluationTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class ProducingBuilder extends DataBuilder {
+        private final String produces;
+
+        ProducingBuilder(String produces) {
+            this.produces = produces;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            return new NamedData(produces);
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testSpecialisedPlans() throws Exception {
+        DataFlow dataFlow = flow();
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        BitSet first = executionPlan.dataSet(ImmutableSet.of("X"));
+        BitSet second = executionPlan.dataSet(ImmutableSet.of("Y"));
+        BitSet both = executionPlan.dataSet(ImmutableSet.of("X", "Y"));
+        Assert.assertTrue(executionPlan.isSpecialisedFor(first));
+        Assert.assertTrue(executionPlan.isSpecialisedFor(second));
+        Assert.assertFalse(executionPlan.isSpecialisedFor(both));
+        Assert.assertEquals(ImmutableSet.of("BuildA", "BuildC"), names(executionPlan, executionPlan.candidateBuilders(first)));
+        Assert.assertEquals(ImmutableSet.of("BuildB", "BuildC"), names(executionPlan, executionPlan.candidateBuilders(second)));
+        Assert.assertEquals(executionPlan.builderCount(), executionPlan.candidateBuilders(both).cardinality());
+
+        //Changing the assumed inputs discards the compiled plan
+        dataFlow.setAssumedInputs(null);
+        Assert.assertFalse(ExecutionPlan.of(dataFlow).isSpecialisedFor(first));
+    }
+
+    @Test
+    public void testExecution() throws Exception {
+        DataFlow dataFlow = flow();
+        for (DataFlowExecutor executor : new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService)}) {
+            DataFlowInstance dataFlowInstance = new DataFlowInstance("test", dataFlow);
+            DataExecutionResponse response = executor.run(dataFlowInstance, new NamedData("X"));
+            Assert.assertEquals(ImmutableSet.of("A"), response.getResponses().keySet());
+            response = executor.run(dataFlowInstance, new NamedData("Y"));
+            Assert.assertEquals(ImmutableSet.of("B", "C"), response.getResponses().keySet());
+            //Not one of the assumed inputs, uses the generic plan
+            response = executor.run(new DataFlowInstance("test", dataFlow),
+                    new DataDelta(new NamedData("X"), new NamedData("Y")));
+            Assert.assertEquals(ImmutableSet.of("A", "B", "C"), response.getResponses().keySet());
+        }
+    }
+
+    private static Set<String> names(ExecutionPlan executionPlan, BitSet builderIds) {
+        return builderIds.stream()
+                .mapToObj(builderId -> executionPlan.builder(builderId).getName())
+                .collect(Collectors.toSet());
+    }
+
+    private static DataFlow flow() throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("BuildA", "A", ImmutableSet.of("X"), new ProducingBuilder("A"))
+                .withDataBuilder("BuildB", "B", ImmutableSet.of("Y"), new ProducingBuilder("B"))
+                .withDataBuilder("BuildC", "C", ImmutableSet.of("A", "B"), new ProducingBuilder("C"))
+                .withTargetData("C")
+                .withAssumedInputs(ImmutableSet.of("X"))
+                .withAssumedInputs(ImmutableSet.of("Y"))
+                .build();
+    }
+}
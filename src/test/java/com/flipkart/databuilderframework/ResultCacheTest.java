@@ -0,0 +1,193 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.annotations.DataBuilderInfo;
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResultCacheTest {
+    private static class RequestData extends Data {
+        private final String id;
+
+        RequestData(String id) {
+            super("REQ");
+            this.id = id;
+        }
+
+        @Override
+        public String fingerprint() {
+            return id;
+        }
+    }
+
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    @DataBuilderInfo(name = "Pricing", consumes = {"REQ"}, produces = "P", cacheTtlMs = 300)
+    private static class PricingBuilder extends DataBuilder {
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            invocations.incrementAndGet();
+            return new NamedData("P");
+        }
+    }
+
+    private static class CacheListener implements DataBuilderExecutionListener {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void beforeExecute(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                  DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                  Map<String, Data> prevResponses) throws Exception {
+            events.add("before");
+        }
+
+        @Override
+        public void afterExecute(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                 DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                 Map<String, Data> allResponses, Data currentResponse) throws Exception {
+            events.add("after");
+        }
+
+        @Override
+        public void afterException(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                   DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                   Map<String, Data> prevResponses, Throwable frameworkException) throws Exception {
+        }
+
+        @Override
+        public void afterCacheHit(DataBuilderContext builderContext, DataFlowInstance dataFlowInstance,
+                                  DataBuilderMeta builderToBeApplied, DataDelta dataDelta,
+                                  Map<String, Data> allResponses, Data currentResponse) throws Exception {
+            events.add("hit");
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            PricingBuilder pricing = new PricingBuilder();
+            DataFlow dataFlow = flow(pricing);
+            LruBuilderResultCache cache = new LruBuilderResultCache(16);
+            CacheListener listener = new CacheListener();
+            executor.setBuilderResultCache(cache);
+            executor.registerExecutionListener(listener);
+            for (String id : new String[] {"P1", "P1", "P2"}) {
+                DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow), new RequestData(id));
+                Assert.assertEquals("Pricing", response.getResponses().get("P").getGeneratedBy());
+            }
+            Assert.assertEquals(2, pricing.invocations.get());
+            Assert.assertEquals(Lists.newArrayList("before", "after", "hit", "before", "after"), listener.events);
+            Assert.assertEquals(1, cache.getHitCount());
+            Assert.assertEquals(2, cache.getMissCount());
+            Assert.assertEquals(1.0 / 3, cache.getHitRate(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        PricingBuilder pricing = new PricingBuilder();
+        DataFlow dataFlow = flow(pricing);
+        LruBuilderResultCache cache = new LruBuilderResultCache(16);
+        DataFlowExecutor executor = new SimpleDataFlowExecutor();
+        executor.setBuilderResultCache(cache);
+        executor.run(new DataFlowInstance("test", dataFlow), new RequestData("P1"));
+        Thread.sleep(400);
+        executor.run(new DataFlowInstance("test", dataFlow), new RequestData("P1"));
+        Assert.assertEquals(2, pricing.invocations.get());
+        Assert.assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    public void testNotCached() throws Exception {
+        //Without a cache TTL or without fingerprints, the builder always runs
+        PricingBuilder pricing = new PricingBuilder();
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("Uncached", "P", ImmutableSet.of("REQ"), pricing)
+                .withTargetData("P")
+                .build();
+        DataFlowExecutor executor = new SimpleDataFlowExecutor();
+        executor.setBuilderResultCache(new LruBuilderResultCache(16));
+        executor.run(new DataFlowInstance("test", dataFlow), new RequestData("P1"));
+        executor.run(new DataFlowInstance("test", dataFlow), new RequestData("P1"));
+        DataFlow cachedFlow = flow(pricing);
+        executor.run(new DataFlowInstance("test", cachedFlow), new NamedData("REQ"));
+        executor.run(new DataFlowInstance("test", cachedFlow), new NamedData("REQ"));
+        Assert.assertEquals(4, pricing.invocations.get());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        LruBuilderResultCache cache = new LruBuilderResultCache(2);
+        InvocationKey a = new InvocationKey("Pricing", ImmutableMap.of("REQ", "A"));
+        InvocationKey b = new InvocationKey("Pricing", ImmutableMap.of("REQ", "B"));
+        InvocationKey c = new InvocationKey("Pricing", ImmutableMap.of("REQ", "C"));
+        cache.put(a, new NamedData("P"), 1, TimeUnit.MINUTES);
+        cache.put(b, new NamedData("P"), 1, TimeUnit.MINUTES);
+        Assert.assertNotNull(cache.get(a));
+        cache.put(c, new NamedData("P"), 1, TimeUnit.MINUTES);
+        //B was used least recently
+        Assert.assertNull(cache.get(b));
+        Assert.assertNotNull(cache.get(a));
+        Assert.assertNotNull(cache.get(c));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        PricingBuilder pricing = new PricingBuilder();
+        DataFlow dataFlow = flow(pricing);
+        DataFlowExecutor executor = new SimpleDataFlowExecutor();
+        executor.setBuilderResultCache(new LruBuilderResultCache(16));
+        executor.run(new DataFlowInstance("test", dataFlow), new RequestData("P1"));
+        BatchExecutionResponse response = executor.runBatch(dataFlow,
+                Lists.newArrayList(new DataFlowInstance("a", dataFlow), new DataFlowInstance("b", dataFlow)),
+                Lists.newArrayList(new DataDelta(new RequestData("P1")), new DataDelta(new RequestData("P2"))));
+        Assert.assertTrue(response.getFailures().isEmpty());
+        Assert.assertNotNull(response.getResponses().get(0).getResponses().get("P"));
+        Assert.assertNotNull(response.getResponses().get(1).getResponses().get("P"));
+        Assert.assertEquals(2, pricing.invocations.get());
+    }
+
+    private DataFlowExecutor[] executors() {
+        return new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)
+        };
+    }
+
+    private static DataFlow flow(PricingBuilder pricing) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder(pricing)
+                .withTargetData("P")
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+    private static class RequestData extends Data {
+        private final String id;
+
+        RequestData(String id) {
+            super("REQ");
+            this.id = id;
+        }
+
+        @Override
+        public String fingerprint() {
+            return id;
+        }
+    }
+
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    /**
+     * A slow lookup that counts it's invocations, fails on the first one if asked to.
+     */
+    private static class LookupBuilder extends DataBuilder {
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final boolean failFirst;
+
+        LookupBuilder(boolean failFirst) {
+            this.failFirst = failFirst;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            int invocation = invocations.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                throw new DataBuilderException("Interrupted");
+            }
+            if (failFirst && 1 == invocation) {
+                throw new DataBuilderException("Lookup failed");
+            }
+            return new NamedData("L");
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(16);
+    private final ExecutorService users = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+        users.shutdownNow();
+    }
+
+    @Test
+    public void testCoalesced() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            LookupBuilder lookup = new LookupBuilder(false);
+            List<Future<DataExecutionResponse>> responses = runConcurrently(executor, flow(lookup, true), "P1", 8);
+            for (Future<DataExecutionResponse> response : responses) {
+                Assert.assertTrue(response.get().getResponses().containsKey("L"));
+            }
+            Assert.assertEquals(1, lookup.invocations.get());
+            Assert.assertEquals(1, executor.getSingleFlight().getInvocationCount());
+            Assert.assertEquals(7, executor.getSingleFlight().getSharedCount());
+            Assert.assertEquals(0, executor.getSingleFlight().getInFlightCount());
+        }
+    }
+
+    @Test
+    public void testDifferentInputs() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            LookupBuilder lookup = new LookupBuilder(false);
+            DataFlow dataFlow = flow(lookup, true);
+            List<Future<DataExecutionResponse>> responses = runConcurrently(executor, dataFlow, "P1", 4);
+            responses.addAll(runConcurrently(executor, dataFlow, "P2", 4));
+            for (Future<DataExecutionResponse> response : responses) {
+                response.get();
+            }
+            Assert.assertEquals(2, lookup.invocations.get());
+            Assert.assertEquals(6, executor.getSingleFlight().getSharedCount());
+        }
+    }
+
+    @Test
+    public void testNotIdempotent() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            LookupBuilder lookup = new LookupBuilder(false);
+            for (Future<DataExecutionResponse> response : runConcurrently(executor, flow(lookup, false), "P1", 4)) {
+                response.get();
+            }
+            Assert.assertEquals(4, lookup.invocations.get());
+            Assert.assertEquals(0, executor.getSingleFlight().getSharedCount());
+        }
+    }
+
+    @Test
+    public void testFailureIsNotShared() throws Exception {
+        for (DataFlowExecutor executor : executors()) {
+            LookupBuilder lookup = new LookupBuilder(true);
+            int failed = 0;
+            for (Future<DataExecutionResponse> response : runConcurrently(executor, flow(lookup, true), "P1", 4)) {
+                try {
+                    response.get();
+                } catch (Exception e) {
+                    failed++;
+                }
+            }
+            //One of the waiting flows runs the builder again and the rest share it's result
+            Assert.assertEquals(1, failed);
+            Assert.assertEquals(2, lookup.invocations.get());
+        }
+    }
+
+    private List<Future<DataExecutionResponse>> runConcurrently(DataFlowExecutor executor, DataFlow dataFlow,
+                                                                String id, int count) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DataExecutionResponse>> responses = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            responses.add(users.submit(() -> {
+                start.await();
+                return executor.run(new DataFlowInstance("test", dataFlow), new RequestData(id));
+            }));
+        }
+        start.countDown();
+        return responses;
+    }
+
+    private DataFlowExecutor[] executors() {
+        return new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)
+        };
+    }
+
+    private static DataFlow flow(LookupBuilder lookup, boolean idempotent) throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
+        DataFlowBuilder dataFlowBuilder = new DataFlowBuilder()
+                .withMetaDataManager(dataBuilderMetadataManager)
+                .withDataBuilder("Lookup", "L", ImmutableSet.of("REQ"), lookup)
+                .withTargetData("L");
+        if (idempotent) {
+            dataBuilderMetadataManager.markIdempotent("Lookup");
+        }
+        return dataFlowBuilder.build();
+    }
+}
@@ -0,0 +1,247 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class StreamingTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class ProducingBuilder extends DataBuilder {
+        private final String produces;
+        private final long sleepMs;
+
+        ProducingBuilder(String produces, long sleepMs) {
+            this.produces = produces;
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            if (sleepMs > 0) {
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new NamedData(produces);
+        }
+    }
+
+    private static class RecordingBuilder extends DataBuilder {
+        private final String produces;
+        private final List<String> invoked;
+
+        RecordingBuilder(String produces, List<String> invoked) {
+            this.produces = produces;
+            this.invoked = invoked;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            invoked.add(produces);
+            return new NamedData(produces);
+        }
+    }
+
+    private static class FailingBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            throw new DataBuilderException("Failed");
+        }
+    }
+
+    private static class RecordingSubscriber implements DataSubscriber {
+        private final long initialRequest;
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile DataSubscription subscription;
+        private volatile DataExecutionResponse response;
+        private volatile DataSet dataSet;
+        private volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(DataSubscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(Data data) {
+            received.add(data.getData());
+        }
+
+        @Override
+        public void onComplete(DataExecutionResponse response, DataSet dataSet) {
+            this.response = response;
+            this.dataSet = dataSet;
+            finished.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            finished.countDown();
+        }
+
+        void cancel() {
+            subscription.cancel();
+        }
+
+        void await() throws InterruptedException {
+            Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testCompletionOrder() throws Exception {
+        //A is slow, so B and C, which does not need A, arrive before it
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("SlowA", "A", ImmutableSet.of("X"), new ProducingBuilder("A", 300))
+                .withDataBuilder("FastB", "B", ImmutableSet.of("X"), new ProducingBuilder("B", 0))
+                .withDataBuilder("C", "C", ImmutableSet.of("B"), new ProducingBuilder("C", 0))
+                .withDataBuilder("D", "D", ImmutableSet.of("A", "C"), new ProducingBuilder("D", 0))
+                .withTargetData("D")
+                .build();
+        for (DataFlowExecutor executor : new DataFlowExecutor[] {
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)}) {
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+            DataFlowInstance dataFlowInstance = new DataFlowInstance("test", dataFlow);
+            executor.stream(dataFlowInstance, new DataDelta(new NamedData("X")), executorService).subscribe(subscriber);
+            subscriber.await();
+            Assert.assertNull(subscriber.error);
+            Assert.assertEquals(Lists.newArrayList("B", "C", "A", "D"), subscriber.received);
+            Assert.assertEquals(4, subscriber.response.getResponses().size());
+            Assert.assertSame(dataFlowInstance.getDataSet(), subscriber.dataSet);
+            Assert.assertTrue(subscriber.dataSet.getAvailableData().containsKey("D"));
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("A", "A", ImmutableSet.of("X"), new ProducingBuilder("A", 0))
+                .withDataBuilder("B", "B", ImmutableSet.of("A"), new ProducingBuilder("B", 0))
+                .withDataBuilder("C", "C", ImmutableSet.of("B"), new ProducingBuilder("C", 0))
+                .withTargetData("C")
+                .build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        DataPublisher publisher = new SimpleDataFlowExecutor()
+                .stream(new DataFlowInstance("test", dataFlow), new DataDelta(new NamedData("X")), Runnable::run);
+        //The run finishes on subscription, but only what was asked for is delivered
+        publisher.subscribe(subscriber);
+        Assert.assertEquals(Lists.newArrayList("A"), subscriber.received);
+        Assert.assertEquals(1, subscriber.finished.getCount());
+        subscriber.subscription.request(1);
+        Assert.assertEquals(Lists.newArrayList("A", "B"), subscriber.received);
+        Assert.assertEquals(1, subscriber.finished.getCount());
+        subscriber.subscription.request(5);
+        Assert.assertEquals(Lists.newArrayList("A", "B", "C"), subscriber.received);
+        subscriber.await();
+        Assert.assertNotNull(subscriber.response);
+
+        try {
+            publisher.subscribe(new RecordingSubscriber(1));
+            Assert.fail("Second subscriber should be rejected");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testCancelStopsRun() throws Exception {
+        for (DataFlowExecutor executor : new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)}) {
+            List<String> invoked = new CopyOnWriteArrayList<>();
+            DataFlow dataFlow = new DataFlowBuilder()
+                    .withDataBuilder("A", "A", ImmutableSet.of("X"), new RecordingBuilder("A", invoked))
+                    .withDataBuilder("B", "B", ImmutableSet.of("A"), new RecordingBuilder("B", invoked))
+                    .withDataBuilder("C", "C", ImmutableSet.of("B"), new RecordingBuilder("C", invoked))
+                    .withTargetData("C")
+                    .build();
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+                @Override
+                public void onNext(Data data) {
+                    super.onNext(data);
+                    cancel();
+                }
+            };
+            executor.stream(new DataFlowInstance("test", dataFlow), new DataDelta(new NamedData("X")), executorService)
+                    .subscribe(subscriber);
+            Thread.sleep(200);
+            Assert.assertEquals(Lists.newArrayList("A"), subscriber.received);
+            Assert.assertEquals(Lists.newArrayList("A"), invoked);
+            //No terminal signal after cancellation
+            Assert.assertEquals(1, subscriber.finished.getCount());
+        }
+    }
+
+    @Test
+    public void testInvalidRequest() throws Exception {
+        List<String> invoked = new CopyOnWriteArrayList<>();
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("A", "A", ImmutableSet.of("X"), new RecordingBuilder("A", invoked))
+                .withDataBuilder("B", "B", ImmutableSet.of("A"), new RecordingBuilder("B", invoked))
+                .withTargetData("B")
+                .build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        new SimpleDataFlowExecutor()
+                .stream(new DataFlowInstance("test", dataFlow), new DataDelta(new NamedData("X")), Runnable::run)
+                .subscribe(subscriber);
+        subscriber.await();
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertNull(subscriber.response);
+        Assert.assertTrue(subscriber.received.isEmpty());
+        //The run is stopped before any builder is started
+        Assert.assertTrue(invoked.isEmpty());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withDataBuilder("A", "A", ImmutableSet.of("X"), new ProducingBuilder("A", 0))
+                .withDataBuilder("Failing", "B", ImmutableSet.of("A"), new FailingBuilder())
+                .withTargetData("B")
+                .build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        new SimpleDataFlowExecutor()
+                .stream(new DataFlowInstance("test", dataFlow), new DataDelta(new NamedData("X")), executorService)
+                .subscribe(subscriber);
+        subscriber.await();
+        Assert.assertEquals(Lists.newArrayList("A"), subscriber.received);
+        Assert.assertTrue(subscriber.error instanceof DataBuilderFrameworkException);
+        Assert.assertNull(subscriber.response);
+    }
+}
@@ -0,0 +1,156 @@
+package com.flipkart.databuilderframework;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+public class SubFlowTest {
+    private static class TextData extends Data {
+        private final String text;
+
+        TextData(String data, String text) {
+            super(data);
+            this.text = text;
+        }
+    }
+
+    //Sub-flow builders only know the names used in the sub-flow
+    private static class NormalizeBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            TextData raw = context.getDataSet().accessor().get("RAW", TextData.class);
+            return new TextData("CLEAN", raw.text.trim());
+        }
+    }
+
+    private static class FormatBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            TextData clean = context.getDataSet().accessor().get("CLEAN", TextData.class);
+            return new TextData("FORMATTED", clean.text.toUpperCase());
+        }
+    }
+
+    //Returns the same data every time, as a builder with a cache would
+    private static class ConstantBuilder extends DataBuilder {
+        private final TextData constant = new TextData("FORMATTED", "CONSTANT");
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            return constant;
+        }
+    }
+
+    private static class OrderBuilder extends DataBuilder {
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            TextData billing = context.getDataSet().accessor().get("BILLING", TextData.class);
+            TextData shipping = context.getDataSet().accessor().get("SHIPPING", TextData.class);
+            return new TextData("ORDER", billing.text + "|" + shipping.text);
+        }
+    }
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testInlining() throws Exception {
+        DataFlow dataFlow = flow();
+        Set<String> builders = dataFlow.getExecutionGraph().getDependencyHierarchy().stream()
+                .flatMap(level -> level.stream().map(DataBuilderMeta::getName))
+                .collect(Collectors.toSet());
+        Assert.assertEquals(ImmutableSet.of("billing.Normalize", "billing.Format",
+                "shipping.Normalize", "shipping.Format", "Order"), builders);
+        Assert.assertTrue(dataFlow.getTransients().containsAll(ImmutableSet.of("billing.CLEAN", "shipping.CLEAN")));
+    }
+
+    @Test
+    public void testExecution() throws Exception {
+        DataFlow dataFlow = flow();
+        for (DataFlowExecutor executor : new DataFlowExecutor[] {
+                new SimpleDataFlowExecutor(),
+                new MultiThreadedDataFlowExecutor(executorService),
+                new OptimizedMultiThreadedDataFlowExecutor(executorService),
+                new AsyncDataFlowExecutor(executorService)}) {
+            DataFlowInstance dataFlowInstance = new DataFlowInstance("test", dataFlow);
+            DataExecutionResponse response = executor.run(dataFlowInstance,
+                    new DataDelta(new TextData("BILLING_INPUT", " home "), new TextData("SHIPPING_INPUT", " office ")));
+            TextData order = (TextData) response.getResponses().get("ORDER");
+            Assert.assertEquals("HOME|OFFICE", order.text);
+            Assert.assertEquals("shipping.Format", response.getResponses().get("SHIPPING").getGeneratedBy());
+            //Private data of the sub-flow never leaks into the data set of the flow
+            Set<String> available = dataFlowInstance.getDataSet().getAvailableData().keySet();
+            Assert.assertFalse(available.contains("CLEAN"));
+            Assert.assertFalse(available.contains("billing.CLEAN"));
+            Assert.assertFalse(available.contains("FORMATTED"));
+        }
+    }
+
+    @Test
+    public void testMetadataManagerSetAfterSubFlow() throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager()
+                .register(ImmutableSet.of("BILLING", "SHIPPING"), "ORDER", "Order", OrderBuilder.class);
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withSubFlow("billing", address(), ImmutableMap.of("RAW", "BILLING_INPUT", "FORMATTED", "BILLING"))
+                .withSubFlow("shipping", address(), ImmutableMap.of("RAW", "SHIPPING_INPUT", "FORMATTED", "SHIPPING"))
+                .withMetaDataManager(dataBuilderMetadataManager)
+                .withTargetData("ORDER")
+                .build();
+        DataExecutionResponse response = new SimpleDataFlowExecutor().run(new DataFlowInstance("test", dataFlow),
+                new DataDelta(new TextData("BILLING_INPUT", " home "), new TextData("SHIPPING_INPUT", " office ")));
+        Assert.assertEquals("HOME|OFFICE", ((TextData) response.getResponses().get("ORDER")).text);
+        Assert.assertNotNull(dataBuilderMetadataManager.get("billing.Format"));
+    }
+
+    @Test
+    public void testSharedDataNotRenamed() throws Exception {
+        ConstantBuilder constantBuilder = new ConstantBuilder();
+        DataFlow constantFlow = new DataFlowBuilder()
+                .withDataBuilder("Constant", "FORMATTED", ImmutableSet.of("RAW"), constantBuilder)
+                .withTargetData("FORMATTED")
+                .build();
+        DataFlow dataFlow = new DataFlowBuilder()
+                .withSubFlow("billing", constantFlow, ImmutableMap.of("RAW", "BILLING_INPUT", "FORMATTED", "BILLING"))
+                .withSubFlow("shipping", constantFlow, ImmutableMap.of("RAW", "SHIPPING_INPUT", "FORMATTED", "SHIPPING"))
+                .withDataBuilder("Order", "ORDER", ImmutableSet.of("BILLING", "SHIPPING"), new OrderBuilder())
+                .withTargetData("ORDER")
+                .build();
+        DataExecutionResponse response = new SimpleDataFlowExecutor().run(new DataFlowInstance("test", dataFlow),
+                new DataDelta(new TextData("BILLING_INPUT", " home "), new TextData("SHIPPING_INPUT", " office ")));
+        Assert.assertEquals("CONSTANT|CONSTANT", ((TextData) response.getResponses().get("ORDER")).text);
+        Assert.assertEquals("FORMATTED", constantBuilder.constant.getData());
+        Assert.assertNull(constantBuilder.constant.getGeneratedBy());
+    }
+
+    private static DataFlow address() throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("Normalize", "CLEAN", ImmutableSet.of("RAW"), new NormalizeBuilder())
+                .withDataBuilder("Format", "FORMATTED", ImmutableSet.of("CLEAN"), new FormatBuilder())
+                .withTransientData("CLEAN")
+                .withTargetData("FORMATTED")
+                .build();
+    }
+
+    private static DataFlow flow() throws Exception {
+        DataFlow address = address();
+        return new DataFlowBuilder()
+                .withSubFlow("billing", address, ImmutableMap.of("RAW", "BILLING_INPUT", "FORMATTED", "BILLING"))
+                .withSubFlow("shipping", address, ImmutableMap.of("RAW", "SHIPPING_INPUT", "FORMATTED", "SHIPPING"))
+                .withDataBuilder("Order", "ORDER", ImmutableSet.of("BILLING", "SHIPPING"), new OrderBuilder())
+                .withTargetData("ORDER")
+                .build();
+    }
+}
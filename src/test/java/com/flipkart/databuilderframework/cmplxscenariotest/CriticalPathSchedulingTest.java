@@ -0,0 +1,137 @@
+package com.flipkart.databuilderframework.cmplxscenariotest;
+
+import com.flipkart.databuilderframework.cmplxscenariotest.builders.*;
+import com.flipkart.databuilderframework.cmplxscenariotest.data.DataA;
+import com.flipkart.databuilderframework.cmplxscenariotest.data.InputAData;
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.engine.impl.InstantiatingDataBuilderFactory;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Order in which builders of a level are started by the multi-threaded executors.
+ */
+@Slf4j
+public class CriticalPathSchedulingTest {
+    private static class NamedData extends Data {
+        NamedData(String data) {
+            super(data);
+        }
+    }
+
+    private static class RecordingBuilder extends DataBuilder {
+        private final List<String> started;
+        private final String produces;
+        private final long sleepMs;
+
+        RecordingBuilder(List<String> started, String produces, long sleepMs) {
+            this.started = started;
+            this.produces = produces;
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public Data process(DataBuilderContext context) throws DataBuilderException {
+            started.add(produces);
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                throw new DataBuilderException("Interrupted");
+            }
+            return new NamedData(produces);
+        }
+    }
+
+    @Test
+    public void testSlowChainFirst() throws Exception {
+        //Levels are ranked by distance from the target, so builders of a level differ only in their latencies
+        List<String> started = new CopyOnWriteArrayList<>();
+        Assert.assertEquals("H", firstStarted(flow(started, 100, 5), started));
+        Assert.assertEquals("L3", firstStarted(flow(started, 5, 100), started));
+    }
+
+    @Test
+    public void testComplexFlowUnderContention() throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
+        for (Class<? extends DataBuilder> builder : Lists.<Class<? extends DataBuilder>>newArrayList(
+                BuilderA1.class, BuilderA2.class, BuilderA3.class, BuilderB1.class, BuilderB2.class, BuilderB3.class,
+                BuilderB4.class, BuilderB5.class, BuilderC.class, BuilderD.class, BuilderE1.class, BuilderE2.class,
+                BuilderE3.class, BuilderE4.class, BuilderE5.class, BuilderE6.class, BuilderF.class, BuilderG.class,
+                BuilderH.class, BuilderI.class, BuilderJ.class, BuilderK.class)) {
+            dataBuilderMetadataManager.register(builder);
+        }
+        DataFlow dataFlow = new DataFlow();
+        dataFlow.setTargetData("K");
+        dataFlow.setTransients(Sets.newHashSet("IA", "I"));
+        dataFlow.setExecutionGraph(new ExecutionGraphGenerator(dataBuilderMetadataManager).generateGraph(dataFlow));
+
+        ProfileExecutor builderExecutor = new ProfileExecutor(8, -1, 50);
+        ExecutorService users = Executors.newFixedThreadPool(8);
+        try {
+            DataFlowExecutor executor = new MultiThreadedDataFlowExecutor(
+                    new InstantiatingDataBuilderFactory(dataBuilderMetadataManager), builderExecutor);
+            List<Future<Long>> latencies = Lists.newArrayList();
+            for (int i = 0; i < 40; i++) {
+                latencies.add(users.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    DataExecutionResponse response = executor.run(new DataFlowInstance("test", dataFlow),
+                                                                    new DataA(), new InputAData());
+                    Assert.assertTrue(response.getResponses().containsKey("K"));
+                    return System.currentTimeMillis() - start;
+                }));
+            }
+            List<Long> sorted = Lists.newArrayList();
+            for (Future<Long> latency : latencies) {
+                sorted.add(latency.get());
+            }
+            Collections.sort(sorted);
+            log.info("Complex flow under contention: p50 {} ms, p99 {} ms, switches over threshold {}",
+                    sorted.get(sorted.size() / 2), sorted.get(sorted.size() - 1),
+                    builderExecutor.getNumberOfContextSwitchesOverThresHold());
+        } finally {
+            users.shutdownNow();
+            builderExecutor.shutdownNow();
+        }
+    }
+
+    private static String firstStarted(DataFlow dataFlow, List<String> started) throws Exception {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            DataFlowExecutor executor = new MultiThreadedDataFlowExecutor(executorService);
+            executor.run(new DataFlowInstance("test", dataFlow), new NamedData("REQ"));
+            started.clear();
+            executor.run(new DataFlowInstance("test", dataFlow), new NamedData("REQ"));
+            return started.get(0);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Level 0 has L1, L2, L3 and H. The leaves are consumed by M and H by C, both of which are consumed by RES.
+     */
+    private static DataFlow flow(List<String> started, long chainMs, long leafMs) throws Exception {
+        return new DataFlowBuilder()
+                .withDataBuilder("Leaf1", "L1", ImmutableSet.of("REQ"), new RecordingBuilder(started, "L1", 5))
+                .withDataBuilder("Leaf2", "L2", ImmutableSet.of("REQ"), new RecordingBuilder(started, "L2", 5))
+                .withDataBuilder("Leaf3", "L3", ImmutableSet.of("REQ"), new RecordingBuilder(started, "L3", leafMs))
+                .withDataBuilder("Mid", "M", ImmutableSet.of("L1", "L2", "L3"), new RecordingBuilder(started, "M", 5))
+                .withDataBuilder("Head", "H", ImmutableSet.of("REQ"), new RecordingBuilder(started, "H", 5))
+                .withDataBuilder("Chain", "C", ImmutableSet.of("H"), new RecordingBuilder(started, "C", chainMs))
+                .withDataBuilder("Result", "RES", ImmutableSet.of("M", "C"), new RecordingBuilder(started, "RES", 5))
+                .withTargetData("RES")
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.TestBuilderA;
+import com.flipkart.databuilderframework.TestBuilderB;
+import com.flipkart.databuilderframework.TestBuilderC;
+import com.flipkart.databuilderframework.TestDataA;
+import com.flipkart.databuilderframework.TestDataB;
+import com.flipkart.databuilderframework.TestDataD;
+import com.flipkart.databuilderframework.engine.impl.InstantiatingDataBuilderFactory;
+import com.flipkart.databuilderframework.model.DataExecutionResponse;
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.DataFlowInstance;
+import com.flipkart.databuilderframework.model.ExecutionGraph;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataFlowRegistryTest {
+    private DataBuilderMetadataManager dataBuilderMetadataManager;
+    private DataFlowRegistry registry;
+
+    @Before
+    public void setup() throws Exception {
+        dataBuilderMetadataManager = new DataBuilderMetadataManager()
+                .register(TestBuilderA.class)
+                .register(TestBuilderB.class);
+        registry = new DataFlowRegistry(dataBuilderMetadataManager, 2);
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        ExecutionGraph graph = registry.generateGraph(flow("E"));
+        Assert.assertSame(graph, registry.generateGraph(flow("E")));
+        Assert.assertNotSame(graph, registry.generateGraph(flow("C")));
+        Assert.assertEquals(1, registry.stats().hitCount());
+        Assert.assertEquals(2, registry.stats().missCount());
+
+        //Transients change the plan, so they are part of the key
+        DataFlow withTransients = flow("E");
+        withTransients.setTransients(Sets.newHashSet("C"));
+        registry.prepare(withTransients);
+        Assert.assertEquals(3, registry.stats().missCount());
+    }
+
+    @Test
+    public void testMetadataChangeInvalidates() throws Exception {
+        long version = dataBuilderMetadataManager.getVersion();
+        ExecutionGraph graph = registry.generateGraph(flow("E"));
+        Assert.assertEquals(2, graph.getDependencyHierarchy().size());
+        dataBuilderMetadataManager.register(TestBuilderC.class);
+        Assert.assertNotEquals(version, dataBuilderMetadataManager.getVersion());
+        Assert.assertNotSame(graph, registry.generateGraph(flow("E")));
+        Assert.assertEquals(3, registry.generateGraph(flow("F")).getDependencyHierarchy().size());
+        Assert.assertEquals(dataBuilderMetadataManager.getVersion(), dataBuilderMetadataManager.immutableCopy().getVersion());
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        registry.generateGraph(flow("C"));
+        registry.generateGraph(flow("E"));
+        registry.generateGraph(flow("C"));
+        registry.generateGraph(flow("X"));
+        Assert.assertEquals(2, registry.size());
+        Assert.assertEquals(1, registry.stats().evictionCount());
+        registry.generateGraph(flow("C"));
+        Assert.assertEquals(2, registry.stats().hitCount());
+    }
+
+    @Test
+    public void testPrepareAndRun() throws Exception {
+        DataFlow dataFlow = registry.prepare(flow("E"));
+        Assert.assertNotNull(dataFlow.getExecutionPlan());
+        Assert.assertSame(dataFlow.getExecutionPlan(), registry.prepare(flow("E")).getExecutionPlan());
+        DataFlowExecutor executor = new SimpleDataFlowExecutor(new InstantiatingDataBuilderFactory(dataBuilderMetadataManager));
+        DataExecutionResponse response = executor.run(new DataFlowInstance("testflow", dataFlow),
+                                                        new TestDataA("Hello"), new TestDataB("World"), new TestDataD("this"));
+        Assert.assertEquals(ImmutableSet.of("C", "E"), response.getResponses().keySet());
+    }
+
+    @Test(expected = DataBuilderFrameworkException.class)
+    public void testNoTarget() throws Exception {
+        registry.prepare(new DataFlow());
+    }
+
+    private static DataFlow flow(String target) {
+        DataFlow dataFlow = new DataFlow();
+        dataFlow.setTargetData(target);
+        return dataFlow;
+    }
+}
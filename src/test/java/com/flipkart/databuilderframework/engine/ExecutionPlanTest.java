@@ -0,0 +1,83 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.TestBuilderA;
+import com.flipkart.databuilderframework.TestBuilderB;
+import com.flipkart.databuilderframework.TestBuilderC;
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+public class ExecutionPlanTest {
+    private DataFlow dataFlow;
+
+    @Before
+    public void setup() throws Exception {
+        dataFlow = new DataFlowBuilder()
+                .withAnnotatedDataBuilder(TestBuilderA.class)
+                .withAnnotatedDataBuilder(TestBuilderB.class)
+                .withAnnotatedDataBuilder(TestBuilderC.class)
+                .withTransientData("E")
+                .withTargetData("F")
+                .build();
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        ExecutionPlan executionPlan = dataFlow.getExecutionPlan();
+        Assert.assertNotNull(executionPlan);
+        Assert.assertEquals(3, executionPlan.builderCount());
+        Assert.assertEquals(3, executionPlan.levelCount());
+        Assert.assertEquals(6, executionPlan.dataCount());
+        Assert.assertEquals("BuilderA", executionPlan.builder(executionPlan.levelStart(0)).getName());
+        Assert.assertEquals("BuilderC", executionPlan.builder(executionPlan.levelStart(2)).getName());
+        Assert.assertEquals(2, executionPlan.level(2));
+        Assert.assertEquals(executionPlan.dataId("F"), executionPlan.target());
+        Assert.assertEquals(executionPlan.dataId("C"), executionPlan.produces(0));
+        Assert.assertEquals(-1, executionPlan.dataId("X"));
+        Assert.assertArrayEquals(new int[]{0, 2}, executionPlan.consumers(executionPlan.dataId("A")));
+        Assert.assertTrue(executionPlan.isTracked(executionPlan.dataId("C")));
+        Assert.assertFalse(executionPlan.isTracked(executionPlan.dataId("E")));
+    }
+
+    @Test
+    public void testReadiness() throws Exception {
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        BitSet available = executionPlan.dataSet(ImmutableSet.of("A", "X"));
+        Assert.assertTrue(executionPlan.isTriggered(0, available));
+        Assert.assertFalse(executionPlan.isSatisfied(0, available));
+        available.or(executionPlan.dataSet(ImmutableSet.of("B")));
+        Assert.assertTrue(executionPlan.isSatisfied(0, available));
+        Assert.assertFalse(executionPlan.isTriggered(1, available));
+        Assert.assertFalse(executionPlan.containsTarget(available));
+        Assert.assertTrue(executionPlan.containsTarget(executionPlan.dataSet(ImmutableSet.of("F"))));
+    }
+
+    @Test
+    public void testTriggeredBy() throws Exception {
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        BitSet active = executionPlan.dataSet(ImmutableSet.of("A", "X"));
+        BitSet triggered = executionPlan.triggeredBy(active);
+        for (int builderId = 0; builderId < executionPlan.builderCount(); builderId++) {
+            Assert.assertEquals(executionPlan.isTriggered(builderId, active), triggered.get(builderId));
+        }
+        executionPlan.addConsumers(executionPlan.dataId("C"), triggered);
+        Assert.assertEquals(3, triggered.cardinality());
+    }
+
+    @Test
+    public void testPlanIsCachedAndInvalidated() throws Exception {
+        ExecutionPlan executionPlan = ExecutionPlan.of(dataFlow);
+        Assert.assertSame(executionPlan, ExecutionPlan.of(dataFlow));
+        dataFlow.setTransients(Sets.newHashSet());
+        Assert.assertNull(dataFlow.getExecutionPlan());
+        ExecutionPlan recompiled = ExecutionPlan.of(dataFlow);
+        Assert.assertNotSame(executionPlan, recompiled);
+        Assert.assertTrue(recompiled.isTracked(recompiled.dataId("E")));
+        Assert.assertNull(dataFlow.deepCopy().getExecutionPlan());
+    }
+}
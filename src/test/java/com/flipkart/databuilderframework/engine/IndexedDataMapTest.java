@@ -0,0 +1,163 @@
+package com.flipkart.databuilderframework.engine;
+
+import com.flipkart.databuilderframework.TestBuilderA;
+import com.flipkart.databuilderframework.TestBuilderB;
+import com.flipkart.databuilderframework.TestBuilderC;
+import com.flipkart.databuilderframework.TestDataA;
+import com.flipkart.databuilderframework.TestDataB;
+import com.flipkart.databuilderframework.TestDataD;
+import com.flipkart.databuilderframework.TestDataX;
+import com.flipkart.databuilderframework.model.Data;
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.DataFlowInstance;
+import com.flipkart.databuilderframework.model.DataSet;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+public class IndexedDataMapTest {
+    private DataFlow dataFlow;
+    private ExecutionPlan executionPlan;
+
+    @Before
+    public void setup() throws Exception {
+        dataFlow = new DataFlowBuilder()
+                .withAnnotatedDataBuilder(TestBuilderA.class)
+                .withAnnotatedDataBuilder(TestBuilderB.class)
+                .withAnnotatedDataBuilder(TestBuilderC.class)
+                .withTargetData("F")
+                .build();
+        executionPlan = ExecutionPlan.of(dataFlow);
+    }
+
+    @Test
+    public void testMapContract() throws Exception {
+        IndexedDataMap dataMap = new IndexedDataMap(executionPlan);
+        Map<String, Data> expected = Maps.newHashMap();
+        for (Data data : new Data[]{new TestDataA("Hello"), new TestDataB("World"), new TestDataX("Outside")}) {
+            Assert.assertNull(dataMap.put(data.getData(), data));
+            expected.put(data.getData(), data);
+        }
+        Assert.assertEquals(3, dataMap.size());
+        Assert.assertEquals(expected, dataMap);
+        Assert.assertEquals(expected.hashCode(), dataMap.hashCode());
+        Assert.assertTrue(dataMap.containsKey("X"));
+        Assert.assertTrue(dataMap.contains(executionPlan.dataId("A")));
+        Assert.assertFalse(dataMap.containsKey("D"));
+        Assert.assertEquals("Hello", ((TestDataA) dataMap.get(executionPlan.dataId("A"))).getValue());
+
+        Assert.assertNotNull(dataMap.remove("B"));
+        Assert.assertNotNull(dataMap.remove("X"));
+        Assert.assertEquals(ImmutableMap.of("A", expected.get("A")), dataMap);
+
+        Iterator<Map.Entry<String, Data>> iterator = dataMap.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        Assert.assertTrue(dataMap.isEmpty());
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        IndexedDataMap dataMap = IndexedDataMap.copyOf(executionPlan,
+                ImmutableMap.<String, Data>of("A", new TestDataA("Hello"), "C", new TestDataX("C"), "X", new TestDataX("X")));
+        IndexedDataMap copy = dataMap.copy();
+        copy.put("D", new TestDataD("this"));
+        Assert.assertEquals(3, dataMap.size());
+        Assert.assertEquals(4, copy.size());
+
+        IndexedDataMap withoutTransients = dataMap.copy(ImmutableSet.of("C", "X"));
+        Assert.assertEquals(ImmutableSet.of("A"), withoutTransients.keySet());
+        Assert.assertEquals(3, dataMap.size());
+    }
+
+    @Test
+    public void testCopiesAreIndependent() throws Exception {
+        IndexedDataMap original = IndexedDataMap.copyOf(executionPlan,
+                ImmutableMap.<String, Data>of("A", new TestDataA("Hello"), "X", new TestDataX("X")));
+        IndexedDataMap copy = original.copy();
+        IndexedDataMap snapshot = copy.copy();
+
+        copy.put("A", new TestDataA("World"));
+        copy.put("Y", new TestDataX("Y"));
+        copy.remove("X");
+        original.put("B", new TestDataB("World"));
+
+        Assert.assertEquals("Hello", ((TestDataA) original.get("A")).getValue());
+        Assert.assertEquals(ImmutableSet.of("A", "B", "X"), original.keySet());
+        Assert.assertEquals("World", ((TestDataA) copy.get("A")).getValue());
+        Assert.assertEquals(ImmutableSet.of("A", "Y"), copy.keySet());
+        Assert.assertEquals("Hello", ((TestDataA) snapshot.get("A")).getValue());
+        Assert.assertEquals(ImmutableSet.of("A", "X"), snapshot.keySet());
+    }
+
+    @Test
+    public void testClearAndRefill() throws Exception {
+        IndexedDataMap dataMap = new IndexedDataMap(executionPlan);
+        dataMap.put("A", new TestDataA("Hello"));
+        dataMap.clear();
+        Assert.assertTrue(dataMap.isEmpty());
+        dataMap.put("A", new TestDataA("Hello"));
+        dataMap.put("X", new TestDataX("X"));
+        Assert.assertEquals("Hello", ((TestDataA) dataMap.get("A")).getValue());
+
+        IndexedDataMap copy = dataMap.copy();
+        dataMap.clear();
+        dataMap.put("A", new TestDataA("World"));
+        dataMap.put("X", new TestDataX("Y"));
+        Assert.assertEquals(2, dataMap.size());
+        Assert.assertEquals("World", ((TestDataA) dataMap.get("A")).getValue());
+        Assert.assertEquals("Hello", ((TestDataA) copy.get("A")).getValue());
+        Assert.assertEquals("Y", ((TestDataX) dataMap.get("X")).getValue());
+        Assert.assertEquals("X", ((TestDataX) copy.get("X")).getValue());
+
+        copy.clear();
+        copy.put("B", new TestDataB("World"));
+        Assert.assertEquals(ImmutableSet.of("B"), copy.keySet());
+        Assert.assertEquals(ImmutableSet.of("A", "X"), dataMap.keySet());
+    }
+
+    @Test
+    public void testScopedView() throws Exception {
+        IndexedDataMap dataMap = IndexedDataMap.copyOf(executionPlan,
+                ImmutableMap.<String, Data>of("A", new TestDataA("Hello"), "D", new TestDataD("this"), "X", new TestDataX("X")));
+        //BuilderA consumes A and B
+        Map<String, Data> scoped = dataMap.scopedTo(0);
+        Assert.assertEquals(ImmutableSet.of("A"), scoped.keySet());
+        Assert.assertEquals(1, scoped.size());
+        Assert.assertNull(scoped.get("D"));
+        Assert.assertNull(scoped.get("X"));
+
+        dataMap.put("B", new TestDataB("World"));
+        Assert.assertEquals(ImmutableSet.of("A", "B"), scoped.keySet());
+        Assert.assertEquals("World", ((TestDataB) scoped.get("B")).getValue());
+        try {
+            scoped.put("B", new TestDataB("Again"));
+            Assert.fail("Scoped view should be read-only");
+        } catch (UnsupportedOperationException e) {
+            //Expected
+        }
+
+        DataBuilderContext context = new DataBuilderContext().immutableCopy(new DataSet(scoped));
+        DataBuilder builder = new TestBuilderA();
+        builder.setDataBuilderMeta(executionPlan.builder(0));
+        Assert.assertSame(context.getDataSet(), context.getDataSet(builder));
+    }
+
+    @Test
+    public void testExecutorsKeepIndexedDataSet() throws Exception {
+        DataFlowInstance dataFlowInstance = new DataFlowInstance("testflow", dataFlow);
+        new SimpleDataFlowExecutor().run(dataFlowInstance, new TestDataA("Hello"), new TestDataB("World"));
+        DataSet dataSet = dataFlowInstance.getDataSet();
+        Assert.assertTrue(dataSet.getAvailableData() instanceof IndexedDataMap);
+        Assert.assertEquals(ImmutableSet.of("A", "B", "C"), dataSet.getAvailableData().keySet());
+
+        new SimpleDataFlowExecutor().run(dataFlowInstance, new TestDataD("this"));
+        Assert.assertEquals(ImmutableSet.of("A", "B", "C", "D", "E", "F"), dataFlowInstance.getDataSet().getAvailableData().keySet());
+    }
+}
@@ -0,0 +1,87 @@
+package com.flipkart.databuilderframework.speed;
+
+import com.flipkart.databuilderframework.engine.DataBuilderMetadataManager;
+import com.flipkart.databuilderframework.engine.ExecutionGraphGenerator;
+import com.flipkart.databuilderframework.model.DataFlow;
+import com.flipkart.databuilderframework.model.ExecutionGraph;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+/**
+ * Graph generation on synthetic graphs of 10k builders.
+ */
+@Slf4j
+public class GraphGenerationScaleTest {
+    private static final int LAYERS = 100;
+    private static final int WIDTH = 100;
+    private static final int FAN_IN = 5;
+    private static final int CHAIN_LENGTH = 10_000;
+
+    @Test
+    public void testWideDiamonds() throws Exception {
+        //Every builder consumes a few builders of the previous layer, so lower layers are reachable over a huge
+        //number of paths
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (int i = 0; i < WIDTH; i++) {
+                Set<String> consumes = Sets.newHashSet();
+                if (0 == layer) {
+                    consumes.add("REQ");
+                } else {
+                    for (int k = 0; k < FAN_IN; k++) {
+                        consumes.add(name(layer - 1, (i + k * 7) % WIDTH));
+                    }
+                }
+                dataBuilderMetadataManager.register(consumes, name(layer, i), "Builder" + name(layer, i), ServiceCallerA.class);
+            }
+        }
+        Set<String> lastLayer = Sets.newHashSet();
+        for (int i = 0; i < WIDTH; i++) {
+            lastLayer.add(name(LAYERS - 1, i));
+        }
+        dataBuilderMetadataManager.register(lastLayer, "RES", "ResponseBuilder", DataCombiner.class);
+
+        ExecutionGraph executionGraph = generate(dataBuilderMetadataManager, "wide diamonds");
+        Assert.assertEquals(LAYERS + 1, executionGraph.getDependencyHierarchy().size());
+        Assert.assertEquals(WIDTH, executionGraph.getDependencyHierarchy().get(0).size());
+        Assert.assertEquals("ResponseBuilder", executionGraph.getDependencyHierarchy().get(LAYERS).get(0).getName());
+    }
+
+    @Test
+    public void testDeepChain() throws Exception {
+        DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "C0", "BuilderC0", ServiceCallerA.class);
+        for (int i = 1; i < CHAIN_LENGTH; i++) {
+            dataBuilderMetadataManager.register(ImmutableSet.of("C" + (i - 1)), "C" + i, "BuilderC" + i, ServiceCallerA.class);
+        }
+        ExecutionGraph executionGraph = generate(dataBuilderMetadataManager, "deep chain");
+        Assert.assertEquals(CHAIN_LENGTH, executionGraph.getDependencyHierarchy().size());
+        Assert.assertEquals("BuilderC0", executionGraph.getDependencyHierarchy().get(0).get(0).getName());
+    }
+
+    private ExecutionGraph generate(DataBuilderMetadataManager dataBuilderMetadataManager, String graph) throws Exception {
+        DataFlow dataFlow = new DataFlow();
+        dataFlow.setTargetData(
+                dataBuilderMetadataManager.getMetaForProducerOf("RES") != null ? "RES" : "C" + (CHAIN_LENGTH - 1));
+        ExecutionGraphGenerator executionGraphGenerator = new ExecutionGraphGenerator(dataBuilderMetadataManager);
+        ExecutionGraph executionGraph = null;
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long startTime = System.nanoTime();
+            executionGraph = executionGraphGenerator.generateGraph(dataFlow);
+            bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+        }
+        log.info("Generated graph for {} in {} ms", graph, bestTime / 1_000_000);
+        Assert.assertTrue(bestTime < 1_000_000_000L);
+        return executionGraph;
+    }
+
+    private static String name(int layer, int i) {
+        return "L" + layer + "_" + i;
+    }
+}
@@ -0,0 +1,88 @@
+package com.flipkart.databuilderframework.speed;
+
+import com.flipkart.databuilderframework.engine.*;
+import com.flipkart.databuilderframework.engine.impl.InstantiatingDataBuilderFactory;
+import com.flipkart.databuilderframework.model.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares {@link VirtualThreadDataFlowExecutor} with {@link MultiThreadedDataFlowExecutor} for a large number of
+ * concurrent flows. Runs only on JVMs that support virtual threads.
+ */
+@Slf4j
+public class VirtualThreadConcurrencyTest {
+    private static final int CONCURRENT_FLOWS = 10_000;
+
+    private DataBuilderMetadataManager dataBuilderMetadataManager = new DataBuilderMetadataManager();
+    private ExecutionGraphGenerator executionGraphGenerator = new ExecutionGraphGenerator(dataBuilderMetadataManager);
+    private DataFlow dataFlow = new DataFlow();
+
+    @Before
+    public void setup() throws Exception {
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "A", "BuilderA", ServiceCallerA.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "B", "BuilderB", ServiceCallerB.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "C", "BuilderC", ServiceCallerC.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "D", "BuilderD", ServiceCallerD.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "E", "BuilderE", ServiceCallerE.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "F", "BuilderF", ServiceCallerF.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("REQ"), "G", "BuilderG", ServiceCallerG.class );
+        dataBuilderMetadataManager.register(ImmutableSet.of("A", "B", "C", "D", "E", "F", "G"), "RES", "ResponseBuilder", DataCombiner.class );
+        dataFlow.setTargetData("RES");
+        dataFlow.setExecutionGraph(executionGraphGenerator.generateGraph(dataFlow));
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        Assume.assumeTrue(VirtualThreadDataFlowExecutor.isSupported());
+
+        VirtualThreadDataFlowExecutor virtualThreadExecutor
+                = new VirtualThreadDataFlowExecutor(new InstantiatingDataBuilderFactory(dataBuilderMetadataManager));
+        ExecutorService builderPool = Executors.newFixedThreadPool(200);
+        ExecutorService callerPool = Executors.newFixedThreadPool(200);
+        DataFlowExecutor multiThreadedExecutor
+                = new MultiThreadedDataFlowExecutor(new InstantiatingDataBuilderFactory(dataBuilderMetadataManager), builderPool);
+        //Warm up
+        for (int i = 0; i < 1000; i++) {
+            virtualThreadExecutor.run(new DataFlowInstance("testflow", dataFlow), new RequestData());
+            multiThreadedExecutor.run(new DataFlowInstance("testflow", dataFlow), new RequestData());
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<CompletableFuture<DataExecutionResponse>> responses = Lists.newArrayListWithCapacity(CONCURRENT_FLOWS);
+        for (int i = 0; i < CONCURRENT_FLOWS; i++) {
+            responses.add(virtualThreadExecutor.runAsync(new DataFlowInstance("testflow", dataFlow),
+                                                         new DataDelta(Lists.<Data>newArrayList(new RequestData()))));
+        }
+        for (CompletableFuture<DataExecutionResponse> response : responses) {
+            Assert.assertEquals(8, response.get().getResponses().size());
+        }
+        long vtTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        List<Future<DataExecutionResponse>> mtResponses = Lists.newArrayListWithCapacity(CONCURRENT_FLOWS);
+        for (int i = 0; i < CONCURRENT_FLOWS; i++) {
+            mtResponses.add(callerPool.submit(() -> multiThreadedExecutor.run(new DataFlowInstance("testflow", dataFlow),
+                                                         new DataDelta(Lists.<Data>newArrayList(new RequestData())))));
+        }
+        for (Future<DataExecutionResponse> response : mtResponses) {
+            Assert.assertEquals(8, response.get().getResponses().size());
+        }
+        long mtTime = System.currentTimeMillis() - startTime;
+        virtualThreadExecutor.shutdown();
+        builderPool.shutdown();
+        callerPool.shutdown();
+        log.info("Flows: {} VT: {} MT: {}", CONCURRENT_FLOWS, vtTime, mtTime);
+    }
+}